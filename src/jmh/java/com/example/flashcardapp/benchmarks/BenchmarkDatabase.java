@@ -0,0 +1,69 @@
+package com.example.flashcardapp.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardDAO;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A private, migrated, in-memory H2 database behind the same pooled data source the
+ * application uses, seeded with generated flashcards.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final String[] CATEGORIES = {"Biology", "Chemistry", "History", "Languages", "Mathematics"};
+
+    private final ManagedDataSource dataSource;
+    private final FlashcardDAO flashcardDAO;
+
+    BenchmarkDatabase(int size) throws Exception {
+        DataSourceFactory factory = new DataSourceFactory();
+        factory.setDriverClass("org.h2.Driver");
+        factory.setUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        factory.setUser("sa");
+        factory.setPassword("");
+        this.dataSource = factory.build(new MetricRegistry(), "benchmark");
+        this.dataSource.start();
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("migrations/db.changelog-master.xml", new ClassLoaderResourceAccessor(),
+                new JdbcConnection(connection)).update(new Contexts());
+        }
+        this.flashcardDAO = new FlashcardDAO(dataSource);
+        for (int from = 0; from < size; from += 1000) {
+            flashcardDAO.createBatch(flashcards(from, Math.min(1000, size - from)));
+        }
+    }
+
+    FlashcardDAO getFlashcardDAO() {
+        return flashcardDAO;
+    }
+
+    /**
+     * Generates {@code count} unsaved flashcards numbered from {@code from}.
+     */
+    static List<Flashcard> flashcards(int from, int count) {
+        List<Flashcard> flashcards = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            flashcards.add(new Flashcard(
+                "What is the meaning of term number " + i + " in this deck?",
+                "Term " + i + " means the definition written on the back of card " + i + ".",
+                CATEGORIES[i % CATEGORIES.length]));
+        }
+        return flashcards;
+    }
+
+    @Override
+    public void close() throws Exception {
+        dataSource.stop();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.flashcardapp.benchmarks;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardDAO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FlashcardDAO} reads and batch inserts against an embedded H2 database.
+ *
+ * <p>H2 runs in-process, so these numbers measure the DAO, the connection pool and
+ * JDBC mapping rather than network round trips to MySQL.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlashcardDAOBenchmark {
+
+    @Param({"10000"})
+    public int tableSize;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private BenchmarkDatabase database;
+    private FlashcardDAO flashcardDAO;
+    private List<Flashcard> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        database = new BenchmarkDatabase(tableSize);
+        flashcardDAO = database.getFlashcardDAO();
+        batch = BenchmarkDatabase.flashcards(tableSize, batchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<Flashcard> findById() {
+        return flashcardDAO.findById(ThreadLocalRandom.current().nextLong(1, tableSize + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Flashcard> findAll() {
+        return flashcardDAO.findAll();
+    }
+
+    /**
+     * Inserts into a table of its own so the read benchmarks keep a fixed table size.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int createBatch(InsertState state) {
+        return state.flashcardDAO.createBatch(batch);
+    }
+
+    @State(Scope.Benchmark)
+    public static class InsertState {
+
+        private BenchmarkDatabase database;
+        private FlashcardDAO flashcardDAO;
+
+        @Setup(Level.Iteration)
+        public void setup() throws Exception {
+            database = new BenchmarkDatabase(0);
+            flashcardDAO = database.getFlashcardDAO();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.flashcardapp.benchmarks;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization and deserialization of flashcards with the application's
+ * {@link ObjectMapper} configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlashcardJsonBenchmark {
+
+    @Param({"1000"})
+    public int listSize;
+
+    private ObjectWriter cardWriter;
+    private ObjectReader cardReader;
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+
+    private Flashcard card;
+    private byte[] cardJson;
+    private List<Flashcard> list;
+    private byte[] listJson;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper mapper = Jackson.newObjectMapper();
+        cardWriter = mapper.writerFor(Flashcard.class);
+        cardReader = mapper.readerFor(Flashcard.class);
+        TypeReference<List<Flashcard>> listType = new TypeReference<List<Flashcard>>() { };
+        listWriter = mapper.writerFor(listType);
+        listReader = mapper.readerFor(listType);
+
+        list = BenchmarkDatabase.flashcards(0, listSize);
+        LocalDateTime now = LocalDateTime.now();
+        long id = 1;
+        for (Flashcard flashcard : list) {
+            flashcard.setId(id++);
+            flashcard.setCreatedAt(now);
+            flashcard.setUpdatedAt(now);
+        }
+        card = list.get(0);
+        cardJson = cardWriter.writeValueAsBytes(card);
+        listJson = listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] serializeCard() throws Exception {
+        return cardWriter.writeValueAsBytes(card);
+    }
+
+    @Benchmark
+    public Flashcard deserializeCard() throws Exception {
+        return cardReader.readValue(cardJson);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return listWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public List<Flashcard> deserializeList() throws Exception {
+        return listReader.readValue(listJson);
+    }
+}
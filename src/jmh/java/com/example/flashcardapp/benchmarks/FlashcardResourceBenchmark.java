@@ -0,0 +1,126 @@
+package com.example.flashcardapp.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.resources.FlashcardResource;
+import com.example.flashcardapp.resources.StoreExecutor;
+import com.example.flashcardapp.search.CategorySearchCache;
+import com.example.flashcardapp.search.DuplicateDetector;
+import com.example.flashcardapp.search.FlashcardIndex;
+import com.example.flashcardapp.search.FlashcardSampler;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import io.dropwizard.util.Duration;
+import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests sent to {@link FlashcardResource} over HTTP through a Grizzly test
+ * container, backed by an embedded H2 database.
+ *
+ * <p>Compare with {@link FlashcardDAOBenchmark} to see what routing, filters and JSON
+ * entity handling add on top of the data access itself, and the {@code execution}
+ * modes to see what handing store calls to their own executor costs or saves. The
+ * benchmarks run on several threads are the ones where the modes differ.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlashcardResourceBenchmark {
+
+    private static final GenericType<List<Flashcard>> FLASHCARD_LIST = new GenericType<List<Flashcard>>() { };
+
+    @Param({"10000"})
+    public int tableSize;
+
+    @Param({"blocking", "async"})
+    public String execution;
+
+    private BenchmarkDatabase database;
+    private StoreExecutor storeExecutor;
+    private ResourceExtension resources;
+    private Flashcard newFlashcard;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        database = new BenchmarkDatabase(tableSize);
+        FlashcardDAO flashcardDAO = database.getFlashcardDAO();
+        FlashcardIndex flashcardIndex = new FlashcardIndex();
+        flashcardDAO.addListener(flashcardIndex);
+        flashcardDAO.findAll().forEach(flashcardIndex::add);
+        FlashcardSampler flashcardSampler = new FlashcardSampler();
+        flashcardDAO.addListener(flashcardSampler);
+        flashcardDAO.findAll().forEach(flashcardSampler::add);
+        DuplicateDetector duplicateDetector = new DuplicateDetector(0.7, 0.9);
+        flashcardDAO.addListener(duplicateDetector);
+        flashcardDAO.findAll().forEach(duplicateDetector::add);
+        CategorySearchCache categorySearchCache = new CategorySearchCache(Jackson.newObjectMapper(),
+            Duration.seconds(2), 10_000, new MetricRegistry());
+        flashcardDAO.addListener(categorySearchCache);
+        storeExecutor = execution.equals("async")
+            ? new StoreExecutor(4, 1000, Duration.seconds(10), true, new MetricRegistry())
+            : StoreExecutor.blocking();
+        resources = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new FlashcardResource(flashcardDAO, flashcardIndex, flashcardSampler, duplicateDetector,
+                categorySearchCache, storeExecutor))
+            .build();
+        resources.before();
+        newFlashcard = new Flashcard("What does JMH stand for?", "Java Microbenchmark Harness", "Computing");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        resources.after();
+        storeExecutor.stop();
+        database.close();
+    }
+
+    @Benchmark
+    public Flashcard getFlashcard() {
+        long id = ThreadLocalRandom.current().nextLong(1, tableSize + 1);
+        return resources.target("/flashcards/" + id).request().get(Flashcard.class);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Flashcard getFlashcardConcurrently() {
+        return getFlashcard();
+    }
+
+    @Benchmark
+    public List<Flashcard> getPage() {
+        return resources.target("/flashcards").queryParam("limit", 100)
+            .request().get(FLASHCARD_LIST);
+    }
+
+    @Benchmark
+    public List<Flashcard> searchText() {
+        return resources.target("/flashcards/search").queryParam("q", "meaning term")
+            .request().get(FLASHCARD_LIST);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<Flashcard> searchCategory() {
+        return resources.target("/flashcards/search").queryParam("category", "Biology").queryParam("limit", 100)
+            .request().get(FLASHCARD_LIST);
+    }
+
+    @Benchmark
+    public Flashcard createFlashcard() {
+        return resources.target("/flashcards").queryParam("allowDuplicates", true).request()
+            .post(Entity.entity(newFlashcard, MediaType.APPLICATION_JSON_TYPE), Flashcard.class);
+    }
+}
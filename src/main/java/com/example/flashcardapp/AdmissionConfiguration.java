@@ -0,0 +1,112 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for per-client rate limiting and the concurrency bulkheads.
+ */
+public class AdmissionConfiguration {
+
+    // 1. Sustained requests per second allowed to each client
+    @DecimalMin("0.001")
+    private double requestsPerSecond = 50;
+
+    // 2. Requests a client may make at once above its sustained rate
+    @Min(1)
+    private int burst = 100;
+
+    // 3. Requests to cheap endpoints (single flashcards, study sessions) served at once
+    @Min(1)
+    private int cheapConcurrency = 64;
+
+    // 4. Requests to expensive endpoints (lists, search, export, import) served at once
+    @Min(1)
+    private int expensiveConcurrency = 8;
+
+    // 5. Longest a request may wait for its bulkhead before it is shed with 503
+    @NotNull
+    private Duration maxQueueDelay = Duration.milliseconds(100);
+
+    // 6. Header carrying the client address behind a proxy, e.g. X-Forwarded-For (Optional)
+    private String clientIpHeader;
+
+    // 7. Proxies in front of the server appending to clientIpHeader; the client address is
+    //    the entry this many from the right, as entries further left are the client's own
+    @Min(1)
+    private int trustedProxies = 1;
+
+    @JsonProperty
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    @JsonProperty
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    @JsonProperty
+    public int getBurst() {
+        return burst;
+    }
+
+    @JsonProperty
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    @JsonProperty
+    public int getCheapConcurrency() {
+        return cheapConcurrency;
+    }
+
+    @JsonProperty
+    public void setCheapConcurrency(int cheapConcurrency) {
+        this.cheapConcurrency = cheapConcurrency;
+    }
+
+    @JsonProperty
+    public int getExpensiveConcurrency() {
+        return expensiveConcurrency;
+    }
+
+    @JsonProperty
+    public void setExpensiveConcurrency(int expensiveConcurrency) {
+        this.expensiveConcurrency = expensiveConcurrency;
+    }
+
+    @JsonProperty
+    public Duration getMaxQueueDelay() {
+        return maxQueueDelay;
+    }
+
+    @JsonProperty
+    public void setMaxQueueDelay(Duration maxQueueDelay) {
+        this.maxQueueDelay = maxQueueDelay;
+    }
+
+    @JsonProperty
+    public String getClientIpHeader() {
+        return clientIpHeader;
+    }
+
+    @JsonProperty
+    public void setClientIpHeader(String clientIpHeader) {
+        this.clientIpHeader = clientIpHeader;
+    }
+
+    @JsonProperty
+    public int getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    @JsonProperty
+    public void setTrustedProxies(int trustedProxies) {
+        this.trustedProxies = trustedProxies;
+    }
+}
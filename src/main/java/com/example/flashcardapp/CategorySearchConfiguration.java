@@ -0,0 +1,44 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for sharing category search results between requests.
+ */
+public class CategorySearchConfiguration {
+
+    // 1. How long a search result is served to later requests; 0 only shares a result
+    //    between requests made while it is being loaded
+    @NotNull
+    private Duration resultTtl = Duration.seconds(2);
+
+    // 2. Search results kept at most
+    @Min(1)
+    @Max(1_000_000)
+    private int maxResults = 10_000;
+
+    @JsonProperty
+    public Duration getResultTtl() {
+        return resultTtl;
+    }
+
+    @JsonProperty
+    public void setResultTtl(Duration resultTtl) {
+        this.resultTtl = resultTtl;
+    }
+
+    @JsonProperty
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    @JsonProperty
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+
+/**
+ * Settings for near-duplicate detection on create and import.
+ */
+public class DuplicateDetectionConfiguration {
+
+    // 1. Estimated similarity from which existing flashcards are reported as possible duplicates
+    @DecimalMin("0.3")
+    @DecimalMax("1.0")
+    private double candidateThreshold = 0.7;
+
+    // 2. Estimated similarity from which a new flashcard is rejected as a duplicate
+    @DecimalMin("0.3")
+    @DecimalMax("1.0")
+    private double rejectThreshold = 0.9;
+
+    @JsonProperty
+    public double getCandidateThreshold() {
+        return candidateThreshold;
+    }
+
+    @JsonProperty
+    public void setCandidateThreshold(double candidateThreshold) {
+        this.candidateThreshold = candidateThreshold;
+    }
+
+    @JsonProperty
+    public double getRejectThreshold() {
+        return rejectThreshold;
+    }
+
+    @JsonProperty
+    public void setRejectThreshold(double rejectThreshold) {
+        this.rejectThreshold = rejectThreshold;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings choosing which threads wait for the flashcard store while requests are served.
+ */
+public class ExecutionConfiguration {
+
+    public enum Mode {
+        // Store calls run on the Jetty thread serving the request
+        BLOCKING,
+        // Store calls run on a bounded executor and the Jetty thread is freed meanwhile
+        ASYNC
+    }
+
+    // 1. Whether flashcard requests block their Jetty thread on the store
+    @NotNull
+    private Mode mode = Mode.BLOCKING;
+
+    // 2. Store calls running at once (async only); 0 matches the connection pool's maxSize
+    @Min(0)
+    @Max(4096)
+    private int threads = 0;
+
+    // 3. Store calls waiting for a thread at most (async only); requests beyond it get 503
+    @Min(0)
+    private int maxQueued = 1000;
+
+    // 4. Longest a request waits for its store call (async only); it then gets 503 and a
+    //    call still queued never runs
+    @NotNull
+    private Duration timeout = Duration.seconds(10);
+
+    // 5. Run store calls on virtual threads when the JDK has them (async only)
+    private boolean virtualThreads = true;
+
+    @JsonProperty
+    public Mode getMode() {
+        return mode;
+    }
+
+    @JsonProperty
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    @JsonProperty
+    public int getThreads() {
+        return threads;
+    }
+
+    @JsonProperty
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @JsonProperty
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    @JsonProperty
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    @JsonProperty
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    @JsonProperty
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @JsonProperty
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @JsonProperty
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.flashcardapp;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.util.Duration;
 import javax.validation.Valid;
 import javax.validation.constraints.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class FlashcardAppConfiguration extends Configuration {
@@ -54,6 +57,242 @@ public class FlashcardAppConfiguration extends Configuration {
         this.swagger = swagger;
     }
 
-    // 4. Additional Custom Configurations (If Any)
+    // 4. Bulk Import Configuration
+    @Min(1)
+    @Max(10000)
+    private int importChunkSize = 1000;
+
+    @JsonProperty("importChunkSize")
+    public int getImportChunkSize() {
+        return importChunkSize;
+    }
+
+    @JsonProperty("importChunkSize")
+    public void setImportChunkSize(int importChunkSize) {
+        this.importChunkSize = importChunkSize;
+    }
+
+    // 5. Flashcard Cache Configuration (omit to disable the cache)
+    private CaffeineSpec flashcardCache = CaffeineSpec.parse("maximumSize=10000,expireAfterWrite=5m");
+
+    @JsonProperty("flashcardCache")
+    public CaffeineSpec getFlashcardCache() {
+        return flashcardCache;
+    }
+
+    @JsonProperty("flashcardCache")
+    public void setFlashcardCache(CaffeineSpec flashcardCache) {
+        this.flashcardCache = flashcardCache;
+    }
+
+    // 6. Study Scheduler Configuration (how many users' queues stay in memory)
+    @NotNull
+    private CaffeineSpec studyQueues = CaffeineSpec.parse("maximumSize=10000,expireAfterAccess=30m");
+
+    @JsonProperty("studyQueues")
+    public CaffeineSpec getStudyQueues() {
+        return studyQueues;
+    }
+
+    @JsonProperty("studyQueues")
+    public void setStudyQueues(CaffeineSpec studyQueues) {
+        this.studyQueues = studyQueues;
+    }
+
+    // 7. Review Event Writer Configuration
+    @Valid
+    @NotNull
+    private ReviewEventsConfiguration reviewEvents = new ReviewEventsConfiguration();
+
+    @JsonProperty("reviewEvents")
+    public ReviewEventsConfiguration getReviewEvents() {
+        return reviewEvents;
+    }
+
+    @JsonProperty("reviewEvents")
+    public void setReviewEvents(ReviewEventsConfiguration reviewEvents) {
+        this.reviewEvents = reviewEvents;
+    }
+
+    // 8. Slow Query Log Threshold
+    @NotNull
+    private Duration slowQueryThreshold = Duration.milliseconds(200);
+
+    @JsonProperty("slowQueryThreshold")
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    @JsonProperty("slowQueryThreshold")
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    // 9. Change Feed Configuration
+    @Valid
+    @NotNull
+    private FlashcardStreamConfiguration flashcardStream = new FlashcardStreamConfiguration();
+
+    @JsonProperty("flashcardStream")
+    public FlashcardStreamConfiguration getFlashcardStream() {
+        return flashcardStream;
+    }
+
+    @JsonProperty("flashcardStream")
+    public void setFlashcardStream(FlashcardStreamConfiguration flashcardStream) {
+        this.flashcardStream = flashcardStream;
+    }
+
+    // 10. Lookup Batching Configuration
+    @Valid
+    @NotNull
+    private LookupBatchingConfiguration lookupBatching = new LookupBatchingConfiguration();
+
+    @JsonProperty("lookupBatching")
+    public LookupBatchingConfiguration getLookupBatching() {
+        return lookupBatching;
+    }
+
+    @JsonProperty("lookupBatching")
+    public void setLookupBatching(LookupBatchingConfiguration lookupBatching) {
+        this.lookupBatching = lookupBatching;
+    }
+
+    // 11. Admission Control Configuration
+    @Valid
+    @NotNull
+    private AdmissionConfiguration admission = new AdmissionConfiguration();
+
+    @JsonProperty("admission")
+    public AdmissionConfiguration getAdmission() {
+        return admission;
+    }
+
+    @JsonProperty("admission")
+    public void setAdmission(AdmissionConfiguration admission) {
+        this.admission = admission;
+    }
+
+    // 12. Read Replica Configuration (Optional; GET requests may be served by these)
+    @Valid
+    @NotNull
+    private List<DataSourceFactory> readReplicas = new ArrayList<>();
+
+    @JsonProperty("readReplicas")
+    public List<DataSourceFactory> getReadReplicas() {
+        return readReplicas;
+    }
+
+    @JsonProperty("readReplicas")
+    public void setReadReplicas(List<DataSourceFactory> readReplicas) {
+        this.readReplicas = readReplicas;
+    }
+
+    // 13. Replica Routing Configuration
+    @Valid
+    @NotNull
+    private ReplicaRoutingConfiguration replicaRouting = new ReplicaRoutingConfiguration();
+
+    @JsonProperty("replicaRouting")
+    public ReplicaRoutingConfiguration getReplicaRouting() {
+        return replicaRouting;
+    }
+
+    @JsonProperty("replicaRouting")
+    public void setReplicaRouting(ReplicaRoutingConfiguration replicaRouting) {
+        this.replicaRouting = replicaRouting;
+    }
+
+    // 14. Flashcard Store Configuration (MySQL by default, or an embedded memory-mapped log)
+    @Valid
+    @NotNull
+    private FlashcardStoreConfiguration flashcardStore = new FlashcardStoreConfiguration();
+
+    @JsonProperty("flashcardStore")
+    public FlashcardStoreConfiguration getFlashcardStore() {
+        return flashcardStore;
+    }
+
+    @JsonProperty("flashcardStore")
+    public void setFlashcardStore(FlashcardStoreConfiguration flashcardStore) {
+        this.flashcardStore = flashcardStore;
+    }
+
+    // 15. Load Test Configuration (used by the loadtest command only)
+    @Valid
+    @NotNull
+    private LoadTestConfiguration loadTest = new LoadTestConfiguration();
+
+    @JsonProperty("loadTest")
+    public LoadTestConfiguration getLoadTest() {
+        return loadTest;
+    }
+
+    @JsonProperty("loadTest")
+    public void setLoadTest(LoadTestConfiguration loadTest) {
+        this.loadTest = loadTest;
+    }
+
+    // 16. Duplicate Detection Configuration
+    @Valid
+    @NotNull
+    private DuplicateDetectionConfiguration duplicateDetection = new DuplicateDetectionConfiguration();
+
+    @JsonProperty("duplicateDetection")
+    public DuplicateDetectionConfiguration getDuplicateDetection() {
+        return duplicateDetection;
+    }
+
+    @JsonProperty("duplicateDetection")
+    public void setDuplicateDetection(DuplicateDetectionConfiguration duplicateDetection) {
+        this.duplicateDetection = duplicateDetection;
+    }
+
+    // 17. Shard Map (Optional; when set, flashcards are spread over these databases by owner)
+    @Valid
+    @NotNull
+    private List<ShardConfiguration> shards = new ArrayList<>();
+
+    @JsonProperty("shards")
+    public List<ShardConfiguration> getShards() {
+        return shards;
+    }
+
+    @JsonProperty("shards")
+    public void setShards(List<ShardConfiguration> shards) {
+        this.shards = shards;
+    }
+
+    // 18. Category Search Configuration
+    @Valid
+    @NotNull
+    private CategorySearchConfiguration categorySearch = new CategorySearchConfiguration();
+
+    @JsonProperty("categorySearch")
+    public CategorySearchConfiguration getCategorySearch() {
+        return categorySearch;
+    }
+
+    @JsonProperty("categorySearch")
+    public void setCategorySearch(CategorySearchConfiguration categorySearch) {
+        this.categorySearch = categorySearch;
+    }
+
+    // 19. Execution Configuration
+    @Valid
+    @NotNull
+    private ExecutionConfiguration execution = new ExecutionConfiguration();
+
+    @JsonProperty("execution")
+    public ExecutionConfiguration getExecution() {
+        return execution;
+    }
+
+    @JsonProperty("execution")
+    public void setExecution(ExecutionConfiguration execution) {
+        this.execution = execution;
+    }
+
+    // 20. Additional Custom Configurations (If Any)
     // Add other configuration sections here as needed
 }
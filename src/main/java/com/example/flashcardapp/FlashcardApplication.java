@@ -1,57 +1,197 @@
 package com.example.flashcardapp;
 
-import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.admission.AdmissionControlFeature;
+import com.example.flashcardapp.db.CachingFlashcardDAO;
 import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.db.QueryMetrics;
+import com.example.flashcardapp.db.ReplicaRoutingDataSource;
+import com.example.flashcardapp.db.ReviewScheduleDAO;
+import com.example.flashcardapp.loadtest.LoadTestCommand;
+import com.example.flashcardapp.resources.FlashcardImportResource;
+import com.example.flashcardapp.resources.FlashcardOwnerFilter;
 import com.example.flashcardapp.resources.FlashcardResource;
+import com.example.flashcardapp.resources.ReadYourWritesFilter;
+import com.example.flashcardapp.resources.StoreExecutor;
+import com.example.flashcardapp.resources.StudyResource;
+import com.example.flashcardapp.resources.SuspendedRequestTimer;
+import com.example.flashcardapp.search.CategorySearchCache;
+import com.example.flashcardapp.search.DuplicateDetector;
+import com.example.flashcardapp.search.FlashcardIndex;
+import com.example.flashcardapp.search.FlashcardSampler;
+import com.example.flashcardapp.shard.RebalanceCommand;
+import com.example.flashcardapp.shard.ShardedFlashcardStore;
+import com.example.flashcardapp.snapshot.SnapshotCommand;
+import com.example.flashcardapp.store.MappedFlashcardStore;
+import com.example.flashcardapp.stream.FlashcardEventBroadcaster;
+import com.example.flashcardapp.stream.FlashcardEventStreamServlet;
+import com.example.flashcardapp.study.ReviewEventWriter;
+import com.example.flashcardapp.study.StudyScheduler;
 import io.dropwizard.Application;
-import io.dropwizard.db.DataSourceFactory;
-import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import io.swagger.v3.jaxrs2.integration.resources.OpenApiResource;
 
-public class FlashcardApplication extends Application<FlashcardAppConfiguration> {
+import javax.servlet.ServletRegistration;
+import javax.sql.DataSource;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
 
-    // 1. Hibernate Bundle for managing database interactions
-    private final HibernateBundle<FlashcardAppConfiguration> hibernateBundle =
-        new HibernateBundle<FlashcardAppConfiguration>(Flashcard.class) {
-            @Override
-            public DataSourceFactory getDataSourceFactory(FlashcardAppConfiguration configuration) {
-                return configuration.getDataSourceFactory();
-            }
-        };
+public class FlashcardApplication extends Application<FlashcardAppConfiguration> {
 
-    // 2. Main method to launch the application
+    // 1. Main method to launch the application
     public static void main(final String[] args) throws Exception {
         new FlashcardApplication().run(args);
     }
 
-    // 3. Application name
+    // 2. Application name
     @Override
     public String getName() {
         return "flashcard-app";
     }
 
-    // 4. Initialize method to add bundles and perform setup before the application runs
+    // 3. Initialize method to add bundles and perform setup before the application runs
     @Override
     public void initialize(final Bootstrap<FlashcardAppConfiguration> bootstrap) {
-        // Adding Hibernate bundle to manage ORM
-        bootstrap.addBundle(hibernateBundle);
-
         // Adding Swagger/OpenAPI support for API documentation
-        bootstrap.addBundle(new io.dropwizard.servlets.assets.AssetsBundle("/swagger-ui", "/swagger-ui", "index.html"));
+        bootstrap.addBundle(new io.dropwizard.assets.AssetsBundle("/swagger-ui", "/swagger-ui", "index.html"));
+        // Load tests a running instance: java -jar flashcard-app.jar loadtest config.yml
+        bootstrap.addCommand(new LoadTestCommand());
+        // Backs up or restores the deck offline: java -jar flashcard-app.jar snapshot export|import FILE config.yml
+        bootstrap.addCommand(new SnapshotCommand());
+        // Moves flashcards to their owners' shards: java -jar flashcard-app.jar rebalance [--user ID] config.yml
+        bootstrap.addCommand(new RebalanceCommand());
     }
 
-    // 5. Run method to configure the environment and register resources
+    // 4. Run method to configure the environment and register resources
     @Override
     public void run(final FlashcardAppConfiguration configuration,
                     final Environment environment) {
-        // Setting up DAO (Data Access Object) with Hibernate session factory
-        final FlashcardDAO flashcardDAO = new FlashcardDAO(hibernateBundle.getSessionFactory());
+        // Keeping flashcards in MySQL, or in an embedded memory-mapped log for deployments
+        // without a database server
+        final FlashcardStoreConfiguration storeConfiguration = configuration.getFlashcardStore();
+        final boolean database = storeConfiguration.getType() == FlashcardStoreConfiguration.Type.DATABASE;
+        final FlashcardStore flashcardStore;
+        final ManagedDataSource dataSource;
+        final QueryMetrics queryMetrics;
+        if (database && !configuration.getShards().isEmpty()) {
+            // Spreading flashcards over the shard databases by owner; each request acts for
+            // the user named by its X-User-Id header. Review schedules are not sharded, so
+            // there are no study endpoints in this mode
+            queryMetrics = new QueryMetrics(environment.metrics(), configuration.getSlowQueryThreshold());
+            final ShardedFlashcardStore shardedStore = ShardedFlashcardStore.build(configuration.getShards(),
+                environment.metrics(), queryMetrics, environment.lifecycle()::manage);
+            environment.lifecycle().manage(shardedStore);
+            environment.jersey().register(new FlashcardOwnerFilter());
+            flashcardStore = shardedStore;
+            dataSource = null;
+        } else if (database) {
+            // Building the pooled data source; its lifecycle is tied to the server's
+            dataSource = configuration.getDataSourceFactory().build(environment.metrics(), "flashcards");
+            environment.lifecycle().manage(dataSource);
+
+            // Timing every DAO query, logging those slower than the configured threshold
+            queryMetrics = new QueryMetrics(environment.metrics(), configuration.getSlowQueryThreshold());
+
+            flashcardStore = buildFlashcardDAO(configuration, environment, dataSource, queryMetrics);
+        } else {
+            // Recovering the log, then compacting it in the background
+            final MappedFlashcardStore mappedStore = new MappedFlashcardStore(
+                Paths.get(storeConfiguration.getDirectory()), storeConfiguration.getCompactionInterval(),
+                storeConfiguration.getCompactionThreshold(), environment.metrics());
+            environment.lifecycle().manage(mappedStore);
+            flashcardStore = mappedStore;
+            dataSource = null;
+            queryMetrics = null;
+        }
+
+        // Building the full-text index, the quiz sampler and the duplicate detector from the
+        // store before the server accepts requests, then keeping them current from the
+        // store's writes
+        final FlashcardIndex flashcardIndex = new FlashcardIndex();
+        final FlashcardSampler flashcardSampler = new FlashcardSampler();
+        final DuplicateDetectionConfiguration duplicateDetection = configuration.getDuplicateDetection();
+        final DuplicateDetector duplicateDetector = new DuplicateDetector(
+            duplicateDetection.getCandidateThreshold(), duplicateDetection.getRejectThreshold());
+        flashcardStore.addListener(flashcardIndex);
+        flashcardStore.addListener(flashcardSampler);
+        flashcardStore.addListener(duplicateDetector);
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+                flashcardStore.streamAll(flashcard -> {
+                    flashcardIndex.add(flashcard);
+                    flashcardSampler.add(flashcard);
+                    duplicateDetector.add(flashcard);
+                });
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+
+        // Rate limiting each client and bounding how many cheap and expensive requests are
+        // served at once; resources opt in with @AdmissionControlled
+        final AdmissionConfiguration admission = configuration.getAdmission();
+        environment.jersey().register(new AdmissionControlFeature(admission.getRequestsPerSecond(),
+            admission.getBurst(), admission.getCheapConcurrency(), admission.getExpensiveConcurrency(),
+            admission.getMaxQueueDelay(), admission.getClientIpHeader(), admission.getTrustedProxies(),
+            environment.metrics()));
+
+        // Sharing each category search page between the requests for it, kept current from
+        // the store's writes
+        final CategorySearchConfiguration categorySearch = configuration.getCategorySearch();
+        final CategorySearchCache categorySearchCache = new CategorySearchCache(environment.getObjectMapper(),
+            categorySearch.getResultTtl(), categorySearch.getMaxResults(), environment.metrics());
+        flashcardStore.addListener(categorySearchCache);
+
+        // Running the flashcard endpoints' store calls on the Jetty threads, or on an executor
+        // sized to the connection pool so that Jetty threads are not held while they wait, and
+        // timing the requests they suspend until their response has been written
+        final StoreExecutor storeExecutor = buildStoreExecutor(configuration, environment);
+        environment.jersey().register(new SuspendedRequestTimer(environment.metrics()));
 
         // Registering RESTful resources with Jersey
-        environment.jersey().register(new FlashcardResource(flashcardDAO));
+        environment.jersey().register(new FlashcardResource(flashcardStore, flashcardIndex, flashcardSampler,
+            duplicateDetector, categorySearchCache, storeExecutor));
+        environment.jersey().register(new FlashcardImportResource(flashcardStore, environment.getObjectMapper(),
+            environment.getValidator(), configuration.getImportChunkSize(), duplicateDetector));
+
+        // Pushing committed changes to Server-Sent Events subscribers; streams are served
+        // by an asynchronous servlet so that idle subscribers hold no thread
+        final FlashcardStreamConfiguration flashcardStream = configuration.getFlashcardStream();
+        final FlashcardEventBroadcaster broadcaster = new FlashcardEventBroadcaster(environment.getObjectMapper(),
+            flashcardStream.getSubscriberBufferSize(), flashcardStream.getHeartbeatInterval(), environment.metrics());
+        flashcardStore.addListener(broadcaster);
+        environment.lifecycle().manage(broadcaster);
+        final ServletRegistration.Dynamic streamServlet =
+            environment.servlets().addServlet("flashcard-stream", new FlashcardEventStreamServlet(broadcaster));
+        streamServlet.setAsyncSupported(true);
+        streamServlet.addMapping("/flashcards/stream");
+
+        // Setting up the spaced-repetition scheduler and its study endpoints; reviews are
+        // persisted by a writer that group-commits them and drains on shutdown. Review
+        // schedules are kept in a single MySQL database, so there are no study endpoints
+        // without one
+        if (dataSource != null) {
+            final ReviewScheduleDAO reviewScheduleDAO = new ReviewScheduleDAO(dataSource, queryMetrics);
+            final ReviewEventsConfiguration reviewEvents = configuration.getReviewEvents();
+            final ReviewEventWriter reviewEventWriter = new ReviewEventWriter(reviewScheduleDAO,
+                reviewEvents.getQueueCapacity(), reviewEvents.getMaxBatchSize(),
+                reviewEvents.getMaxBatchDelay(), environment.metrics());
+            environment.lifecycle().manage(reviewEventWriter);
+            environment.healthChecks().register("review-events", reviewEventWriter.healthCheck());
+            final StudyScheduler studyScheduler = new StudyScheduler(flashcardStore, reviewScheduleDAO,
+                reviewEventWriter, Clock.systemUTC(), configuration.getStudyQueues());
+            flashcardStore.addListener(studyScheduler);
+            environment.jersey().register(new StudyResource(studyScheduler, flashcardStore));
+        }
 
         // Enabling role-based access control features
         environment.jersey().register(RolesAllowedDynamicFeature.class);
@@ -62,4 +202,77 @@ public class FlashcardApplication extends Application<FlashcardAppConfiguration>
         // Additional configurations (e.g., authentication filters) can be added here
     }
 
+    // 5. Builds the DAO over MySQL, with read replicas, caching and lookup batching as configured
+    private FlashcardDAO buildFlashcardDAO(final FlashcardAppConfiguration configuration,
+                                           final Environment environment,
+                                           final ManagedDataSource dataSource,
+                                           final QueryMetrics queryMetrics) {
+        // Sending GET requests' reads to the read replicas, when there are any, except for
+        // clients that wrote within the read-your-writes window
+        final DataSource readDataSource;
+        final ReplicaRoutingConfiguration replicaRouting = configuration.getReplicaRouting();
+        if (configuration.getReadReplicas().isEmpty()) {
+            readDataSource = dataSource;
+        } else {
+            final List<ManagedDataSource> replicas = new ArrayList<>();
+            for (int i = 0; i < configuration.getReadReplicas().size(); i++) {
+                final ManagedDataSource replica = configuration.getReadReplicas().get(i)
+                    .build(environment.metrics(), "flashcards-replica-" + i);
+                environment.lifecycle().manage(replica);
+                replicas.add(replica);
+            }
+            final ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(dataSource, replicas,
+                replicaRouting.getHealthCheckInterval(), environment.metrics());
+            environment.lifecycle().manage(routingDataSource);
+            environment.jersey().register(new ReadYourWritesFilter(replicaRouting.getReadYourWritesWindow()));
+            readDataSource = routingDataSource;
+        }
+
+        // Setting up DAO (Data Access Object) on top of the connection pool,
+        // with a read-through cache for single flashcard lookups when configured
+        final FlashcardDAO flashcardDAO;
+        if (configuration.getFlashcardCache() != null) {
+            final CachingFlashcardDAO cachingDAO =
+                new CachingFlashcardDAO(dataSource, readDataSource, queryMetrics, configuration.getFlashcardCache());
+            cachingDAO.registerMetrics(environment.metrics());
+            flashcardDAO = cachingDAO;
+        } else {
+            flashcardDAO = new FlashcardDAO(dataSource, readDataSource, queryMetrics);
+        }
+
+        // Coalescing concurrent single-flashcard lookups (cache misses, when cached) into one query
+        final LookupBatchingConfiguration lookupBatching = configuration.getLookupBatching();
+        if (lookupBatching.getWindow().toNanoseconds() > 0) {
+            flashcardDAO.batchLookups(lookupBatching.getWindow(), lookupBatching.getMaxBatchSize(),
+                environment.metrics());
+        }
+
+        return flashcardDAO;
+    }
+
+    // 6. Builds the executor of store calls for the configured execution mode
+    private StoreExecutor buildStoreExecutor(final FlashcardAppConfiguration configuration,
+                                             final Environment environment) {
+        final ExecutionConfiguration execution = configuration.getExecution();
+        if (execution.getMode() == ExecutionConfiguration.Mode.BLOCKING) {
+            return StoreExecutor.blocking();
+        }
+        int threads = execution.getThreads();
+        if (threads == 0) {
+            if (configuration.getFlashcardStore().getType() == FlashcardStoreConfiguration.Type.MAPPED) {
+                threads = Runtime.getRuntime().availableProcessors();
+            } else if (configuration.getShards().isEmpty()) {
+                threads = configuration.getDataSourceFactory().getMaxSize();
+            } else {
+                for (final ShardConfiguration shard : configuration.getShards()) {
+                    threads += shard.getDatabase().getMaxSize();
+                }
+            }
+        }
+        final StoreExecutor storeExecutor = new StoreExecutor(threads, execution.getMaxQueued(),
+            execution.getTimeout(), execution.isVirtualThreads(), environment.metrics());
+        environment.lifecycle().manage(storeExecutor);
+        return storeExecutor;
+    }
+
 }
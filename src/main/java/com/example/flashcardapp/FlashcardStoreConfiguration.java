@@ -0,0 +1,79 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings choosing where flashcards are kept.
+ */
+public class FlashcardStoreConfiguration {
+
+    public enum Type {
+        // The MySQL database configured under database
+        DATABASE,
+        // An embedded memory-mapped log, for running without a database server
+        MAPPED
+    }
+
+    // 1. Which store keeps the flashcards
+    @NotNull
+    private Type type = Type.DATABASE;
+
+    // 2. Directory of the memory-mapped log (mapped only)
+    @NotEmpty
+    private String directory = "data";
+
+    // 3. How often the log is checked for compaction (mapped only)
+    @NotNull
+    private Duration compactionInterval = Duration.minutes(1);
+
+    // 4. Share of the log taken by overwritten and deleted records that triggers a compaction (mapped only)
+    @DecimalMin("0.1")
+    @DecimalMax("0.9")
+    private double compactionThreshold = 0.5;
+
+    @JsonProperty
+    public Type getType() {
+        return type;
+    }
+
+    @JsonProperty
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    @JsonProperty
+    public String getDirectory() {
+        return directory;
+    }
+
+    @JsonProperty
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @JsonProperty
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    @JsonProperty
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    @JsonProperty
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    @JsonProperty
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+}
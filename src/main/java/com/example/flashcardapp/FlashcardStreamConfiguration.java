@@ -0,0 +1,41 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for the Server-Sent Events change feed.
+ */
+public class FlashcardStreamConfiguration {
+
+    // 1. Events buffered per subscriber before a slow subscriber is disconnected
+    @Min(1)
+    private int subscriberBufferSize = 256;
+
+    // 2. How often idle streams get a comment line; keep below the connector's idle timeout
+    @NotNull
+    private Duration heartbeatInterval = Duration.seconds(15);
+
+    @JsonProperty
+    public int getSubscriberBufferSize() {
+        return subscriberBufferSize;
+    }
+
+    @JsonProperty
+    public void setSubscriberBufferSize(int subscriberBufferSize) {
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    @JsonProperty
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    @JsonProperty
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Settings for signing and checking the JSON Web Tokens of authenticated requests.
+ */
+public class JwtConfiguration {
+
+    // 1. Key the tokens are signed with
+    private String secret;
+
+    // 2. Issuer named in, and required of, every token
+    private String issuer = "flashcard-app";
+
+    // 3. How long a token is valid after it is issued
+    @Min(1)
+    private int expirationMinutes = 60;
+
+    @JsonProperty
+    public String getSecret() {
+        return secret;
+    }
+
+    @JsonProperty
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    @JsonProperty
+    public String getIssuer() {
+        return issuer;
+    }
+
+    @JsonProperty
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    @JsonProperty("expiration_minutes")
+    public int getExpirationMinutes() {
+        return expirationMinutes;
+    }
+
+    @JsonProperty("expiration_minutes")
+    public void setExpirationMinutes(int expirationMinutes) {
+        this.expirationMinutes = expirationMinutes;
+    }
+}
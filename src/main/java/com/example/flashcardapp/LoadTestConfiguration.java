@@ -0,0 +1,141 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the {@code loadtest} command.
+ */
+public class LoadTestConfiguration {
+
+    // 1. Where the service under test is listening, including any root path
+    @NotEmpty
+    private String baseUrl = "http://localhost:8080";
+
+    // 2. Flashcards seeded before the run, in a category of their own
+    @Min(1)
+    private int deckSize = 1000;
+
+    // 3. Arrival rate requests are sent at, whether or not earlier ones have been answered
+    @DecimalMin("0.001")
+    private double requestsPerSecond = 100;
+
+    // 4. How long requests are sent for, after the warmup
+    @NotNull
+    private Duration duration = Duration.seconds(60);
+
+    // 5. How long requests are sent for before they are measured
+    @NotNull
+    private Duration warmup = Duration.seconds(10);
+
+    // 6. Requests waiting for an answer at once; their latency counts the wait for a slot
+    @Min(1)
+    private int maxInFlight = 256;
+
+    // 7. Longest a request may take before it is counted as failed
+    @NotNull
+    private Duration requestTimeout = Duration.seconds(10);
+
+    // 8. Relative weight of each endpoint in the mix (getById, list, search, random, categories, create, update)
+    @NotEmpty
+    private Map<String, Integer> mix = defaultMix();
+
+    private static Map<String, Integer> defaultMix() {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        mix.put("getById", 60);
+        mix.put("list", 10);
+        mix.put("search", 10);
+        mix.put("random", 5);
+        mix.put("categories", 5);
+        mix.put("create", 5);
+        mix.put("update", 5);
+        return mix;
+    }
+
+    @JsonProperty
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @JsonProperty
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    @JsonProperty
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    @JsonProperty
+    public void setDeckSize(int deckSize) {
+        this.deckSize = deckSize;
+    }
+
+    @JsonProperty
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    @JsonProperty
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    @JsonProperty
+    public Duration getDuration() {
+        return duration;
+    }
+
+    @JsonProperty
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    @JsonProperty
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    @JsonProperty
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    @JsonProperty
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @JsonProperty
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    @JsonProperty
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    @JsonProperty
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @JsonProperty
+    public Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    @JsonProperty
+    public void setMix(Map<String, Integer> mix) {
+        this.mix = mix;
+    }
+}
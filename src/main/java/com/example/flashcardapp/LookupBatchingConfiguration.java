@@ -0,0 +1,43 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for coalescing concurrent single-flashcard lookups into one query.
+ */
+public class LookupBatchingConfiguration {
+
+    // 1. Longest a lookup waits for others to join its query; 0 disables batching
+    @NotNull
+    private Duration window = Duration.milliseconds(2);
+
+    // 2. Flashcards loaded per query at most; a full batch is loaded without waiting
+    @Min(1)
+    @Max(1000)
+    private int maxBatchSize = 200;
+
+    @JsonProperty
+    public Duration getWindow() {
+        return window;
+    }
+
+    @JsonProperty
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    @JsonProperty
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @JsonProperty
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for sending reads to the read replicas.
+ */
+public class ReplicaRoutingConfiguration {
+
+    // 1. How long after a write its client's reads go to the primary; cover the usual replication lag
+    @NotNull
+    private Duration readYourWritesWindow = Duration.seconds(5);
+
+    // 2. How often every replica is checked, to take it out of or put it back in rotation
+    @NotNull
+    private Duration healthCheckInterval = Duration.seconds(5);
+
+    @JsonProperty
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    @JsonProperty
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    @JsonProperty
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    @JsonProperty
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+}
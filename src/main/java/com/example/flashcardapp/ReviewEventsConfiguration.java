@@ -0,0 +1,57 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Settings for the asynchronous, group-committing review event writer.
+ */
+public class ReviewEventsConfiguration {
+
+    // 1. Events that may wait to be written before reviews are refused with 429
+    @Min(1)
+    private int queueCapacity = 100_000;
+
+    // 2. Events committed per transaction at most
+    @Min(1)
+    @Max(10_000)
+    private int maxBatchSize = 500;
+
+    // 3. Longest an event waits for its batch to fill up
+    @NotNull
+    private Duration maxBatchDelay = Duration.milliseconds(10);
+
+    @JsonProperty
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @JsonProperty
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @JsonProperty
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @JsonProperty
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @JsonProperty
+    public Duration getMaxBatchDelay() {
+        return maxBatchDelay;
+    }
+
+    @JsonProperty
+    public void setMaxBatchDelay(Duration maxBatchDelay) {
+        this.maxBatchDelay = maxBatchDelay;
+    }
+}
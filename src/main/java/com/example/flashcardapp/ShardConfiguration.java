@@ -0,0 +1,46 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.db.DataSourceFactory;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * One MySQL database holding a share of the flashcards, by owner.
+ */
+public class ShardConfiguration {
+
+    // 1. Stable number of the shard; it places the shard on the hash ring and is the
+    //    remainder of every id the shard hands out, so never renumber a shard
+    @Min(0)
+    @Max(63)
+    private int id;
+
+    // 2. Database of the shard
+    @Valid
+    @NotNull
+    private DataSourceFactory database = new DataSourceFactory();
+
+    @JsonProperty
+    public int getId() {
+        return id;
+    }
+
+    @JsonProperty
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @JsonProperty
+    public DataSourceFactory getDatabase() {
+        return database;
+    }
+
+    @JsonProperty
+    public void setDatabase(DataSourceFactory database) {
+        this.database = database;
+    }
+}
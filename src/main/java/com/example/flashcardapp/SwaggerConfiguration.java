@@ -0,0 +1,95 @@
+package com.example.flashcardapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings describing the API in its OpenAPI documentation.
+ */
+public class SwaggerConfiguration {
+
+    // 1. Package scanned for documented resources
+    private String resourcePackage = "com.example.flashcardapp.resources";
+
+    // 2. Title, version and description of the API
+    private String title;
+    private String version;
+    private String description;
+
+    // 3. Where the API is served
+    private List<String> schemes = new ArrayList<>();
+    private String basePath = "/";
+    private String host;
+
+    @JsonProperty
+    public String getResourcePackage() {
+        return resourcePackage;
+    }
+
+    @JsonProperty
+    public void setResourcePackage(String resourcePackage) {
+        this.resourcePackage = resourcePackage;
+    }
+
+    @JsonProperty
+    public String getTitle() {
+        return title;
+    }
+
+    @JsonProperty
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @JsonProperty
+    public String getVersion() {
+        return version;
+    }
+
+    @JsonProperty
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    @JsonProperty
+    public String getDescription() {
+        return description;
+    }
+
+    @JsonProperty
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    @JsonProperty
+    public List<String> getSchemes() {
+        return schemes;
+    }
+
+    @JsonProperty
+    public void setSchemes(List<String> schemes) {
+        this.schemes = schemes;
+    }
+
+    @JsonProperty
+    public String getBasePath() {
+        return basePath;
+    }
+
+    @JsonProperty
+    public void setBasePath(String basePath) {
+        this.basePath = basePath;
+    }
+
+    @JsonProperty
+    public String getHost() {
+        return host;
+    }
+
+    @JsonProperty
+    public void setHost(String host) {
+        this.host = host;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.flashcardapp.admission;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.dropwizard.util.Duration;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for resources marked {@link AdmissionControlled}.
+ *
+ * <p>Every client gets a token bucket, keyed on its authenticated principal or its
+ * address, so that one client looping on an endpoint is answered 429 once it exceeds
+ * its rate and burst, without affecting anyone else. Admitted requests then take a
+ * permit from the bulkhead for their cost: expensive endpoints share a small pool of
+ * permits, so a flood of scans cannot hold every worker thread and connection that
+ * cheap lookups need. A request that cannot get a permit within the queueing target is
+ * shed with 503 rather than queueing without bound. Permits are released once the
+ * response, including any streamed entity, has been written.</p>
+ */
+public class AdmissionControlFeature implements DynamicFeature, ApplicationEventListener {
+
+    private static final RequestEventListener RELEASE_PERMIT = event -> {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            Object permit = event.getContainerRequest().getProperty(AdmissionControlFilter.PERMIT_PROPERTY);
+            if (permit != null) {
+                event.getContainerRequest().removeProperty(AdmissionControlFilter.PERMIT_PROPERTY);
+                ((Semaphore) permit).release();
+            }
+        }
+    };
+
+    private final AdmissionControlFilter cheapFilter;
+    private final AdmissionControlFilter expensiveFilter;
+
+    /**
+     * @param requestsPerSecond    Sustained rate allowed to each client.
+     * @param burst                Requests a client may make at once above its rate.
+     * @param cheapConcurrency     Cheap requests served at once.
+     * @param expensiveConcurrency Expensive requests served at once.
+     * @param maxQueueDelay        Longest a request waits for a permit before it is shed.
+     * @param clientIpHeader       Header carrying the client address behind a proxy, or {@code null}.
+     * @param trustedProxies       Proxies in front of the server that append to {@code clientIpHeader}.
+     * @param metrics              Registry for the rejection meters and permit gauges.
+     */
+    public AdmissionControlFeature(double requestsPerSecond, int burst, int cheapConcurrency,
+                                   int expensiveConcurrency, Duration maxQueueDelay,
+                                   String clientIpHeader, int trustedProxies, MetricRegistry metrics) {
+        // Idle clients' buckets are full again after burst / rate seconds and can be dropped
+        long idleNanos = (long) Math.ceil(burst / requestsPerSecond * 1_000_000_000d);
+        Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .expireAfterAccess(Math.max(idleNanos, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS)
+            .maximumSize(1_000_000)
+            .build();
+        metrics.register(MetricRegistry.name(AdmissionControlFeature.class, "clients"),
+            (Gauge<Long>) buckets::estimatedSize);
+        this.cheapFilter = filter("cheap", cheapConcurrency, buckets, requestsPerSecond, burst,
+            clientIpHeader, trustedProxies, maxQueueDelay, metrics);
+        this.expensiveFilter = filter("expensive", expensiveConcurrency, buckets, requestsPerSecond, burst,
+            clientIpHeader, trustedProxies, maxQueueDelay, metrics);
+    }
+
+    private static AdmissionControlFilter filter(String name, int concurrency, Cache<String, TokenBucket> buckets,
+                                                 double requestsPerSecond, int burst, String clientIpHeader,
+                                                 int trustedProxies, Duration maxQueueDelay,
+                                                 MetricRegistry metrics) {
+        Semaphore bulkhead = new Semaphore(concurrency, true);
+        metrics.register(MetricRegistry.name(AdmissionControlFeature.class, name, "available-permits"),
+            (Gauge<Integer>) bulkhead::availablePermits);
+        return new AdmissionControlFilter(buckets, requestsPerSecond, burst, clientIpHeader, trustedProxies, bulkhead,
+            maxQueueDelay.toNanoseconds(),
+            metrics.meter(MetricRegistry.name(AdmissionControlFeature.class, "rate-limited")),
+            metrics.meter(MetricRegistry.name(AdmissionControlFeature.class, name, "shed")));
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        AdmissionControlled admission = resourceInfo.getResourceMethod().getAnnotation(AdmissionControlled.class);
+        if (admission == null) {
+            admission = resourceInfo.getResourceClass().getAnnotation(AdmissionControlled.class);
+        }
+        if (admission != null) {
+            context.register(admission.value() == AdmissionControlled.Cost.EXPENSIVE ? expensiveFilter : cheapFilter,
+                Priorities.AUTHENTICATION + 1);
+        }
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return RELEASE_PERMIT;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.flashcardapp.admission;
+
+import com.codahale.metrics.Meter;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.dropwizard.jersey.errors.ErrorMessage;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.security.Principal;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits a request if its client is within its rate and a permit of the request's
+ * bulkhead becomes free within the queueing target; otherwise answers 429 or 503 with
+ * {@code Retry-After}. The permit is released by {@link AdmissionControlFeature} once
+ * the response has been written.
+ */
+final class AdmissionControlFilter implements ContainerRequestFilter {
+
+    static final String PERMIT_PROPERTY = AdmissionControlFilter.class.getName() + ".permit";
+
+    private final Cache<String, TokenBucket> buckets;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final String clientIpHeader;
+    private final int trustedProxies;
+    private final Semaphore bulkhead;
+    private final long maxQueueDelayNanos;
+    private final Meter rateLimited;
+    private final Meter shed;
+
+    @Context
+    private HttpServletRequest servletRequest;
+
+    AdmissionControlFilter(Cache<String, TokenBucket> buckets, double requestsPerSecond, int burst,
+                           String clientIpHeader, int trustedProxies, Semaphore bulkhead, long maxQueueDelayNanos,
+                           Meter rateLimited, Meter shed) {
+        this.buckets = buckets;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.clientIpHeader = clientIpHeader;
+        this.trustedProxies = trustedProxies;
+        this.bulkhead = bulkhead;
+        this.maxQueueDelayNanos = maxQueueDelayNanos;
+        this.rateLimited = rateLimited;
+        this.shed = shed;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(clientOf(request), client -> new TokenBucket(requestsPerSecond, burst, now));
+        long waitNanos = bucket.tryTake(now);
+        if (waitNanos > 0) {
+            rateLimited.mark();
+            request.abortWith(reject(Response.Status.TOO_MANY_REQUESTS, waitNanos, "Too many requests from this client."));
+            return;
+        }
+
+        boolean admitted;
+        try {
+            admitted = bulkhead.tryAcquire(maxQueueDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            shed.mark();
+            request.abortWith(reject(Response.Status.SERVICE_UNAVAILABLE, maxQueueDelayNanos, "Server is overloaded."));
+            return;
+        }
+        request.setProperty(PERMIT_PROPERTY, bulkhead);
+    }
+
+    /**
+     * Identifies the client by its authenticated principal, else by its address as
+     * reported by {@code clientIpHeader} when set, else by the connection's peer address.
+     *
+     * <p>Each proxy appends the address it received the request from to the header, and
+     * the client can put anything before those, so the client's address is the one the
+     * outermost of the {@code trustedProxies} proxies appended: that many entries from
+     * the right. A header with fewer entries names its leftmost.</p>
+     */
+    private String clientOf(ContainerRequestContext request) {
+        Principal principal = request.getSecurityContext() == null ? null : request.getSecurityContext().getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        if (clientIpHeader != null) {
+            String forwarded = request.getHeaderString(clientIpHeader);
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int end = forwarded.length();
+                int start = forwarded.lastIndexOf(',', end - 1) + 1;
+                for (int hop = 1; hop < trustedProxies && start > 0; hop++) {
+                    end = start - 1;
+                    start = forwarded.lastIndexOf(',', end - 1) + 1;
+                }
+                String address = forwarded.substring(start, end).trim();
+                if (!address.isEmpty()) {
+                    return "ip:" + address;
+                }
+            }
+        }
+        return "ip:" + (servletRequest == null ? "unknown" : servletRequest.getRemoteAddr());
+    }
+
+    private static Response reject(Response.Status status, long retryAfterNanos, String message) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999));
+        return Response.status(status)
+            .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(new ErrorMessage(status.getStatusCode(), message))
+            .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.flashcardapp.admission;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a resource class or method as subject to admission control, and says which
+ * bulkhead its requests are served under. An annotation on a method overrides the one
+ * on its class.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface AdmissionControlled {
+
+    Cost value() default Cost.CHEAP;
+
+    enum Cost {
+        /** Answered from a key lookup or in-memory state. */
+        CHEAP,
+        /** Scans, lists, searches and bulk writes, which hold a connection for longer. */
+        EXPENSIVE
+    }
+}
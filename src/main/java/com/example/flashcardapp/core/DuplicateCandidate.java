@@ -0,0 +1,27 @@
+package com.example.flashcardapp.core;
+
+/**
+ * A stored flashcard that is a likely near-duplicate of another, with the estimated
+ * similarity of their questions and answers.
+ */
+public class DuplicateCandidate {
+
+    // 1. ID of the stored flashcard
+    private final long id;
+
+    // 2. Estimated Jaccard similarity of the two flashcards' text, from 0 to 1
+    private final double similarity;
+
+    public DuplicateCandidate(long id, double similarity) {
+        this.id = id;
+        this.similarity = similarity;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+}
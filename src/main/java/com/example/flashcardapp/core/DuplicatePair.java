@@ -0,0 +1,34 @@
+package com.example.flashcardapp.core;
+
+/**
+ * Two stored flashcards that are likely near-duplicates of each other.
+ */
+public class DuplicatePair {
+
+    // 1. The lower of the two IDs
+    private final long firstId;
+
+    // 2. The higher of the two IDs
+    private final long secondId;
+
+    // 3. Estimated Jaccard similarity of the two flashcards' text, from 0 to 1
+    private final double similarity;
+
+    public DuplicatePair(long firstId, long secondId, double similarity) {
+        this.firstId = firstId;
+        this.secondId = secondId;
+        this.similarity = similarity;
+    }
+
+    public long getFirstId() {
+        return firstId;
+    }
+
+    public long getSecondId() {
+        return secondId;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.flashcardapp.core;
 
-import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
@@ -8,47 +7,44 @@ import java.time.LocalDateTime;
 /**
  * Represents a Flashcard entity in the Flashcard App.
  */
-@Entity
-@Table(name = "flashcards")
 public class Flashcard {
 
     // 1. Primary Key
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     // 2. Flashcard Question
-    @Column(name = "question", nullable = false, length = 255)
     @NotBlank(message = "Question cannot be blank")
     @Size(max = 255, message = "Question cannot exceed 255 characters")
     private String question;
 
     // 3. Flashcard Answer
-    @Column(name = "answer", nullable = false, length = 255)
     @NotBlank(message = "Answer cannot be blank")
     @Size(max = 255, message = "Answer cannot exceed 255 characters")
     private String answer;
 
     // 4. Flashcard Category (Optional)
-    @Column(name = "category", length = 100)
     @Size(max = 100, message = "Category cannot exceed 100 characters")
     private String category;
 
     // 5. Timestamp for Creation
-    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     // 6. Timestamp for Last Update
-    @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
-    // 7. Constructors
+    // 7. Version, incremented on every update, for optimistic locking
+    private long version;
+
+    // 8. Owner (Optional), the user whose shard holds the flashcard
+    private Long userId;
+
+    // 9. Constructors
 
     /**
-     * Default constructor required by Hibernate.
+     * Default constructor required by Jackson.
      */
     public Flashcard() {
-        // Hibernate requires a default constructor
+        // Jackson requires a default constructor
     }
 
     /**
@@ -64,13 +60,18 @@ public class Flashcard {
         this.category = category;
     }
 
-    // 8. Getters and Setters
+    // 10. Getters and Setters
 
     public Long getId() {
         return id;
     }
 
-    // No setter for 'id' as it's auto-generated
+    /**
+     * Sets the ID assigned by the database. Used by the data access layer.
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
 
     public String getQuestion() {
         return question;
@@ -100,34 +101,44 @@ public class Flashcard {
         return createdAt;
     }
 
-    // No setter for 'createdAt' as it's managed automatically
+    /**
+     * Sets the creation timestamp as stored in the database. Used by the data access layer.
+     */
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
 
     public LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
 
-    // No direct setter for 'updatedAt'; it's updated automatically
-
-    // 9. Lifecycle Callback Methods
-
     /**
-     * Sets the creation and update timestamps before persisting.
+     * Sets the last update timestamp as stored in the database. Used by the data access layer.
      */
-    @PrePersist
-    protected void onCreate() {
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getVersion() {
+        return version;
     }
 
     /**
-     * Updates the update timestamp before updating.
+     * Sets the version as stored in the database. Used by the data access layer.
      */
-    @PreUpdate
-    protected void onUpdate() {
-        this.updatedAt = LocalDateTime.now();
+    public void setVersion(long version) {
+        this.version = version;
     }
 
-    // 10. Overridden Methods
+    // 11. Overridden Methods
 
     @Override
     public String toString() {
@@ -138,6 +149,8 @@ public class Flashcard {
                 ", category='" + category + '\'' +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", version=" + version +
+                ", userId=" + userId +
                 '}';
     }
 
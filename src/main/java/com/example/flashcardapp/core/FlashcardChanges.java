@@ -0,0 +1,44 @@
+package com.example.flashcardapp.core;
+
+import java.util.List;
+
+/**
+ * One page of changes to the flashcard deck since a sync cursor.
+ */
+public class FlashcardChanges {
+
+    // 1. Flashcards created or updated since the cursor, in their current state
+    private final List<Flashcard> changed;
+
+    // 2. IDs of flashcards deleted since the cursor
+    private final List<Long> deleted;
+
+    // 3. Cursor to pass as 'since' for the next page or the next sync
+    private final long cursor;
+
+    // 4. Whether more changes follow this page
+    private final boolean hasMore;
+
+    public FlashcardChanges(List<Flashcard> changed, List<Long> deleted, long cursor, boolean hasMore) {
+        this.changed = changed;
+        this.deleted = deleted;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<Flashcard> getChanged() {
+        return changed;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.flashcardapp.core;
+
+import java.util.List;
+
+/**
+ * The result of looking up several flashcards by ID at once.
+ */
+public class FlashcardLookup {
+
+    // 1. Flashcards found, in the order their IDs were requested
+    private final List<Flashcard> flashcards;
+
+    // 2. Requested IDs with no flashcard, in the order they were requested
+    private final List<Long> missing;
+
+    public FlashcardLookup(List<Flashcard> flashcards, List<Long> missing) {
+        this.flashcards = flashcards;
+        this.missing = missing;
+    }
+
+    public List<Flashcard> getFlashcards() {
+        return flashcards;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
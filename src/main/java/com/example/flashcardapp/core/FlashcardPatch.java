@@ -0,0 +1,90 @@
+package com.example.flashcardapp.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.AssertTrue;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A JSON Merge Patch (RFC 7396) of a flashcard.
+ *
+ * <p>Only the members present in the document are changed: {@code question} and
+ * {@code answer} may be replaced, and {@code category} replaced or removed with
+ * {@code null}. The {@code version} member is not a change but the version of the
+ * flashcard the patch was made against; the patch only applies if the flashcard is
+ * still at that version.</p>
+ */
+public class FlashcardPatch {
+
+    // 1. Changed columns and their new values, in the order they appeared
+    private final Map<String, String> changes = new LinkedHashMap<>();
+
+    // 2. Version the patch was made against (Optional)
+    private Long version;
+
+    // 3. Getters and Setters
+
+    /**
+     * Returns the changed columns and their new values.
+     */
+    @JsonIgnore
+    public Map<String, String> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonProperty
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @JsonProperty
+    public void setQuestion(String question) {
+        changes.put("question", question);
+    }
+
+    @JsonProperty
+    public void setAnswer(String answer) {
+        changes.put("answer", answer);
+    }
+
+    @JsonProperty
+    public void setCategory(String category) {
+        changes.put("category", category);
+    }
+
+    // 4. Validation
+
+    @JsonIgnore
+    @AssertTrue(message = "Question cannot be blank or exceed 255 characters")
+    public boolean isQuestionValid() {
+        return isValidText("question", 255);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Answer cannot be blank or exceed 255 characters")
+    public boolean isAnswerValid() {
+        return isValidText("answer", 255);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Category cannot exceed 100 characters")
+    public boolean isCategoryValid() {
+        String category = changes.get("category");
+        return category == null || category.length() <= 100;
+    }
+
+    private boolean isValidText(String column, int maxLength) {
+        if (!changes.containsKey(column)) {
+            return true;
+        }
+        String value = changes.get(column);
+        return value != null && !value.isBlank() && value.length() <= maxLength;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.flashcardapp.core;
+
+import java.time.LocalDateTime;
+
+/**
+ * The version of a flashcard and when it was last modified, for answering conditional
+ * requests without loading the rest of the flashcard.
+ */
+public class FlashcardVersion {
+
+    // 1. Version, incremented on every update
+    private final long version;
+
+    // 2. Timestamp for Last Update
+    private final LocalDateTime updatedAt;
+
+    public FlashcardVersion(long version, LocalDateTime updatedAt) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.flashcardapp.core;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk flashcard import, reported chunk by chunk.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportReport {
+
+    // 1. Per-chunk results, in upload order
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    // 2. Set when the upload could not be read to the end
+    private String error;
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getInserted() {
+        return chunks.stream().mapToInt(Chunk::getInserted).sum();
+    }
+
+    public int getRejected() {
+        return chunks.stream().mapToInt(chunk -> chunk.getRejected().size()).sum();
+    }
+
+    /**
+     * Result of writing one chunk of the upload in a single JDBC batch.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Chunk {
+
+        private final int firstRow;
+        private int rows;
+        private int inserted;
+        private final List<RowError> rejected = new ArrayList<>();
+        private String error;
+
+        public Chunk(int firstRow) {
+            this.firstRow = firstRow;
+        }
+
+        /**
+         * @return Zero-based position of the chunk's first row in the upload.
+         */
+        public int getFirstRow() {
+            return firstRow;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public void setRows(int rows) {
+            this.rows = rows;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public void setInserted(int inserted) {
+            this.inserted = inserted;
+        }
+
+        public List<RowError> getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return Why the chunk's batch failed to write, if it did.
+         */
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * A single row that was rejected before reaching the database.
+     */
+    public static class RowError {
+
+        private final int row;
+        private final List<String> errors;
+
+        public RowError(int row, List<String> errors) {
+            this.row = row;
+            this.errors = errors;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+}
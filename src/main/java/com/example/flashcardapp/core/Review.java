@@ -0,0 +1,31 @@
+package com.example.flashcardapp.core;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * A user's grade for one study review of a flashcard.
+ */
+public class Review {
+
+    // 1. SM-2 Recall Quality
+    @Min(value = 0, message = "Grade must be between 0 and 5")
+    @Max(value = 5, message = "Grade must be between 0 and 5")
+    private int grade;
+
+    public Review() {
+        // Jackson requires a default constructor
+    }
+
+    public Review(int grade) {
+        this.grade = grade;
+    }
+
+    public int getGrade() {
+        return grade;
+    }
+
+    public void setGrade(int grade) {
+        this.grade = grade;
+    }
+}
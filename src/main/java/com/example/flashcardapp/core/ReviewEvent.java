@@ -0,0 +1,42 @@
+package com.example.flashcardapp.core;
+
+import java.time.Instant;
+
+/**
+ * One graded study review, together with the schedule it produced.
+ */
+public class ReviewEvent {
+
+    // 1. Review
+    private final int grade;
+    private final Instant reviewedAt;
+
+    // 2. Resulting Schedule
+    private final ReviewSchedule schedule;
+
+    public ReviewEvent(int grade, Instant reviewedAt, ReviewSchedule schedule) {
+        this.grade = grade;
+        this.reviewedAt = reviewedAt;
+        this.schedule = schedule;
+    }
+
+    public long getUserId() {
+        return schedule.getUserId();
+    }
+
+    public long getFlashcardId() {
+        return schedule.getFlashcardId();
+    }
+
+    public int getGrade() {
+        return grade;
+    }
+
+    public Instant getReviewedAt() {
+        return reviewedAt;
+    }
+
+    public ReviewSchedule getSchedule() {
+        return schedule;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.flashcardapp.core;
+
+import java.time.Instant;
+
+/**
+ * A user's SM-2 study state for one flashcard.
+ */
+public class ReviewSchedule {
+
+    /**
+     * Ease factor given to a flashcard before its first review.
+     */
+    public static final double INITIAL_EASE = 2.5;
+
+    /**
+     * Lowest ease factor SM-2 allows.
+     */
+    public static final double MINIMUM_EASE = 1.3;
+
+    // 1. Owner and Flashcard
+    private final long userId;
+    private final long flashcardId;
+
+    // 2. SM-2 State
+    private final double ease;
+    private final int intervalDays;
+    private final int repetitions;
+
+    // 3. Next Review
+    private final Instant dueAt;
+
+    public ReviewSchedule(long userId, long flashcardId, double ease, int intervalDays,
+                          int repetitions, Instant dueAt) {
+        this.userId = userId;
+        this.flashcardId = flashcardId;
+        this.ease = ease;
+        this.intervalDays = intervalDays;
+        this.repetitions = repetitions;
+        this.dueAt = dueAt;
+    }
+
+    /**
+     * Returns the schedule of a flashcard the user has not reviewed yet.
+     */
+    public static ReviewSchedule unreviewed(long userId, long flashcardId, Instant now) {
+        return new ReviewSchedule(userId, flashcardId, INITIAL_EASE, 0, 0, now);
+    }
+
+    /**
+     * Applies an SM-2 review with the given grade.
+     *
+     * @param grade Recall quality from 0 (blackout) to 5 (perfect).
+     * @param now   Time of the review.
+     * @return The schedule after the review.
+     */
+    public ReviewSchedule review(int grade, Instant now) {
+        int nextRepetitions;
+        int nextInterval;
+        if (grade >= 3) {
+            nextRepetitions = repetitions + 1;
+            if (repetitions == 0) {
+                nextInterval = 1;
+            } else if (repetitions == 1) {
+                nextInterval = 6;
+            } else {
+                nextInterval = (int) Math.round(intervalDays * ease);
+            }
+        } else {
+            nextRepetitions = 0;
+            nextInterval = 1;
+        }
+        int miss = 5 - grade;
+        double nextEase = Math.max(MINIMUM_EASE, ease + 0.1 - miss * (0.08 + miss * 0.02));
+        return new ReviewSchedule(userId, flashcardId, nextEase, nextInterval, nextRepetitions,
+                now.plusSeconds(nextInterval * 86_400L));
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getFlashcardId() {
+        return flashcardId;
+    }
+
+    public double getEase() {
+        return ease;
+    }
+
+    public int getIntervalDays() {
+        return intervalDays;
+    }
+
+    public int getRepetitions() {
+        return repetitions;
+    }
+
+    public Instant getDueAt() {
+        return dueAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.flashcardapp.core;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, growable array of flashcard ids, for reading or sampling flashcards in id
+ * order. New flashcards get ever larger ids, so adding one is an append. Not
+ * thread-safe.
+ */
+public final class SortedIds {
+
+    private long[] ids = new long[16];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public long get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Returns the index of the first id greater than {@code id}.
+     */
+    public int indexAfter(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    public void add(long id) {
+        int index = size == 0 || id > ids[size - 1] ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0 && index < size) {
+            return;
+        }
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+
+    public void remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-key lookups into bulk lookups.
+ *
+ * <p>The first caller to arrive opens a batch and waits up to {@code window} for other
+ * callers to add their keys, or until the batch holds {@code maxBatchSize} keys. It then
+ * loads the whole batch with one call and hands every waiting caller its value; callers
+ * asking for the same key share one slot. Loading runs on the thread of the caller that
+ * opened the batch, so the loader needs no thread of its own and several batches can
+ * load at once.</p>
+ */
+final class BatchLoader<K, V> {
+
+    private final Function<List<K>, Map<K, V>> loadAll;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Histogram batchSizes;
+
+    // Batch still accepting keys, if any; guarded by this
+    private Batch<K, V> open;
+
+    BatchLoader(Function<List<K>, Map<K, V>> loadAll, long windowNanos, int maxBatchSize, Histogram batchSizes) {
+        this.loadAll = loadAll;
+        this.windowNanos = windowNanos;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = batchSizes;
+    }
+
+    /**
+     * Returns the value for {@code key}, loaded together with the keys of any concurrent callers.
+     */
+    Optional<V> load(K key) {
+        Batch<K, V> batch;
+        CompletableFuture<Optional<V>> result;
+        boolean opened = false;
+        synchronized (this) {
+            if (open == null) {
+                open = new Batch<>();
+                opened = true;
+            }
+            batch = open;
+            result = batch.results.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch.results.size() >= maxBatchSize) {
+                open = null;
+                batch.full.countDown();
+            }
+        }
+        if (opened) {
+            try {
+                batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (open == batch) {
+                    open = null;
+                }
+            }
+            run(batch);
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void run(Batch<K, V> batch) {
+        List<K> keys = new ArrayList<>(batch.results.keySet());
+        batchSizes.update(keys.size());
+        try {
+            Map<K, V> values = loadAll.apply(keys);
+            batch.results.forEach((key, result) -> result.complete(Optional.ofNullable(values.get(key))));
+        } catch (RuntimeException e) {
+            batch.results.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Keys waiting to be loaded together. Only added to while it is the open batch.
+     */
+    private static final class Batch<K, V> {
+
+        private final Map<K, CompletableFuture<Optional<V>>> results = new LinkedHashMap<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FlashcardDAO} with a bounded read-through cache in front of {@link #findById}
+ * and {@link #findByIds}.
+ *
+ * <p>Entries are evicted by size and age as set by the {@link CaffeineSpec}, and are
+ * invalidated once {@link #update}, {@link #patch} and {@link #delete} commit, before
+ * the listeners are told and before they return, so neither a client nor a listener
+ * reads back a stale copy of the write. Cached flashcards are shared between
+ * requests and must not be modified by callers.</p>
+ *
+ * <p>Misses are always loaded from the primary, even when the request may read from a
+ * replica: a replica that has not yet applied a write would otherwise put the old copy
+ * straight back into the cache after the write invalidated it, or cache a deleted
+ * flashcard, to be served to everyone until it expires.</p>
+ */
+public class CachingFlashcardDAO extends FlashcardDAO {
+
+    private final Cache<Long, Flashcard> cache;
+
+    // Counted before each invalidation, so findByIds can tell whether a write overlapped its load
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingFlashcardDAO(DataSource dataSource, QueryMetrics queryMetrics, CaffeineSpec cacheSpec) {
+        this(dataSource, dataSource, queryMetrics, cacheSpec);
+    }
+
+    public CachingFlashcardDAO(DataSource dataSource, DataSource readDataSource, QueryMetrics queryMetrics,
+                               CaffeineSpec cacheSpec) {
+        super(dataSource, readDataSource, queryMetrics);
+        this.cache = Caffeine.from(cacheSpec).recordStats().build();
+    }
+
+    @Override
+    public Optional<Flashcard> findById(Long id) {
+        return Optional.ofNullable(cache.get(id,
+            key -> ReadConsistency.fromPrimary(() -> super.findById(key)).orElse(null)));
+    }
+
+    /**
+     * Answers the cached flashcards from the cache and loads the rest with one query.
+     *
+     * <p>Unlike {@link #findById}, the load runs outside the cache's per-key locks, so a
+     * write may commit and invalidate a flashcard after the query read it but before it
+     * is cached. Every invalidation is counted first; if any happened while the page was
+     * loaded, the loaded flashcards are invalidated again rather than left cached.</p>
+     */
+    @Override
+    public List<Flashcard> findByIds(List<Long> ids) {
+        Map<Long, Flashcard> cached = new HashMap<>(cache.getAllPresent(ids));
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (!cached.containsKey(id) && !missingIds.contains(id)) {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            long seen = invalidations.get();
+            List<Flashcard> loaded = ReadConsistency.fromPrimary(() -> super.findByIds(missingIds));
+            for (Flashcard flashcard : loaded) {
+                cached.put(flashcard.getId(), flashcard);
+                cache.put(flashcard.getId(), flashcard);
+            }
+            if (invalidations.get() != seen) {
+                for (Flashcard flashcard : loaded) {
+                    cache.invalidate(flashcard.getId());
+                }
+            }
+        }
+        List<Flashcard> flashcards = new ArrayList<>(cached.size());
+        for (Long id : ids) {
+            Flashcard flashcard = cached.get(id);
+            if (flashcard != null) {
+                flashcards.add(flashcard);
+            }
+        }
+        return flashcards;
+    }
+
+    /**
+     * Answers from the cache when the flashcard is cached, so a conditional request for a
+     * hot flashcard costs no query.
+     */
+    @Override
+    public Optional<FlashcardVersion> findVersion(Long id) {
+        Flashcard cached = cache.getIfPresent(id);
+        return cached != null
+            ? Optional.of(new FlashcardVersion(cached.getVersion(), cached.getUpdatedAt()))
+            : super.findVersion(id);
+    }
+
+    /**
+     * Drops the cached copy once a write has committed, before the listeners are told,
+     * so a listener reading the flashcard back gets the new copy.
+     */
+    @Override
+    protected void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * Registers hit, miss, eviction and size gauges for the cache.
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(CachingFlashcardDAO.class, "hits"),
+            (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(CachingFlashcardDAO.class, "misses"),
+            (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(CachingFlashcardDAO.class, "evictions"),
+            (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(CachingFlashcardDAO.class, "hit-rate"),
+            (Gauge<Double>) () -> cache.stats().hitRate());
+        metrics.register(MetricRegistry.name(CachingFlashcardDAO.class, "size"),
+            (Gauge<Long>) cache::estimatedSize);
+    }
+}
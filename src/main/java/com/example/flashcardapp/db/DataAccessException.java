@@ -0,0 +1,12 @@
+package com.example.flashcardapp.db;
+
+/**
+ * Unchecked wrapper for the {@link java.sql.SQLException}s and {@link java.io.IOException}s
+ * raised by the data access layer.
+ */
+public class DataAccessException extends RuntimeException {
+
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
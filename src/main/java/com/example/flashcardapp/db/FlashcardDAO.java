@@ -1,74 +1,934 @@
 package com.example.flashcardapp.db;
 
-import com.example.flashcardapp.model.Flashcard;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardPatch;
+import com.example.flashcardapp.core.FlashcardVersion;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
-public class FlashcardDAO {
-    private Connection connection;
+/**
+ * JDBC Data Access Object for Flashcards.
+ *
+ * <p>The DAO holds no connection of its own. Every call borrows a connection from the
+ * pooled {@link DataSource} and returns it when the call completes, so concurrent
+ * requests each run on their own connection and the class is safe to share between
+ * Jersey worker threads. Prepared statements are cached per pooled connection by the
+ * driver (see {@code cachePrepStmts} in {@code config.yml}).</p>
+ *
+ * <p>Writes, and the reads made inside a write's transaction, always use the primary
+ * data source. Plain reads use the read data source, which may be a
+ * {@link ReplicaRoutingDataSource} sending them to a read replica.</p>
+ *
+ * <p>Every statement times out at the {@link QueryTimeout} deadline of the thread
+ * running it, if there is one.</p>
+ */
+public class FlashcardDAO implements FlashcardStore {
 
-    public FlashcardDAO(Connection connection) {
-        this.connection = connection;
+    static final String COLUMNS = "id, question, answer, category, created_at, updated_at, version, user_id";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlashcardDAO.class);
+
+    private final DataSource dataSource;
+    private final DataSource readDataSource;
+    private final QueryMetrics queryMetrics;
+    private final List<FlashcardListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Lookups that must see the primary are never batched with ones a replica may answer
+    private volatile BatchLoader<Long, Flashcard> primaryLookupBatcher;
+    private volatile BatchLoader<Long, Flashcard> replicaLookupBatcher;
+
+    // Ids of new flashcards are n * idStride + idOffset when idStride is set, else auto-increment
+    private volatile int idStride;
+    private volatile int idOffset;
+
+    public FlashcardDAO(DataSource dataSource) {
+        this(dataSource, QueryMetrics.unregistered());
     }
 
-    public void addFlashcard(Flashcard flashcard) throws SQLException {
-        String sql = "INSERT INTO flashcards (question, answer) VALUES (?, ?)";
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, flashcard.getQuestion());
-            statement.setString(2, flashcard.getAnswer());
-            statement.executeUpdate();
+    public FlashcardDAO(DataSource dataSource, QueryMetrics queryMetrics) {
+        this(dataSource, dataSource, queryMetrics);
+    }
+
+    /**
+     * @param dataSource     Data source of the primary database, for writes.
+     * @param readDataSource Data source for reads outside of a write.
+     * @param queryMetrics   Timers for every query.
+     */
+    public FlashcardDAO(DataSource dataSource, DataSource readDataSource, QueryMetrics queryMetrics) {
+        this.dataSource = dataSource;
+        this.readDataSource = readDataSource;
+        this.queryMetrics = queryMetrics;
+    }
+
+    /**
+     * Registers a listener to be told about every flashcard this DAO creates, updates or deletes.
+     */
+    @Override
+    public void addListener(FlashcardListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Coalesces {@link #findById} calls that arrive within {@code window} of each other
+     * into one {@code WHERE id IN (...)} query of at most {@code maxBatchSize} ids, so a
+     * burst of single-flashcard requests costs one round-trip instead of one each. The
+     * sizes of the batches are published as a histogram.
+     */
+    public void batchLookups(Duration window, int maxBatchSize, MetricRegistry metrics) {
+        Histogram batchSizes = metrics.histogram(MetricRegistry.name(FlashcardDAO.class, "findById", "batch-size"));
+        // Each batch is loaded on the thread of the lookup that opened it, so with that
+        // thread's read consistency
+        primaryLookupBatcher = new BatchLoader<>(ids -> queryByIds(ids, "findByIdBatched"),
+            window.toNanoseconds(), maxBatchSize, batchSizes);
+        replicaLookupBatcher = new BatchLoader<>(ids -> queryByIds(ids, "findByIdBatched"),
+            window.toNanoseconds(), maxBatchSize, batchSizes);
+    }
+
+    /**
+     * Has this DAO choose the ids of new flashcards itself, as {@code n * stride + offset}
+     * for ever larger {@code n} from a counter in {@code change_sequences}, instead of
+     * leaving them to auto-increment. DAOs over different databases with the same stride
+     * and different offsets never hand out the same id, so flashcards can be moved
+     * between them under their own ids.
+     */
+    public void assignIds(int stride, int offset) {
+        this.idOffset = offset;
+        this.idStride = stride;
+    }
+
+    public List<Flashcard> findAll() {
+        String sql = "SELECT " + COLUMNS + " FROM flashcards ORDER BY id";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findAll");
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql));
+             ResultSet resultSet = statement.executeQuery()) {
+            List<Flashcard> flashcards = new ArrayList<>();
+            while (resultSet.next()) {
+                flashcards.add(mapRow(resultSet));
+            }
+            return flashcards;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcards", e);
         }
     }
 
-    public Flashcard getFlashcard(int id) throws SQLException {
-        String sql = "SELECT * FROM flashcards WHERE id = ?";
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new Flashcard(
-                    resultSet.getInt("id"),
-                    resultSet.getString("question"),
-                    resultSet.getString("answer")
-                );
+    /**
+     * Returns up to {@code limit} flashcards with an id greater than {@code afterId},
+     * ordered by id. Seeking on the primary key keeps every page an index range scan,
+     * no matter how deep into the table the caller has paged.
+     */
+    @Override
+    public List<Flashcard> findPage(Long afterId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM flashcards WHERE id > ? ORDER BY id LIMIT ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findPage");
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setLong(1, afterId == null ? 0L : afterId);
+            statement.setInt(2, limit);
+            List<Flashcard> flashcards = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    flashcards.add(mapRow(resultSet));
+                }
             }
+            return flashcards;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcards after " + afterId, e);
         }
-        return null;
     }
 
-    public List<Flashcard> getAllFlashcards() throws SQLException {
-        List<Flashcard> flashcards = new ArrayList<>();
-        String sql = "SELECT * FROM flashcards";
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
-            while (resultSet.next()) {
-                flashcards.add(new Flashcard(
-                    resultSet.getInt("id"),
-                    resultSet.getString("question"),
-                    resultSet.getString("answer")
-                ));
+    /**
+     * Hands every flashcard to {@code consumer} in id order without collecting them.
+     * The statement is forward-only and read-only with a streaming fetch size, so the
+     * MySQL driver reads rows off the socket one at a time instead of buffering the
+     * whole result set.
+     */
+    @Override
+    public void streamAll(Consumer<Flashcard> consumer) {
+        String sql = "SELECT " + COLUMNS + " FROM flashcards ORDER BY id";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "streamAll");
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(
+                     sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(mapRow(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to stream flashcards", e);
+        }
+    }
+
+    @Override
+    public Optional<Flashcard> findById(Long id) {
+        BatchLoader<Long, Flashcard> batcher =
+            ReadConsistency.isReplicaAllowed() ? replicaLookupBatcher : primaryLookupBatcher;
+        if (batcher != null) {
+            return batcher.load(id);
+        }
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findById");
+             Connection connection = readDataSource.getConnection()) {
+            return findById(connection, id);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcard " + id, e);
+        }
+    }
+
+    /**
+     * Returns the version and last-modified time of the flashcard with the given id
+     * without loading the rest of the row, for answering conditional requests.
+     */
+    @Override
+    public Optional<FlashcardVersion> findVersion(Long id) {
+        String sql = "SELECT version, updated_at FROM flashcards WHERE id = ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findVersion");
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next()
+                    ? Optional.of(new FlashcardVersion(resultSet.getLong(1), toLocalDateTime(resultSet.getTimestamp(2))))
+                    : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load version of flashcard " + id, e);
+        }
+    }
+
+    /**
+     * Returns the flashcards with the given ids in the order the ids are listed,
+     * skipping ids that do not exist, in a single query.
+     */
+    @Override
+    public List<Flashcard> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Flashcard> byId = queryByIds(ids, "findByIds");
+        List<Flashcard> flashcards = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            Flashcard flashcard = byId.get(id);
+            if (flashcard != null) {
+                flashcards.add(flashcard);
             }
         }
         return flashcards;
     }
 
-    public void updateFlashcard(Flashcard flashcard) throws SQLException {
-        String sql = "UPDATE flashcards SET question = ?, answer = ? WHERE id = ?";
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, flashcard.getQuestion());
-            statement.setString(2, flashcard.getAnswer());
-            statement.setInt(3, flashcard.getId());
+    /**
+     * Returns up to {@code limit} flashcards in {@code category} with an id greater than
+     * {@code afterId}, ordered by id. Served as a range scan on the (category, id) index.
+     */
+    @Override
+    public List<Flashcard> findByCategory(String category, Long afterId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM flashcards WHERE category = ? AND id > ? ORDER BY id LIMIT ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findByCategory");
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setString(1, category);
+            statement.setLong(2, afterId == null ? 0L : afterId);
+            statement.setInt(3, limit);
+            List<Flashcard> flashcards = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    flashcards.add(mapRow(resultSet));
+                }
+            }
+            return flashcards;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcards in category " + category, e);
+        }
+    }
+
+    /**
+     * Returns the number of flashcards in each category, ordered by category name.
+     * Counts are read from {@code category_counts}, which database triggers keep up to
+     * date on every insert, update and delete, so no scan of {@code flashcards} is needed.
+     */
+    @Override
+    public Map<String, Long> countByCategory() {
+        String sql = "SELECT category, flashcard_count FROM category_counts WHERE flashcard_count > 0 ORDER BY category";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "countByCategory");
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql));
+             ResultSet resultSet = statement.executeQuery()) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            while (resultSet.next()) {
+                counts.put(resultSet.getString("category"), resultSet.getLong("flashcard_count"));
+            }
+            return counts;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to count flashcards by category", e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} flashcards owned by {@code userId} with an id greater
+     * than {@code afterId}, ordered by id, from the primary. Served as a range scan on the
+     * (user_id, id) index.
+     */
+    public List<Flashcard> findByOwner(long userId, Long afterId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM flashcards WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findByOwner");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setLong(1, userId);
+            statement.setLong(2, afterId == null ? 0L : afterId);
+            statement.setInt(3, limit);
+            List<Flashcard> flashcards = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    flashcards.add(mapRow(resultSet));
+                }
+            }
+            return flashcards;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcards of user " + userId, e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} distinct owners of flashcards with a user id greater
+     * than {@code afterUserId}, in order.
+     */
+    public List<Long> findOwners(long afterUserId, int limit) {
+        String sql = "SELECT DISTINCT user_id FROM flashcards WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findOwners");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setLong(1, afterUserId);
+            statement.setInt(2, limit);
+            List<Long> owners = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    owners.add(resultSet.getLong(1));
+                }
+            }
+            return owners;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcard owners", e);
+        }
+    }
+
+    /**
+     * Returns the largest flashcard id in the table, or 0 if it is empty.
+     */
+    public long findMaxId() {
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findMaxId");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(
+                     connection.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM flashcards"));
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load largest flashcard id", e);
+        }
+    }
+
+    /**
+     * Makes sure every id {@link #assignIds} hands out from now on is greater than
+     * {@code maxId}, so that ids given out before the flashcards were sharded are not
+     * handed out again by another shard.
+     */
+    public void raiseIdFloor(long maxId) {
+        String sql = "UPDATE change_sequences SET last_seq = ? WHERE name = 'flashcard_ids' AND last_seq < ?";
+        long floor = idStride == 0 ? maxId : maxId / idStride;
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "raiseIdFloor");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setLong(1, floor);
+            statement.setLong(2, floor);
             statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to raise flashcard id floor to " + maxId, e);
         }
     }
 
-    public void deleteFlashcard(int id) throws SQLException {
-        String sql = "DELETE FROM flashcards WHERE id = ?";
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setInt(1, id);
+    /**
+     * Stores copies of flashcards kept elsewhere under their own ids, owners, versions
+     * and timestamps, in one transaction, replacing any copy of them already here at an
+     * older version; a copy here at the same or a newer version is left as it is. Each
+     * flashcard stored gets a new change sequence number here, so delta sync picks it
+     * up, and any tombstone of the id left by an earlier move away is dropped. The
+     * listeners are not told: the flashcards already existed.
+     *
+     * @return The number of flashcards stored.
+     */
+    public int copy(List<Flashcard> flashcards) {
+        return copy(flashcards, false, "copy");
+    }
+
+    /**
+     * Stores a copy of a flashcard as {@link #copy} does, unless the flashcard has been
+     * deleted here since it was first copied, for bringing a moved flashcard up to date
+     * with writes made to it where it was copied from.
+     *
+     * @return Whether the copy was stored.
+     */
+    public boolean recopy(Flashcard flashcard) {
+        return copy(Collections.singletonList(flashcard), true, "recopy") == 1;
+    }
+
+    private int copy(List<Flashcard> flashcards, boolean skipDeleted, String query) {
+        if (flashcards.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Flashcard> byId = new LinkedHashMap<>();
+        for (Flashcard flashcard : flashcards) {
+            byId.put(flashcard.getId(), flashcard);
+        }
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        String versionsSql = "SELECT id, version FROM flashcards WHERE id IN (" + in + ") FOR UPDATE";
+        String deletedSql = "SELECT flashcard_id FROM flashcard_tombstones WHERE flashcard_id IN (" + in + ")";
+        String tombstoneSql = "DELETE FROM flashcard_tombstones WHERE flashcard_id = ?";
+        String updateSql = "UPDATE flashcards SET question = ?, answer = ?, category = ?, created_at = ?, "
+            + "updated_at = ?, version = ?, user_id = ? WHERE id = ?";
+        String insertSql = "INSERT INTO flashcards (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, query);
+             Connection connection = dataSource.getConnection()) {
+            return inTransaction(connection, () -> {
+                // Locking the copies already here, so no write to them slips in before they are replaced
+                Map<Long, Long> versions = new HashMap<>();
+                try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(versionsSql))) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        statement.setLong(i + 1, ids.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            versions.put(resultSet.getLong(1), resultSet.getLong(2));
+                        }
+                    }
+                }
+                List<Long> deleted = new ArrayList<>();
+                if (skipDeleted) {
+                    try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(deletedSql))) {
+                        for (int i = 0; i < ids.size(); i++) {
+                            statement.setLong(i + 1, ids.get(i));
+                        }
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                deleted.add(resultSet.getLong(1));
+                            }
+                        }
+                    }
+                }
+                List<Long> stored = new ArrayList<>();
+                try (PreparedStatement tombstone = QueryTimeout.apply(connection.prepareStatement(tombstoneSql));
+                     PreparedStatement update = QueryTimeout.apply(connection.prepareStatement(updateSql));
+                     PreparedStatement insert = QueryTimeout.apply(connection.prepareStatement(insertSql))) {
+                    for (Flashcard flashcard : byId.values()) {
+                        Long version = versions.get(flashcard.getId());
+                        if (version == null) {
+                            if (deleted.contains(flashcard.getId())) {
+                                continue;
+                            }
+                            tombstone.setLong(1, flashcard.getId());
+                            tombstone.addBatch();
+                            insert.setLong(1, flashcard.getId());
+                            setCopiedColumns(insert, flashcard, 2);
+                            insert.addBatch();
+                        } else if (version < flashcard.getVersion()) {
+                            setCopiedColumns(update, flashcard, 1);
+                            update.setLong(8, flashcard.getId());
+                            update.addBatch();
+                        } else {
+                            continue;
+                        }
+                        stored.add(flashcard.getId());
+                    }
+                    tombstone.executeBatch();
+                    update.executeBatch();
+                    insert.executeBatch();
+                }
+                if (!stored.isEmpty()) {
+                    stampChanges(connection, stored);
+                }
+                return stored.size();
+            });
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to copy " + flashcards.size() + " flashcards", e);
+        }
+    }
+
+    private static void setCopiedColumns(PreparedStatement statement, Flashcard flashcard, int first)
+            throws SQLException {
+        statement.setString(first, flashcard.getQuestion());
+        statement.setString(first + 1, flashcard.getAnswer());
+        statement.setString(first + 2, flashcard.getCategory());
+        statement.setTimestamp(first + 3, Timestamp.valueOf(flashcard.getCreatedAt()));
+        statement.setTimestamp(first + 4, Timestamp.valueOf(flashcard.getUpdatedAt()));
+        statement.setLong(first + 5, flashcard.getVersion());
+        statement.setObject(first + 6, flashcard.getUserId(), Types.BIGINT);
+    }
+
+    /**
+     * Inserts a new flashcard and returns it with its generated id and timestamps.
+     */
+    @Override
+    public Flashcard create(Flashcard flashcard) {
+        insertAll(Collections.singletonList(flashcard), "create", "Failed to create flashcard");
+        return flashcard;
+    }
+
+    /**
+     * Inserts all of the given flashcards as one JDBC batch in a single transaction.
+     * With {@code rewriteBatchedStatements} enabled the MySQL driver sends the batch as
+     * multi-row INSERTs rather than one round-trip per row. Either every flashcard is
+     * inserted and given its generated id, or, if the batch fails, none are.
+     *
+     * @return The number of flashcards inserted.
+     */
+    @Override
+    public int createBatch(List<Flashcard> flashcards) {
+        if (flashcards.isEmpty()) {
+            return 0;
+        }
+        insertAll(flashcards, "createBatch", "Failed to insert batch of " + flashcards.size() + " flashcards");
+        return flashcards.size();
+    }
+
+    /**
+     * Replaces the question, answer and category of the flashcard with the given id,
+     * provided it is at {@code expectedVersion}. The check and the update are one
+     * statement, so a concurrent writer cannot slip in between them.
+     *
+     * @param expectedVersion The version the caller last saw, or {@code null} to update
+     *                        whatever the current version is.
+     * @return The updated flashcard, or empty if no flashcard has that id and version.
+     */
+    @Override
+    public Optional<Flashcard> update(Long id, Flashcard flashcard, Long expectedVersion) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("question", flashcard.getQuestion());
+        values.put("answer", flashcard.getAnswer());
+        values.put("category", flashcard.getCategory());
+        return updateColumns(id, values, expectedVersion, "update");
+    }
+
+    /**
+     * Applies a merge patch to the flashcard with the given id. Only the columns the patch
+     * changes are written, in a single UPDATE that also bumps the version; when the patch
+     * names a version, the UPDATE matches only that version. No read of the flashcard is
+     * needed before the write, and a concurrent writer cannot slip in between the version
+     * check and the write.
+     *
+     * @return The patched flashcard, or empty if no flashcard has that id and version.
+     */
+    @Override
+    public Optional<Flashcard> patch(Long id, FlashcardPatch patch) {
+        return updateColumns(id, patch.getChanges(), patch.getVersion(), "patch");
+    }
+
+    /**
+     * Deletes the flashcard with the given id, provided it is at {@code expectedVersion},
+     * and leaves a tombstone for {@link #findChanges}.
+     *
+     * @param expectedVersion The version the caller last saw, or {@code null} to delete
+     *                        whatever the current version is.
+     * @return {@code true} if a flashcard was deleted.
+     */
+    @Override
+    public boolean delete(Long id, Long expectedVersion) {
+        String sql = "DELETE FROM flashcards WHERE id = ?" + (expectedVersion == null ? "" : " AND version = ?");
+        String tombstoneSql = "INSERT INTO flashcard_tombstones (flashcard_id, change_seq, deleted_at) VALUES (?, ?, ?)";
+        boolean deleted;
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "delete");
+             Connection connection = dataSource.getConnection()) {
+            deleted = inTransaction(connection, () -> {
+                try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+                    statement.setLong(1, id);
+                    if (expectedVersion != null) {
+                        statement.setLong(2, expectedVersion);
+                    }
+                    if (statement.executeUpdate() == 0) {
+                        return false;
+                    }
+                }
+                // Taken last, just before the commit; see reserveSequence
+                long changeSeq = reserveSequence(connection, "flashcards", 1);
+                try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(tombstoneSql))) {
+                    statement.setLong(1, id);
+                    statement.setLong(2, changeSeq);
+                    statement.setTimestamp(3, Timestamp.valueOf(now()));
+                    statement.executeUpdate();
+                }
+                return true;
+            });
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to delete flashcard " + id, e);
+        } finally {
+            invalidate(id);
+        }
+        if (deleted) {
+            fire(listener -> listener.onDeleted(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the first {@code limit} changes after change sequence number {@code since}:
+     * flashcards created or updated, and ids of flashcards deleted, in the order the
+     * changes were committed. Pass the returned cursor as {@code since} to continue.
+     *
+     * <p>Both flashcards and tombstones are read by range scans on their
+     * {@code change_seq} index inside one repeatable-read transaction, so the page is a
+     * consistent snapshot and costs O(changes) rather than O(deck size).</p>
+     */
+    @Override
+    public FlashcardChanges findChanges(long since, int limit) {
+        String changedSql = "SELECT change_seq, " + COLUMNS + " FROM flashcards WHERE change_seq > ? ORDER BY change_seq LIMIT ?";
+        String deletedSql = "SELECT change_seq, flashcard_id FROM flashcard_tombstones WHERE change_seq > ? ORDER BY change_seq LIMIT ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findChanges");
+             Connection connection = readDataSource.getConnection()) {
+            int isolation = connection.getTransactionIsolation();
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                return inTransaction(connection, () -> {
+                    List<Long> changedSeqs = new ArrayList<>();
+                    List<Flashcard> changed = new ArrayList<>();
+                    try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(changedSql))) {
+                        statement.setLong(1, since);
+                        statement.setInt(2, limit + 1);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                changedSeqs.add(resultSet.getLong("change_seq"));
+                                changed.add(mapRow(resultSet));
+                            }
+                        }
+                    }
+                    List<Long> deletedSeqs = new ArrayList<>();
+                    List<Long> deleted = new ArrayList<>();
+                    try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(deletedSql))) {
+                        statement.setLong(1, since);
+                        statement.setInt(2, limit + 1);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                deletedSeqs.add(resultSet.getLong("change_seq"));
+                                deleted.add(resultSet.getLong("flashcard_id"));
+                            }
+                        }
+                    }
+                    // Merge the two runs by sequence number and keep the first limit changes
+                    int c = 0;
+                    int d = 0;
+                    long cursor = since;
+                    while (c + d < limit && (c < changed.size() || d < deleted.size())) {
+                        if (d == deleted.size() || (c < changed.size() && changedSeqs.get(c) < deletedSeqs.get(d))) {
+                            cursor = changedSeqs.get(c++);
+                        } else {
+                            cursor = deletedSeqs.get(d++);
+                        }
+                    }
+                    boolean hasMore = c < changed.size() || d < deleted.size();
+                    return new FlashcardChanges(new ArrayList<>(changed.subList(0, c)),
+                        new ArrayList<>(deleted.subList(0, d)), cursor, hasMore);
+                });
+            } finally {
+                connection.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load flashcard changes since " + since, e);
+        }
+    }
+
+    /**
+     * Loads the flashcards with the given ids in one {@code WHERE id IN (...)} query.
+     */
+    private Map<Long, Flashcard> queryByIds(List<Long> ids, String query) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM flashcards WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, query);
+             Connection connection = readDataSource.getConnection();
+             PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql.toString()))) {
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setLong(i + 1, ids.get(i));
+            }
+            Map<Long, Flashcard> byId = new HashMap<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Flashcard flashcard = mapRow(resultSet);
+                    byId.put(flashcard.getId(), flashcard);
+                }
+            }
+            return byId;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load " + ids.size() + " flashcards by id", e);
+        }
+    }
+
+    /**
+     * Sets the given columns of the flashcard with the given id and bumps its version,
+     * provided it is still at {@code expectedVersion}, then reads the flashcard back in
+     * the same transaction and tells the listeners. Column names come from this class and
+     * {@link FlashcardPatch}, never from the client.
+     *
+     * @param expectedVersion Version the flashcard must be at, or {@code null} for any.
+     */
+    private Optional<Flashcard> updateColumns(Long id, Map<String, String> values, Long expectedVersion,
+                                              String query) {
+        StringBuilder sql = new StringBuilder("UPDATE flashcards SET ");
+        for (String column : values.keySet()) {
+            sql.append(column).append(" = ?, ");
+        }
+        sql.append("updated_at = ?, version = version + 1 WHERE id = ?");
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+        }
+        Optional<Flashcard> updated;
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, query);
+             Connection connection = dataSource.getConnection()) {
+            updated = inTransaction(connection, () -> {
+                try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql.toString()))) {
+                    int index = 1;
+                    for (String value : values.values()) {
+                        statement.setString(index++, value);
+                    }
+                    statement.setTimestamp(index++, Timestamp.valueOf(now()));
+                    statement.setLong(index++, id);
+                    if (expectedVersion != null) {
+                        statement.setLong(index, expectedVersion);
+                    }
+                    if (statement.executeUpdate() == 0) {
+                        return Optional.empty();
+                    }
+                }
+                stampChanges(connection, Collections.singletonList(id));
+                return findById(connection, id);
+            });
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to update flashcard " + id, e);
+        } finally {
+            invalidate(id);
+        }
+        updated.ifPresent(card -> fire(listener -> listener.onUpdated(card)));
+        return updated;
+    }
+
+    /**
+     * Inserts the flashcards as one batch in one transaction, each with its own change
+     * sequence number, then sets their ids and timestamps and tells the listeners. Ids
+     * chosen by this DAO are reserved in a short transaction of their own beforehand, as
+     * they need not follow commit order.
+     */
+    private void insertAll(List<Flashcard> flashcards, String query, String failureMessage) {
+        int stride = idStride;
+        int offset = idOffset;
+        String sql = "INSERT INTO flashcards (question, answer, category, created_at, updated_at, user_id"
+            + (stride == 0 ? ") VALUES (?, ?, ?, ?, ?, ?)" : ", id) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        Timestamp now = Timestamp.valueOf(now());
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, query);
+             Connection connection = dataSource.getConnection()) {
+            long firstIdSeq = stride == 0 ? 0
+                : inTransaction(connection, () -> reserveSequence(connection, "flashcard_ids", flashcards.size()));
+            inTransaction(connection, () -> {
+                long idSeq = firstIdSeq;
+                try (PreparedStatement statement = QueryTimeout.apply(
+                        connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))) {
+                    for (Flashcard flashcard : flashcards) {
+                        statement.setString(1, flashcard.getQuestion());
+                        statement.setString(2, flashcard.getAnswer());
+                        statement.setString(3, flashcard.getCategory());
+                        statement.setTimestamp(4, now);
+                        statement.setTimestamp(5, now);
+                        statement.setObject(6, flashcard.getUserId(), Types.BIGINT);
+                        if (stride != 0) {
+                            statement.setLong(7, idSeq++ * stride + offset);
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    if (stride == 0) {
+                        try (ResultSet keys = statement.getGeneratedKeys()) {
+                            for (int i = 0; i < flashcards.size() && keys.next(); i++) {
+                                flashcards.get(i).setId(keys.getLong(1));
+                            }
+                        }
+                    }
+                }
+                if (stride != 0) {
+                    long id = firstIdSeq;
+                    for (Flashcard flashcard : flashcards) {
+                        flashcard.setId(id++ * stride + offset);
+                    }
+                }
+                List<Long> ids = new ArrayList<>();
+                for (Flashcard flashcard : flashcards) {
+                    ids.add(flashcard.getId());
+                }
+                stampChanges(connection, ids);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new DataAccessException(failureMessage, e);
+        }
+        for (Flashcard flashcard : flashcards) {
+            flashcard.setCreatedAt(now.toLocalDateTime());
+            flashcard.setUpdatedAt(now.toLocalDateTime());
+            flashcard.setVersion(0);
+            fire(listener -> listener.onCreated(flashcard));
+        }
+    }
+
+    /**
+     * Gives the flashcards with the given ids, written earlier in the current transaction,
+     * new change sequence numbers with one UPDATE, numbering them by id from a range of
+     * the {@code flashcards} sequence spanning their ids. The sequence may skip numbers.
+     */
+    private static void stampChanges(Connection connection, List<Long> ids) throws SQLException {
+        long minId = Collections.min(ids);
+        long first = reserveSequence(connection, "flashcards", Collections.max(ids) - minId + 1);
+        StringBuilder sql = new StringBuilder("UPDATE flashcards SET change_seq = ? + id WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql.toString()))) {
+            statement.setLong(1, first - minId);
+            int index = 2;
+            for (Long id : ids) {
+                statement.setLong(index++, id);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Reserves {@code count} consecutive numbers of the named sequence and returns the
+     * first. The counter row stays locked until the transaction ends, so writers take
+     * their change sequence numbers in commit order and a reader that sees a number has
+     * already seen every smaller one.
+     *
+     * <p>The price is that writes to flashcards commit one at a time. To keep that window
+     * short, writers take the {@code flashcards} sequence last, once their rows are
+     * written and locked, and hold it only for one statement and the commit rather than
+     * for their whole transaction; an import chunk's batch INSERT runs outside it. Moving
+     * to numbers taken without the lock would need readers of {@link #findChanges} to stop
+     * at a watermark below every uncommitted number, which a single counter avoids.</p>
+     */
+    private static long reserveSequence(Connection connection, String name, long count) throws SQLException {
+        long last;
+        try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(
+                "SELECT last_seq FROM change_sequences WHERE name = ? FOR UPDATE"))) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("No " + name + " row in change_sequences");
+                }
+                last = resultSet.getLong(1);
+            }
+        }
+        try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(
+                "UPDATE change_sequences SET last_seq = ? WHERE name = ?"))) {
+            statement.setLong(1, last + count);
+            statement.setString(2, name);
             statement.executeUpdate();
         }
+        return last + 1;
+    }
+
+    /**
+     * Runs {@code work} in a transaction on {@code connection}, committing if it returns
+     * and rolling back if it throws.
+     */
+    private static <T> T inTransaction(Connection connection, Transaction<T> work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            T result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Transaction<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Called once a write to the flashcard with the given id has committed or failed, and
+     * before the listeners are told of it, for subclasses holding copies of flashcards.
+     */
+    protected void invalidate(Long id) {
+    }
+
+    private void fire(Consumer<FlashcardListener> event) {
+        for (FlashcardListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.error("Flashcard listener {} failed", listener, e);
+            }
+        }
+    }
+
+    private Optional<Flashcard> findById(Connection connection, Long id) throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM flashcards WHERE id = ?";
+        try (PreparedStatement statement = QueryTimeout.apply(connection.prepareStatement(sql))) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(mapRow(resultSet)) : Optional.empty();
+            }
+        }
+    }
+
+    static Flashcard mapRow(ResultSet resultSet) throws SQLException {
+        Flashcard flashcard = new Flashcard(
+            resultSet.getString("question"),
+            resultSet.getString("answer"),
+            resultSet.getString("category")
+        );
+        flashcard.setId(resultSet.getLong("id"));
+        flashcard.setCreatedAt(toLocalDateTime(resultSet.getTimestamp("created_at")));
+        flashcard.setUpdatedAt(toLocalDateTime(resultSet.getTimestamp("updated_at")));
+        flashcard.setVersion(resultSet.getLong("version"));
+        long userId = resultSet.getLong("user_id");
+        flashcard.setUserId(resultSet.wasNull() ? null : userId);
+        return flashcard;
+    }
+
+    /**
+     * The current time, to the microsecond like the timestamp columns, so that a
+     * flashcard's {@code updatedAt} reads back exactly as it was written.
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
     }
 }
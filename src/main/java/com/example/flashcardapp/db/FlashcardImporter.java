@@ -0,0 +1,172 @@
+package com.example.flashcardapp.db;
+
+import com.example.flashcardapp.core.DuplicateCandidate;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.ImportReport;
+import com.example.flashcardapp.search.DuplicateDetector;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports one upload of flashcards, row by row, into a {@link FlashcardStore}.
+ *
+ * <p>Rows are validated as they are added and written in chunks, each chunk as one
+ * batch that is stored whole or not at all. Rows that fail validation are reported and
+ * skipped; a chunk whose batch fails is reported and the import carries on with the
+ * next chunk. Only one chunk of rows is held in memory at a time.</p>
+ *
+ * <p>With a {@link DuplicateDetector}, rows that nearly repeat a stored flashcard, or
+ * another row of the chunk, are rejected as well. Rows of earlier chunks have been
+ * stored by then, so the detector has them from the store's listener.</p>
+ */
+public class FlashcardImporter {
+
+    private final FlashcardStore flashcardStore;
+    private final Validator validator;
+    private final int chunkSize;
+    private final DuplicateDetector duplicateDetector;
+    private final DuplicateDetector chunkDuplicates;
+    private final ImportReport report = new ImportReport();
+    private final List<Flashcard> pending;
+    private ImportReport.Chunk chunk;
+    private int row;
+
+    /**
+     * @param flashcardStore Where flashcards are kept.
+     * @param validator      Validator applying the Flashcard constraints to each row.
+     * @param chunkSize      Number of rows written per batch.
+     */
+    public FlashcardImporter(FlashcardStore flashcardStore, Validator validator, int chunkSize) {
+        this(flashcardStore, validator, chunkSize, null);
+    }
+
+    /**
+     * @param flashcardStore    Where flashcards are kept.
+     * @param validator         Validator applying the Flashcard constraints to each row.
+     * @param chunkSize         Number of rows written per batch.
+     * @param duplicateDetector Detector kept current with the store, or null to import
+     *                          near-duplicates too.
+     */
+    public FlashcardImporter(FlashcardStore flashcardStore, Validator validator, int chunkSize,
+                             DuplicateDetector duplicateDetector) {
+        this.flashcardStore = flashcardStore;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.duplicateDetector = duplicateDetector;
+        this.chunkDuplicates = duplicateDetector == null ? null
+            : new DuplicateDetector(duplicateDetector.getCandidateThreshold(), duplicateDetector.getRejectThreshold());
+        this.pending = new ArrayList<>(chunkSize);
+        this.chunk = new ImportReport.Chunk(0);
+    }
+
+    /**
+     * Adds the next row, to be written with its chunk if it is valid.
+     */
+    public void add(Flashcard flashcard) {
+        List<String> errors = validate(flashcard);
+        if (errors.isEmpty() && duplicateDetector != null) {
+            errors = checkDuplicate(flashcard);
+        }
+        if (errors.isEmpty()) {
+            pending.add(flashcard);
+            if (chunkDuplicates != null) {
+                chunkDuplicates.add(row, flashcard.getQuestion(), flashcard.getAnswer());
+            }
+        } else {
+            chunk.getRejected().add(new ImportReport.RowError(row, errors));
+        }
+        nextRow();
+    }
+
+    /**
+     * Skips the next row, which could not be read.
+     */
+    public void reject(String error) {
+        chunk.getRejected().add(new ImportReport.RowError(row, Collections.singletonList(error)));
+        nextRow();
+    }
+
+    /**
+     * @return Zero-based position of the next row in the upload.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return The report, to which an error ending the upload early may be added.
+     */
+    public ImportReport getReport() {
+        return report;
+    }
+
+    /**
+     * Writes the last, partial chunk.
+     *
+     * @return Per-chunk import report.
+     */
+    public ImportReport finish() {
+        if (row > chunk.getFirstRow()) {
+            writeChunk();
+        }
+        return report;
+    }
+
+    private void nextRow() {
+        row++;
+        if (row - chunk.getFirstRow() == chunkSize) {
+            writeChunk();
+            chunk = new ImportReport.Chunk(row);
+        }
+    }
+
+    private void writeChunk() {
+        chunk.setRows(row - chunk.getFirstRow());
+        try {
+            chunk.setInserted(flashcardStore.createBatch(pending));
+        } catch (DataAccessException e) {
+            chunk.setError(e.getMessage());
+        }
+        pending.clear();
+        if (chunkDuplicates != null) {
+            chunkDuplicates.clear();
+        }
+        report.getChunks().add(chunk);
+    }
+
+    private List<String> checkDuplicate(Flashcard flashcard) {
+        List<DuplicateCandidate> stored = duplicateDetector.findCandidates(flashcard.getQuestion(), flashcard.getAnswer());
+        if (duplicateDetector.isDuplicate(stored)) {
+            return Collections.singletonList("Near-duplicate of flashcard " + stored.get(0).getId()
+                + " (similarity " + format(stored.get(0).getSimilarity()) + ")");
+        }
+        List<DuplicateCandidate> rows = chunkDuplicates.findCandidates(flashcard.getQuestion(), flashcard.getAnswer());
+        if (chunkDuplicates.isDuplicate(rows)) {
+            return Collections.singletonList("Near-duplicate of row " + rows.get(0).getId()
+                + " (similarity " + format(rows.get(0).getSimilarity()) + ")");
+        }
+        return Collections.emptyList();
+    }
+
+    private static String format(double similarity) {
+        return String.format(Locale.ROOT, "%.2f", similarity);
+    }
+
+    private List<String> validate(Flashcard flashcard) {
+        if (flashcard == null) {
+            return Collections.singletonList("Flashcard cannot be null");
+        }
+        Set<ConstraintViolation<Flashcard>> violations = validator.validate(flashcard);
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
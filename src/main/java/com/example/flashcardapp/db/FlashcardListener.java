@@ -0,0 +1,22 @@
+package com.example.flashcardapp.db;
+
+import com.example.flashcardapp.core.Flashcard;
+
+/**
+ * Receives every change a {@link FlashcardStore} commits, so in-memory structures built
+ * from the stored flashcards can be kept up to date incrementally.
+ *
+ * <p>Callbacks run on the writing thread after the change has committed and must not
+ * block; an exception thrown by a listener is logged and does not undo the write.</p>
+ */
+public interface FlashcardListener {
+
+    default void onCreated(Flashcard flashcard) {
+    }
+
+    default void onUpdated(Flashcard flashcard) {
+    }
+
+    default void onDeleted(Long id) {
+    }
+}
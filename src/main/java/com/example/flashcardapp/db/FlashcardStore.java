@@ -0,0 +1,132 @@
+package com.example.flashcardapp.db;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardPatch;
+import com.example.flashcardapp.core.FlashcardVersion;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Where flashcards are kept: the operations the flashcard endpoints need, whatever
+ * stores the flashcards.
+ *
+ * <p>{@link FlashcardDAO} keeps them in MySQL; {@code MappedFlashcardStore} keeps them
+ * in an embedded memory-mapped log for deployments without a database server. Both
+ * give flashcards ever larger ids, stamp every write with {@code updatedAt} and
+ * {@code version}, keep a tombstone of every deletion for {@link #findChanges}, and tell
+ * their listeners about every change once it is durable. Failures are thrown as
+ * {@link DataAccessException}.</p>
+ */
+public interface FlashcardStore {
+
+    /**
+     * Registers a listener to be told about every flashcard this store creates, updates or deletes.
+     */
+    void addListener(FlashcardListener listener);
+
+    /**
+     * Returns up to {@code limit} flashcards with an id greater than {@code afterId},
+     * ordered by id.
+     */
+    List<Flashcard> findPage(Long afterId, int limit);
+
+    /**
+     * Hands every flashcard to {@code consumer} in id order without collecting them.
+     */
+    void streamAll(Consumer<Flashcard> consumer);
+
+    Optional<Flashcard> findById(Long id);
+
+    /**
+     * Returns the version and last-modified time of the flashcard with the given id, for
+     * answering conditional requests.
+     */
+    Optional<FlashcardVersion> findVersion(Long id);
+
+    /**
+     * Returns the flashcards with the given ids in the order the ids are listed,
+     * skipping ids that do not exist.
+     */
+    List<Flashcard> findByIds(List<Long> ids);
+
+    /**
+     * Returns up to {@code limit} flashcards in {@code category} with an id greater than
+     * {@code afterId}, ordered by id.
+     */
+    List<Flashcard> findByCategory(String category, Long afterId, int limit);
+
+    /**
+     * Returns the number of flashcards in each category, ordered by category name.
+     */
+    Map<String, Long> countByCategory();
+
+    /**
+     * Stores a new flashcard and returns it with its generated id and timestamps.
+     */
+    Flashcard create(Flashcard flashcard);
+
+    /**
+     * Stores all of the given flashcards, giving each its generated id; either every
+     * flashcard is stored or, if the batch fails, none are.
+     *
+     * @return The number of flashcards stored.
+     */
+    int createBatch(List<Flashcard> flashcards);
+
+    /**
+     * Replaces the question, answer and category of the flashcard with the given id.
+     *
+     * @return The updated flashcard, or empty if no flashcard has that id.
+     */
+    default Optional<Flashcard> update(Long id, Flashcard flashcard) {
+        return update(id, flashcard, null);
+    }
+
+    /**
+     * Replaces the question, answer and category of the flashcard with the given id,
+     * provided it is at {@code expectedVersion}.
+     *
+     * @param expectedVersion The version the caller last saw, or {@code null} to update
+     *                        whatever the current version is.
+     * @return The updated flashcard, or empty if no flashcard has that id and version.
+     */
+    Optional<Flashcard> update(Long id, Flashcard flashcard, Long expectedVersion);
+
+    /**
+     * Applies a merge patch to the flashcard with the given id, provided it is at the
+     * version the patch names, if any.
+     *
+     * @return The patched flashcard, or empty if no flashcard has that id and version.
+     */
+    Optional<Flashcard> patch(Long id, FlashcardPatch patch);
+
+    /**
+     * Deletes the flashcard with the given id.
+     *
+     * @return {@code true} if a flashcard was deleted.
+     */
+    default boolean delete(Long id) {
+        return delete(id, null);
+    }
+
+    /**
+     * Deletes the flashcard with the given id, provided it is at {@code expectedVersion},
+     * and leaves a tombstone for {@link #findChanges}.
+     *
+     * @param expectedVersion The version the caller last saw, or {@code null} to delete
+     *                        whatever the current version is.
+     * @return {@code true} if a flashcard was deleted.
+     */
+    boolean delete(Long id, Long expectedVersion);
+
+    /**
+     * Returns the first {@code limit} changes after change sequence number {@code since}:
+     * flashcards created or updated, and ids of flashcards deleted, in the order the
+     * changes were made. Pass the returned cursor as {@code since} to continue.
+     */
+    FlashcardChanges findChanges(long since, int limit);
+}
@@ -0,0 +1,73 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times DAO queries and logs the slow ones.
+ *
+ * <p>Each query is recorded in a {@link Timer} named after its DAO and method, e.g.
+ * {@code com.example.flashcardapp.db.FlashcardDAO.findById}, so its latency
+ * percentiles show up on the admin connector's metrics page. The time includes waiting
+ * for a pooled connection. Queries that take at least the slow query threshold are also
+ * logged at WARN.</p>
+ */
+public class QueryMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetrics.class);
+
+    private final MetricRegistry metrics;
+    private final long slowQueryNanos;
+
+    public QueryMetrics(MetricRegistry metrics, Duration slowQueryThreshold) {
+        this.metrics = metrics;
+        this.slowQueryNanos = slowQueryThreshold.toNanoseconds();
+    }
+
+    /**
+     * Query metrics kept in a registry of their own, with the slow query log turned off,
+     * for DAOs created outside the application.
+     */
+    public static QueryMetrics unregistered() {
+        return new QueryMetrics(new MetricRegistry(), Duration.days(365));
+    }
+
+    /**
+     * Starts timing a query; close the returned context when the query completes.
+     */
+    public Context time(Class<?> dao, String query) {
+        return new Context(metrics.timer(MetricRegistry.name(dao, query)), dao, query);
+    }
+
+    /**
+     * A query being timed.
+     */
+    public final class Context implements AutoCloseable {
+
+        private final Timer timer;
+        private final Class<?> dao;
+        private final String query;
+        private final long start = System.nanoTime();
+
+        private Context(Timer timer, Class<?> dao, String query) {
+            this.timer = timer;
+            this.dao = dao;
+            this.query = query;
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - start;
+            timer.update(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed >= slowQueryNanos) {
+                LOGGER.warn("Slow query {}.{} took {} ms", dao.getSimpleName(), query,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+}
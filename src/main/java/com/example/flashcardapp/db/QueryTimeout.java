@@ -0,0 +1,57 @@
+package com.example.flashcardapp.db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deadline of the statements run on the current thread.
+ *
+ * <p>{@code StoreExecutor} sets the deadline of the request whose store call it runs,
+ * after which the request has been answered 503, so that the driver cancels a statement
+ * still running then and its connection goes back to the pool rather than serving a
+ * result nobody reads. Statements run outside such a call have no timeout. The setting
+ * is per thread, so it must be cleared once the call has completed, and handed on to
+ * any thread the call runs statements on.</p>
+ */
+public final class QueryTimeout {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private QueryTimeout() {
+    }
+
+    /**
+     * Gives statements on this thread until {@code deadlineNanos}, on the
+     * {@link System#nanoTime} clock, until {@link #clear} is called.
+     */
+    public static void setDeadline(long deadlineNanos) {
+        DEADLINE.set(deadlineNanos);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * @return This thread's deadline, or {@code null} if it has none.
+     */
+    public static Long getDeadline() {
+        return DEADLINE.get();
+    }
+
+    /**
+     * Sets the query timeout of {@code statement} to the time left before this thread's
+     * deadline, if it has one.
+     */
+    static <S extends Statement> S apply(S statement) throws SQLException {
+        Long deadline = DEADLINE.get();
+        if (deadline != null) {
+            long remaining = deadline - System.nanoTime();
+            // Whole seconds, rounded up, as zero would mean no timeout at all
+            long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+            statement.setQueryTimeout((int) Math.min(seconds, Integer.MAX_VALUE));
+        }
+        return statement;
+    }
+}
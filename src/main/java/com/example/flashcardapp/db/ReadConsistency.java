@@ -0,0 +1,51 @@
+package com.example.flashcardapp.db;
+
+import java.util.function.Supplier;
+
+/**
+ * Whether reads on the current thread may be served by a read replica.
+ *
+ * <p>Reads go to the primary unless the request being served has said that data a
+ * little behind the primary is acceptable, which {@code ReadYourWritesFilter} does for
+ * GET requests from clients that have not written recently. The setting is per thread,
+ * so it must be cleared once the request has been served.</p>
+ */
+public final class ReadConsistency {
+
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = ThreadLocal.withInitial(() -> false);
+
+    private ReadConsistency() {
+    }
+
+    /**
+     * Lets reads on this thread be served by a replica until {@link #clear} is called.
+     */
+    public static void allowReplica() {
+        REPLICA_ALLOWED.set(true);
+    }
+
+    /**
+     * Sends reads on this thread back to the primary.
+     */
+    public static void clear() {
+        REPLICA_ALLOWED.remove();
+    }
+
+    public static boolean isReplicaAllowed() {
+        return REPLICA_ALLOWED.get();
+    }
+
+    /**
+     * Runs {@code reads} against the primary whatever the current thread allows, for
+     * reads that a write depends on.
+     */
+    public static <T> T fromPrimary(Supplier<T> reads) {
+        boolean replicaAllowed = REPLICA_ALLOWED.get();
+        REPLICA_ALLOWED.set(false);
+        try {
+            return reads.get();
+        } finally {
+            REPLICA_ALLOWED.set(replicaAllowed);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source for reads that hands out connections to read replicas, round-robin, when
+ * the current thread allows it (see {@link ReadConsistency}), and to the primary
+ * otherwise.
+ *
+ * <p>A replica that fails to give a connection is taken out of the rotation at once and
+ * the read goes to the next replica, or to the primary when none is left. Every replica
+ * is checked on a fixed interval and put back in the rotation once it answers again.
+ * Replicas are only checked for being up, not for how far they lag behind the primary;
+ * clients are kept on the primary for a while after their own writes to cover the usual
+ * replication lag.</p>
+ */
+public class ReplicaRoutingDataSource implements DataSource, Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Duration healthCheckInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<DataSource> healthy;
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * @param primary             Data source of the primary database.
+     * @param replicas            Data sources of the read replicas.
+     * @param healthCheckInterval How often every replica is checked.
+     * @param metrics             Registry for the healthy replica gauge.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas,
+                                    Duration healthCheckInterval, MetricRegistry metrics) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthy = new ArrayList<>(replicas);
+        metrics.register(MetricRegistry.name(ReplicaRoutingDataSource.class, "healthy-replicas"),
+            (Gauge<Integer>) () -> healthy.size());
+    }
+
+    @Override
+    public void start() {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = healthCheckInterval.toMilliseconds();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadConsistency.isReplicaAllowed()) {
+            List<DataSource> candidates = healthy;
+            for (int i = 0; i < candidates.size(); i++) {
+                DataSource replica = candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+                try {
+                    return replica.getConnection();
+                } catch (SQLException e) {
+                    markDown(replica, e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Checks every replica and makes the rotation the replicas that answered, in the
+     * order they were configured.
+     */
+    void checkReplicas() {
+        List<DataSource> up = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            DataSource replica = replicas.get(i);
+            try (Connection connection = replica.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    up.add(replica);
+                    continue;
+                }
+                LOGGER.warn("Read replica {} failed its health check", i);
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.warn("Read replica {} failed its health check", i, e);
+            }
+        }
+        synchronized (this) {
+            healthy = up;
+        }
+    }
+
+    private synchronized void markDown(DataSource replica, SQLException e) {
+        if (healthy.contains(replica)) {
+            LOGGER.warn("Taking read replica {} out of rotation", replicas.indexOf(replica), e);
+            List<DataSource> up = new ArrayList<>(healthy);
+            up.remove(replica);
+            healthy = up;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return primary.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.flashcardapp.db;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.ReviewEvent;
+import com.example.flashcardapp.core.ReviewSchedule;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC Data Access Object for users' SM-2 review schedules and review events.
+ */
+public class ReviewScheduleDAO {
+
+    private final DataSource dataSource;
+    private final QueryMetrics queryMetrics;
+
+    public ReviewScheduleDAO(DataSource dataSource) {
+        this(dataSource, QueryMetrics.unregistered());
+    }
+
+    public ReviewScheduleDAO(DataSource dataSource, QueryMetrics queryMetrics) {
+        this.dataSource = dataSource;
+        this.queryMetrics = queryMetrics;
+    }
+
+    /**
+     * Returns every review schedule of the given user.
+     */
+    public List<ReviewSchedule> findByUser(long userId) {
+        String sql = "SELECT user_id, flashcard_id, ease, interval_days, repetitions, due_at "
+                + "FROM review_schedules WHERE user_id = ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(ReviewScheduleDAO.class, "findByUser");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, userId);
+            List<ReviewSchedule> schedules = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    schedules.add(new ReviewSchedule(
+                        resultSet.getLong("user_id"),
+                        resultSet.getLong("flashcard_id"),
+                        resultSet.getDouble("ease"),
+                        resultSet.getInt("interval_days"),
+                        resultSet.getInt("repetitions"),
+                        resultSet.getTimestamp("due_at").toInstant()
+                    ));
+                }
+            }
+            return schedules;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load review schedules of user " + userId, e);
+        }
+    }
+
+    /**
+     * Logs the given review events and stores the schedules they produced, as two JDBC
+     * batches in a single transaction. Either every event is saved or none are.
+     */
+    public void saveAll(List<ReviewEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        String eventSql = "INSERT INTO review_events (user_id, flashcard_id, grade, reviewed_at) VALUES (?, ?, ?, ?)";
+        String scheduleSql = "INSERT INTO review_schedules (user_id, flashcard_id, ease, interval_days, repetitions, due_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE ease = VALUES(ease), interval_days = VALUES(interval_days), "
+                + "repetitions = VALUES(repetitions), due_at = VALUES(due_at)";
+        try (QueryMetrics.Context ignored = queryMetrics.time(ReviewScheduleDAO.class, "saveAll");
+             Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement eventStatement = connection.prepareStatement(eventSql);
+                 PreparedStatement scheduleStatement = connection.prepareStatement(scheduleSql)) {
+                for (ReviewEvent event : events) {
+                    eventStatement.setLong(1, event.getUserId());
+                    eventStatement.setLong(2, event.getFlashcardId());
+                    eventStatement.setInt(3, event.getGrade());
+                    eventStatement.setTimestamp(4, Timestamp.from(event.getReviewedAt()));
+                    eventStatement.addBatch();
+
+                    ReviewSchedule schedule = event.getSchedule();
+                    scheduleStatement.setLong(1, schedule.getUserId());
+                    scheduleStatement.setLong(2, schedule.getFlashcardId());
+                    scheduleStatement.setDouble(3, schedule.getEase());
+                    scheduleStatement.setInt(4, schedule.getIntervalDays());
+                    scheduleStatement.setInt(5, schedule.getRepetitions());
+                    scheduleStatement.setTimestamp(6, Timestamp.from(schedule.getDueAt()));
+                    scheduleStatement.addBatch();
+                }
+                eventStatement.executeBatch();
+                scheduleStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to save batch of " + events.size() + " review events", e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} flashcards the user has never reviewed, ordered by id.
+     */
+    public List<Flashcard> findUnreviewed(long userId, int limit) {
+        String sql = "SELECT f.id, f.question, f.answer, f.category, f.created_at, f.updated_at, f.version, f.user_id "
+                + "FROM flashcards f LEFT JOIN review_schedules r ON r.flashcard_id = f.id AND r.user_id = ? "
+                + "WHERE r.flashcard_id IS NULL ORDER BY f.id LIMIT ?";
+        try (QueryMetrics.Context ignored = queryMetrics.time(ReviewScheduleDAO.class, "findUnreviewed");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, userId);
+            statement.setInt(2, limit);
+            List<Flashcard> flashcards = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    flashcards.add(FlashcardDAO.mapRow(resultSet));
+                }
+            }
+            return flashcards;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load unreviewed flashcards of user " + userId, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.flashcardapp.loadtest;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The flashcard endpoints a load test can send requests to, by the name they have in
+ * the mix and the report.
+ */
+public enum Endpoint {
+
+    // GET /flashcards/{id}
+    GET_BY_ID("getById"),
+    // GET /flashcards?after=&limit=
+    LIST("list"),
+    // GET /flashcards/search?q=
+    SEARCH("search"),
+    // GET /flashcards/random?category=
+    RANDOM("random"),
+    // GET /flashcards/categories
+    CATEGORIES("categories"),
+    // POST /flashcards
+    CREATE("create"),
+    // PUT /flashcards/{id}
+    UPDATE("update");
+
+    private final String displayName;
+
+    Endpoint(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public static Endpoint fromDisplayName(String name) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.displayName.equals(name)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint " + name + " in the load test mix; expected one of "
+            + Arrays.stream(values()).map(Endpoint::getDisplayName).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.flashcardapp.loadtest;
+
+import com.example.flashcardapp.resources.FlashcardImportResource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends load test requests to the flashcard endpoints over HTTP, against a synthetic
+ * deck that it seeds first.
+ *
+ * <p>The deck is imported into a category of its own, so that the run can be told
+ * apart from real flashcards and its random draws stay within it. Questions and
+ * answers are made of a small vocabulary, which the text searches draw their queries
+ * from.</p>
+ */
+public class FlashcardApiClient implements RequestSender {
+
+    private static final String[] VOCABULARY = {
+        "capital", "river", "mountain", "element", "planet", "protein", "theorem", "verb",
+        "century", "treaty", "enzyme", "galaxy", "sonnet", "glacier", "molecule", "empire"
+    };
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final int PAGE_SIZE = 20;
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final String category;
+    private long[] ids = new long[0];
+
+    /**
+     * @param baseUrl        Where the service is listening, including any root path.
+     * @param requestTimeout Longest a request may take.
+     * @param objectMapper   Mapper for request and response bodies.
+     */
+    public FlashcardApiClient(String baseUrl, Duration requestTimeout, ObjectMapper objectMapper) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(requestTimeout)
+            .build();
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.category = "loadtest-" + System.currentTimeMillis();
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Imports {@code deckSize} flashcards with POST /flashcards/batch and reads back
+     * their IDs, page by page.
+     */
+    public void seed(int deckSize) throws IOException, InterruptedException {
+        for (int first = 0; first < deckSize; first += SEED_BATCH_SIZE) {
+            StringBuilder body = new StringBuilder();
+            for (int i = first; i < Math.min(deckSize, first + SEED_BATCH_SIZE); i++) {
+                body.append(flashcardJson(i)).append('\n');
+            }
+            HttpResponse<String> response = client.send(request("/flashcards/batch")
+                .header("Content-Type", FlashcardImportResource.APPLICATION_NDJSON)
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            check(response, "Seeding the deck");
+        }
+
+        long[] seeded = new long[deckSize];
+        int count = 0;
+        long after = 0;
+        while (true) {
+            HttpResponse<String> response = client.send(request("/flashcards/search?limit=1000&category="
+                + encode(category) + "&after=" + after).GET().build(), HttpResponse.BodyHandlers.ofString());
+            check(response, "Reading back the deck");
+            JsonNode page = objectMapper.readTree(response.body());
+            for (JsonNode flashcard : page) {
+                after = flashcard.get("id").asLong();
+                if (count < seeded.length) {
+                    seeded[count++] = after;
+                }
+            }
+            if (page.size() < 1000) {
+                break;
+            }
+        }
+        if (count == 0) {
+            throw new IllegalStateException("None of the seeded flashcards could be read back from " + baseUrl);
+        }
+        ids = count == seeded.length ? seeded : Arrays.copyOf(seeded, count);
+    }
+
+    @Override
+    public CompletionStage<Integer> send(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = ids[random.nextInt(ids.length)];
+        HttpRequest request;
+        switch (endpoint) {
+            case GET_BY_ID:
+                request = request("/flashcards/" + id).GET().build();
+                break;
+            case LIST:
+                request = request("/flashcards?limit=" + PAGE_SIZE + "&after=" + id).GET().build();
+                break;
+            case SEARCH:
+                request = request("/flashcards/search?limit=" + PAGE_SIZE + "&q="
+                    + VOCABULARY[random.nextInt(VOCABULARY.length)]).GET().build();
+                break;
+            case RANDOM:
+                request = request("/flashcards/random?n=10&category=" + encode(category)).GET().build();
+                break;
+            case CATEGORIES:
+                request = request("/flashcards/categories").GET().build();
+                break;
+            case CREATE:
+                request = request("/flashcards").header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(flashcardJson(random.nextInt()))).build();
+                break;
+            case UPDATE:
+                request = request("/flashcards/" + id).header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(flashcardJson(random.nextInt()))).build();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        }
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(requestTimeout);
+    }
+
+    private String flashcardJson(int n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, String> flashcard = new LinkedHashMap<>();
+        flashcard.put("question", "Which " + VOCABULARY[random.nextInt(VOCABULARY.length)] + " is number " + n + "?");
+        flashcard.put("answer", "The " + VOCABULARY[random.nextInt(VOCABULARY.length)] + " numbered " + n + ".");
+        flashcard.put("category", category);
+        try {
+            return objectMapper.writeValueAsString(flashcard);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void check(HttpResponse<String> response, String step) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(step + " failed with status " + response.statusCode() + ": "
+                + response.body());
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
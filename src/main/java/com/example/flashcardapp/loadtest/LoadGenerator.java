@@ -0,0 +1,164 @@
+package com.example.flashcardapp.loadtest;
+
+import io.dropwizard.util.Duration;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests to a weighted mix of endpoints at a fixed arrival rate, and records
+ * their latencies.
+ *
+ * <p>Request {@code i} is due at {@code i / requestsPerSecond} after the start, and its
+ * latency is measured from then rather than from when it was actually sent. A server
+ * that stalls therefore cannot hide the requests it held up: once
+ * {@code maxInFlight} requests are waiting, the ones due next are sent late, and the
+ * time they spent waiting to be sent counts towards their latency. Measuring from the
+ * send instead would report only the stalled requests as slow, which is the
+ * coordinated omission a closed-loop load generator suffers from.</p>
+ */
+public class LoadGenerator {
+
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final double requestsPerSecond;
+    private final int maxInFlight;
+
+    /**
+     * @param mix               Relative weight of each endpoint.
+     * @param requestsPerSecond Arrival rate.
+     * @param maxInFlight       Requests waiting for an answer at once.
+     */
+    public LoadGenerator(Map<Endpoint, Integer> mix, double requestsPerSecond, int maxInFlight) {
+        this.endpoints = new Endpoint[mix.size()];
+        this.cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Weight of " + entry.getKey().getDisplayName() + " is negative");
+            }
+            total += entry.getValue();
+            endpoints[i] = entry.getKey();
+            cumulativeWeights[i++] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The load test mix has no endpoint with a positive weight");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends requests for {@code warmup} plus {@code duration}, then waits for the last of
+     * them to be answered. Only requests due after the warmup are measured.
+     */
+    public LoadTestReport run(RequestSender sender, Duration warmup, Duration duration) throws InterruptedException {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : endpoints) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanoseconds();
+        long end = measureFrom + duration.toNanoseconds();
+
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due - end >= 0) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            Endpoint endpoint = pick();
+            boolean measured = due - measureFrom >= 0;
+            try {
+                sender.send(endpoint).whenComplete((status, failure) -> {
+                    if (measured) {
+                        stats.get(endpoint).record(System.nanoTime() - due, status, failure);
+                    }
+                    inFlight.release();
+                });
+            } catch (RuntimeException e) {
+                if (measured) {
+                    stats.get(endpoint).record(System.nanoTime() - due, null, e);
+                }
+                inFlight.release();
+            }
+        }
+        inFlight.acquire(maxInFlight);
+
+        double durationSeconds = duration.toNanoseconds() / (double) TimeUnit.SECONDS.toNanos(1);
+        LoadTestReport report = new LoadTestReport(requestsPerSecond, durationSeconds);
+        for (Endpoint endpoint : endpoints) {
+            report.getEndpoints().put(endpoint.getDisplayName(), stats.get(endpoint).report(durationSeconds));
+        }
+        return report;
+    }
+
+    private Endpoint pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= value) {
+            i++;
+        }
+        return endpoints[i];
+    }
+
+    /**
+     * Latencies and outcomes of the measured requests to one endpoint, recorded from
+     * the threads that complete them.
+     */
+    private static final class EndpointStats {
+
+        // Microseconds, to three significant digits
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder();
+
+        void record(long latencyNanos, Integer status, Throwable failure) {
+            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            if (failure != null || status == null) {
+                failures.increment();
+            } else {
+                statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+            }
+        }
+
+        LoadTestReport.EndpointReport report(double durationSeconds) {
+            Map<String, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(String.valueOf(status), count.sum()));
+            Map<String, Double> latencyMillis = new LinkedHashMap<>();
+            long requests = latencies.getTotalCount();
+            if (requests > 0) {
+                latencyMillis.put("p50", millis(latencies.getValueAtPercentile(50)));
+                latencyMillis.put("p90", millis(latencies.getValueAtPercentile(90)));
+                latencyMillis.put("p99", millis(latencies.getValueAtPercentile(99)));
+                latencyMillis.put("p99.9", millis(latencies.getValueAtPercentile(99.9)));
+                latencyMillis.put("p99.99", millis(latencies.getValueAtPercentile(99.99)));
+                latencyMillis.put("max", millis(latencies.getMaxValue()));
+                latencyMillis.put("mean", Math.round(latencies.getMean()) / 1000.0);
+            }
+            return new LoadTestReport.EndpointReport(requests, requests / durationSeconds, statusCounts,
+                failures.sum(), latencyMillis);
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.flashcardapp.loadtest;
+
+import com.example.flashcardapp.FlashcardAppConfiguration;
+import com.example.flashcardapp.LoadTestConfiguration;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load tests a running instance of the service, as configured under {@code loadTest}:
+ * seeds a synthetic deck, sends a mix of requests at a fixed arrival rate, and writes
+ * the latency percentiles and throughput per endpoint as JSON.
+ *
+ * <pre>java -jar flashcard-app.jar loadtest [--output report.json] config.yml</pre>
+ */
+public class LoadTestCommand extends ConfiguredCommand<FlashcardAppConfiguration> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestCommand.class);
+
+    public LoadTestCommand() {
+        super("loadtest", "Load tests a running flashcard service and reports latency percentiles as JSON");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("-o", "--output")
+            .dest("output")
+            .setDefault("loadtest-report.json")
+            .help("File the JSON report is written to");
+    }
+
+    @Override
+    protected void run(Bootstrap<FlashcardAppConfiguration> bootstrap, Namespace namespace,
+                       FlashcardAppConfiguration configuration) throws Exception {
+        LoadTestConfiguration loadTest = configuration.getLoadTest();
+        Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+        loadTest.getMix().forEach((name, weight) -> mix.put(Endpoint.fromDisplayName(name), weight));
+        LoadGenerator generator = new LoadGenerator(mix, loadTest.getRequestsPerSecond(), loadTest.getMaxInFlight());
+
+        FlashcardApiClient client = new FlashcardApiClient(loadTest.getBaseUrl(),
+            Duration.ofMillis(loadTest.getRequestTimeout().toMilliseconds()), bootstrap.getObjectMapper());
+        LOGGER.info("Seeding {} flashcards in category {} at {}", loadTest.getDeckSize(), client.getCategory(),
+            loadTest.getBaseUrl());
+        client.seed(loadTest.getDeckSize());
+
+        LOGGER.info("Sending {} requests per second for {} after a warmup of {}",
+            loadTest.getRequestsPerSecond(), loadTest.getDuration(), loadTest.getWarmup());
+        LoadTestReport report = generator.run(client, loadTest.getWarmup(), loadTest.getDuration());
+
+        File output = new File(namespace.getString("output"));
+        bootstrap.getObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, report);
+        LOGGER.info("Answered {} requests per second; report written to {}",
+            String.format("%.1f", report.getThroughput()), output.getAbsolutePath());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.flashcardapp.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a load test: throughput, status codes and latency percentiles per
+ * endpoint, over the measured part of the run.
+ */
+public class LoadTestReport {
+
+    // 1. Arrival rate the requests were sent at
+    private final double requestsPerSecond;
+
+    // 2. Length of the measured part of the run, after the warmup
+    private final double durationSeconds;
+
+    // 3. Per-endpoint results, in mix order
+    private final Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+
+    public LoadTestReport(double requestsPerSecond, double durationSeconds) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public Map<String, EndpointReport> getEndpoints() {
+        return endpoints;
+    }
+
+    public long getRequests() {
+        return endpoints.values().stream().mapToLong(EndpointReport::getRequests).sum();
+    }
+
+    public double getThroughput() {
+        return getRequests() / durationSeconds;
+    }
+
+    /**
+     * Results of the requests sent to one endpoint.
+     */
+    public static class EndpointReport {
+
+        private final long requests;
+        private final double throughput;
+        private final Map<String, Long> statuses;
+        private final long failures;
+        private final Map<String, Double> latencyMillis;
+
+        public EndpointReport(long requests, double throughput, Map<String, Long> statuses, long failures,
+                              Map<String, Double> latencyMillis) {
+            this.requests = requests;
+            this.throughput = throughput;
+            this.statuses = statuses;
+            this.failures = failures;
+            this.latencyMillis = latencyMillis;
+        }
+
+        /**
+         * @return Requests answered or failed.
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return Requests answered or failed per second.
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * @return Number of responses with each status code.
+         */
+        public Map<String, Long> getStatuses() {
+            return statuses;
+        }
+
+        /**
+         * @return Requests that got no response, e.g. because they timed out.
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return Latency percentiles, mean and maximum, measured from when each request
+         *         was due to be sent.
+         */
+        public Map<String, Double> getLatencyMillis() {
+            return latencyMillis;
+        }
+    }
+}
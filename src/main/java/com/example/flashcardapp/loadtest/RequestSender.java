@@ -0,0 +1,16 @@
+package com.example.flashcardapp.loadtest;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Sends one request to an endpoint without waiting for the answer.
+ */
+@FunctionalInterface
+public interface RequestSender {
+
+    /**
+     * @return Completes with the response's status code, or exceptionally if no
+     *         response came back.
+     */
+    CompletionStage<Integer> send(Endpoint endpoint);
+}
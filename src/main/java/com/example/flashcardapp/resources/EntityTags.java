@@ -0,0 +1,52 @@
+package com.example.flashcardapp.resources;
+
+import com.example.flashcardapp.core.Flashcard;
+
+import javax.ws.rs.core.EntityTag;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Validators for conditional requests on flashcards.
+ *
+ * <p>The strong entity tag of a flashcard is its id and {@code version}, the same
+ * counter the flashcard's writes check, so an {@code If-Match} and a {@code version}
+ * in a patch name the same thing. The tag of a list of flashcards is a hash of the
+ * ids and versions it holds, in order. {@code updatedAt} only serves as the
+ * {@code Last-Modified} date.</p>
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    static EntityTag of(Flashcard flashcard) {
+        return of(flashcard.getId(), flashcard.getVersion());
+    }
+
+    static EntityTag of(Long id, long version) {
+        return new EntityTag(id + "-" + Long.toHexString(version));
+    }
+
+    static EntityTag of(List<Flashcard> flashcards) {
+        long hash = 1;
+        for (Flashcard flashcard : flashcards) {
+            hash = 31 * hash + flashcard.getId();
+            hash = 31 * hash + flashcard.getVersion();
+        }
+        return new EntityTag(flashcards.size() + "-" + Long.toHexString(hash));
+    }
+
+    /**
+     * The {@code Last-Modified} date of a flashcard, or {@code null} if it has none.
+     * Timestamps are written in the server's time zone.
+     */
+    static Date lastModified(LocalDateTime updatedAt) {
+        if (updatedAt == null) {
+            return null;
+        }
+        return Date.from(updatedAt.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
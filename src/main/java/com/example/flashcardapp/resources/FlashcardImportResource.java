@@ -0,0 +1,125 @@
+package com.example.flashcardapp.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import com.example.flashcardapp.admission.AdmissionControlled;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardImporter;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.search.DuplicateDetector;
+import com.example.flashcardapp.snapshot.SnapshotFormat;
+import com.example.flashcardapp.snapshot.SnapshotFormatException;
+import com.example.flashcardapp.snapshot.SnapshotReader;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import javax.validation.Validator;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+
+/**
+ * RESTful API Resource for importing whole decks of Flashcards at once.
+ */
+@Path("/flashcards/batch")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Flashcard API", description = "Operations related to Flashcards")
+@AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+public class FlashcardImportResource {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final FlashcardStore flashcardStore;
+    private final ObjectReader flashcardReader;
+    private final Validator validator;
+    private final int chunkSize;
+    private final DuplicateDetector duplicateDetector;
+
+    /**
+     * Constructor injecting the import dependencies.
+     *
+     * @param flashcardStore    Where flashcards are kept.
+     * @param objectMapper      Mapper used to parse uploaded flashcards.
+     * @param validator         Validator applying the Flashcard constraints to each row.
+     * @param chunkSize         Number of rows written per batch.
+     * @param duplicateDetector Near-duplicate detector kept current with the store.
+     */
+    public FlashcardImportResource(FlashcardStore flashcardStore, ObjectMapper objectMapper,
+                                   Validator validator, int chunkSize, DuplicateDetector duplicateDetector) {
+        this.flashcardStore = flashcardStore;
+        this.flashcardReader = objectMapper.readerFor(Flashcard.class);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.duplicateDetector = duplicateDetector;
+    }
+
+    /**
+     * Imports flashcards from a JSON array or an NDJSON stream.
+     *
+     * <p>The upload is parsed one flashcard at a time and written in chunks, each chunk
+     * as one batch that is stored whole or not at all. Rows that fail validation are
+     * reported and skipped, as are rows that nearly repeat a stored flashcard or an
+     * earlier row of their chunk; a chunk whose batch fails is reported and the import
+     * carries on with the next chunk.</p>
+     *
+     * @param body Uploaded flashcards.
+     * @return Per-chunk import report.
+     */
+    @POST
+    @Consumes({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    @Timed
+    @Operation(summary = "Import flashcards in bulk", description = "Creates flashcards from a JSON array or NDJSON stream, written in chunked batches.")
+    public Response importFlashcards(InputStream body) throws IOException {
+        FlashcardImporter importer = new FlashcardImporter(flashcardStore, validator, chunkSize, duplicateDetector);
+        try (MappingIterator<Flashcard> rows = flashcardReader.readValues(body)) {
+            while (rows.hasNextValue()) {
+                try {
+                    importer.add(rows.nextValue());
+                } catch (JsonParseException e) {
+                    throw e;
+                } catch (JsonMappingException e) {
+                    importer.reject(e.getOriginalMessage());
+                }
+            }
+        } catch (JsonParseException e) {
+            importer.getReport().setError("Malformed JSON at row " + importer.getRow() + ": " + e.getOriginalMessage());
+        }
+        return Response.ok(importer.finish()).build();
+    }
+
+    /**
+     * Imports flashcards from a binary snapshot, as written by
+     * {@code GET /flashcards/export?format=snapshot}.
+     *
+     * <p>The snapshot is read a block at a time and written in chunks as for
+     * {@link #importFlashcards}. The flashcards get new IDs. A block that fails its
+     * checksum ends the import; the chunks before it stay imported.</p>
+     *
+     * @param body Uploaded snapshot.
+     * @return Per-chunk import report.
+     */
+    @POST
+    @Consumes(SnapshotFormat.MEDIA_TYPE)
+    @Timed
+    @Operation(summary = "Import a deck snapshot", description = "Creates flashcards from a binary deck snapshot, written in chunked batches.")
+    public Response importSnapshot(InputStream body) throws IOException {
+        FlashcardImporter importer = new FlashcardImporter(flashcardStore, validator, chunkSize, duplicateDetector);
+        try {
+            SnapshotReader reader = new SnapshotReader(Channels.newChannel(body));
+            Flashcard flashcard;
+            while ((flashcard = reader.next()) != null) {
+                importer.add(flashcard);
+            }
+        } catch (SnapshotFormatException e) {
+            importer.getReport().setError("Corrupt snapshot at row " + importer.getRow() + ": " + e.getMessage());
+        }
+        return Response.ok(importer.finish()).build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.flashcardapp.resources;
+
+import com.example.flashcardapp.shard.FlashcardOwner;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+
+/**
+ * Routes each request to the shard of the user named by its {@code X-User-Id} header.
+ *
+ * <p>Flashcards created by the request are owned by that user, and flashcards it looks
+ * up by id are looked for on that user's shard first. Requests without the header, or
+ * with one that is not a number, act for no user: their flashcards have no owner, and
+ * their lookups ask every shard.</p>
+ *
+ * <p>The owner of the serving thread is cleared once the response has been written.</p>
+ */
+@PreMatching
+public class FlashcardOwnerFilter implements ContainerRequestFilter, ApplicationEventListener {
+
+    private static final RequestEventListener CLEAR_OWNER = event -> {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            FlashcardOwner.clear();
+        }
+    };
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        FlashcardOwner.clear();
+        String userId = request.getHeaderString(StudyResource.USER_HEADER);
+        if (userId != null) {
+            try {
+                FlashcardOwner.set(Long.parseLong(userId.trim()));
+            } catch (NumberFormatException e) {
+                // Acting for no user
+            }
+        }
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return CLEAR_OWNER;
+    }
+}
@@ -1,16 +1,45 @@
 package com.example.flashcardapp.resources;
 
+import com.codahale.metrics.annotation.Timed;
+import com.example.flashcardapp.admission.AdmissionControlled;
+import com.example.flashcardapp.core.DuplicateCandidate;
 import com.example.flashcardapp.core.Flashcard;
-import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardLookup;
+import com.example.flashcardapp.core.FlashcardPatch;
+import com.example.flashcardapp.core.FlashcardVersion;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.db.ReadConsistency;
+import com.example.flashcardapp.search.CategorySearchCache;
+import com.example.flashcardapp.search.DuplicateDetector;
+import com.example.flashcardapp.search.FlashcardIndex;
+import com.example.flashcardapp.search.FlashcardSampler;
+import com.example.flashcardapp.snapshot.SnapshotFormat;
+import com.example.flashcardapp.snapshot.SnapshotWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * RESTful API Resource for managing Flashcards.
@@ -19,116 +48,617 @@ import java.util.Optional;
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "Flashcard API", description = "Operations related to Flashcards")
+@AdmissionControlled
 public class FlashcardResource {
 
-    private final FlashcardDAO flashcardDAO;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    private static final ObjectMapper EXPORT_MAPPER = Jackson.newObjectMapper();
+
+    private final FlashcardStore flashcardStore;
+    private final FlashcardIndex flashcardIndex;
+    private final FlashcardSampler flashcardSampler;
+    private final DuplicateDetector duplicateDetector;
+    private final CategorySearchCache categorySearchCache;
+    private final StoreExecutor storeExecutor;
 
     /**
-     * Constructor injecting the FlashcardDAO.
+     * Constructor injecting the flashcard store, the full-text index, the sampler, the
+     * duplicate detector, the category search cache and the executor of store calls.
      *
-     * @param flashcardDAO Data Access Object for Flashcards.
+     * @param flashcardStore      Where flashcards are kept.
+     * @param flashcardIndex      Full-text index over flashcard questions and answers.
+     * @param flashcardSampler    Random sampler over flashcard IDs.
+     * @param duplicateDetector   Near-duplicate detector over flashcard questions and answers.
+     * @param categorySearchCache Pages of category searches shared between requests.
+     * @param storeExecutor       Runs the store calls of requests, blocking or asynchronously.
      */
-    public FlashcardResource(FlashcardDAO flashcardDAO) {
-        this.flashcardDAO = flashcardDAO;
+    public FlashcardResource(FlashcardStore flashcardStore, FlashcardIndex flashcardIndex,
+                             FlashcardSampler flashcardSampler, DuplicateDetector duplicateDetector,
+                             CategorySearchCache categorySearchCache, StoreExecutor storeExecutor) {
+        this.flashcardStore = flashcardStore;
+        this.flashcardIndex = flashcardIndex;
+        this.flashcardSampler = flashcardSampler;
+        this.duplicateDetector = duplicateDetector;
+        this.categorySearchCache = categorySearchCache;
+        this.storeExecutor = storeExecutor;
+    }
+
+    /**
+     * Retrieves one page of flashcards, ordered by ID, or the flashcards with the given IDs.
+     *
+     * <p>Pages are addressed by keyset rather than offset: pass the ID of the last
+     * flashcard you received as {@code after} to fetch the next page. When more
+     * flashcards may follow, the response carries a {@code Link} header with
+     * {@code rel="next"} pointing at the next page.</p>
+     *
+     * <p>With {@code ids}, a comma-separated list of IDs, the flashcards with those IDs
+     * are returned instead, as for {@link #lookupFlashcards}.</p>
+     *
+     * @param ids     Comma-separated IDs of the flashcards to look up, if any.
+     * @param after   ID of the last flashcard from the previous page, if any.
+     * @param limit   Maximum number of flashcards to return.
+     * @param uriInfo URI context.
+     * @param request Request context, for {@code If-None-Match}.
+     * @return Page of Flashcards, or 304 if the client's copy of the page is current.
+     */
+    @GET
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Get flashcards", description = "Retrieves a page of flashcards ordered by ID, or the flashcards with the given IDs.")
+    public void getAllFlashcards(@QueryParam("ids") String ids,
+                                 @QueryParam("after") Long after,
+                                 @QueryParam("limit") @DefaultValue("" + DEFAULT_PAGE_SIZE) int limit,
+                                 @Context UriInfo uriInfo,
+                                 @Context Request request,
+                                 @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            if (ids != null) {
+                FlashcardLookup lookup = lookup(parseIds(ids));
+                return listResponse(lookup.getFlashcards(), lookup, request).build();
+            }
+            checkLimit(limit);
+            List<Flashcard> flashcards = flashcardStore.findPage(after, limit);
+            return pageResponse(flashcards, limit, uriInfo, request);
+        });
+    }
+
+    /**
+     * Retrieves the flashcards with the given IDs, for lists of IDs too long for a URL.
+     *
+     * <p>The flashcards are loaded with a single query and returned in the order their
+     * IDs were given, followed by the IDs that matched no flashcard.</p>
+     *
+     * @param ids IDs of the flashcards to look up, at most {@link #MAX_PAGE_SIZE}.
+     * @return The flashcards found and the IDs missing.
+     */
+    @POST
+    @Path("/lookup")
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Look up flashcards by ID", description = "Retrieves the flashcards with the given IDs in one request.")
+    public void lookupFlashcards(@NotNull List<Long> ids, @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> Response.ok(lookup(ids)).build());
+    }
+
+    /**
+     * Exports every flashcard as a single JSON array, or as a binary snapshot.
+     *
+     * <p>Rows are written to the response as they are read from the database cursor,
+     * so memory use does not grow with the size of the table. A snapshot is a fraction
+     * of the size of the JSON and is checksummed block by block; import it again with
+     * {@code POST /flashcards/batch}.</p>
+     *
+     * @param format {@code json}, or {@code snapshot} for the binary {@link SnapshotFormat}.
+     * @return Streamed JSON array or snapshot of all Flashcards.
+     */
+    @GET
+    @Path("/export")
+    @Produces({MediaType.APPLICATION_JSON, SnapshotFormat.MEDIA_TYPE})
+    @Timed
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Export all flashcards", description = "Streams every flashcard as one JSON array, or as a binary snapshot with format=snapshot.")
+    public Response exportFlashcards(@QueryParam("format") @DefaultValue("json") String format) {
+        if ("snapshot".equals(format)) {
+            StreamingOutput stream = output -> {
+                SnapshotWriter writer = new SnapshotWriter(Channels.newChannel(output));
+                try {
+                    flashcardStore.streamAll(flashcard -> {
+                        try {
+                            writer.write(flashcard);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.finish();
+            };
+            return Response.ok(stream, SnapshotFormat.MEDIA_TYPE).build();
+        }
+        if (!"json".equals(format)) {
+            throw new BadRequestException("Format must be json or snapshot.");
+        }
+        StreamingOutput stream = output -> {
+            try (JsonGenerator generator = EXPORT_MAPPER.getFactory().createGenerator(output)) {
+                generator.writeStartArray();
+                flashcardStore.streamAll(flashcard -> {
+                    try {
+                        generator.writeObject(flashcard);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return Response.ok(stream, MediaType.APPLICATION_JSON).build();
     }
 
     /**
-     * Retrieves a list of all flashcards.
+     * Retrieves the changes to the deck since a sync cursor.
+     *
+     * <p>Returns the flashcards created or updated and the IDs of the flashcards deleted
+     * since {@code since}, in commit order, with the cursor to pass as {@code since}
+     * next time. Start a sync from scratch with {@code since=0}. When more changes
+     * follow, the response also carries a {@code Link} header with {@code rel="next"}.
+     * When the flashcards are spread over several shards there is no single commit
+     * order, and the request fails with 501 Not Implemented.</p>
      *
-     * @return List of Flashcards.
+     * @param since   Cursor returned by the previous sync, or 0.
+     * @param limit   Maximum number of changes to return.
+     * @param uriInfo URI context.
+     * @return Page of changes.
      */
     @GET
-    @Operation(summary = "Get all flashcards", description = "Retrieves a list of all flashcards.")
-    public Response getAllFlashcards() {
-        List<Flashcard> flashcards = flashcardDAO.findAll();
-        return Response.ok(flashcards).build();
+    @Path("/changes")
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Get changes since a cursor", description = "Retrieves the flashcards created, updated or deleted since the given sync cursor.")
+    public void getChanges(@QueryParam("since") @DefaultValue("0") long since,
+                           @QueryParam("limit") @DefaultValue("" + DEFAULT_PAGE_SIZE) int limit,
+                           @Context UriInfo uriInfo,
+                           @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            checkLimit(limit);
+            if (since < 0) {
+                throw new BadRequestException("Since must not be negative.");
+            }
+            FlashcardChanges changes;
+            try {
+                changes = flashcardStore.findChanges(since, limit);
+            } catch (UnsupportedOperationException e) {
+                throw new ServerErrorException(e.getMessage(), Response.Status.NOT_IMPLEMENTED);
+            }
+            Response.ResponseBuilder response = Response.ok(changes);
+            if (changes.isHasMore()) {
+                URI next = uriInfo.getRequestUriBuilder()
+                        .replaceQueryParam("since", changes.getCursor())
+                        .replaceQueryParam("limit", limit)
+                        .build();
+                response.link(next, "next");
+            }
+            return response.build();
+        });
     }
 
     /**
      * Retrieves a specific flashcard by ID.
      *
-     * @param id ID of the flashcard.
+     * <p>The response carries a strong {@code ETag} and {@code Last-Modified}. A request
+     * with {@code If-None-Match} or {@code If-Modified-Since} is checked against the
+     * flashcard's version alone, and answered with 304 without loading the flashcard if
+     * the client's copy is current.</p>
+     *
+     * @param id      ID of the flashcard.
+     * @param headers Request headers.
+     * @param request Request context, for evaluating preconditions.
      * @return Flashcard if found.
      */
     @GET
     @Path("/{id}")
     @Operation(summary = "Get a flashcard by ID", description = "Retrieves a single flashcard by its unique ID.")
-    public Response getFlashcardById(@PathParam("id") Long id) {
-        Optional<Flashcard> flashcard = flashcardDAO.findById(id);
-        if (flashcard.isPresent()) {
-            return Response.ok(flashcard.get()).build();
-        } else {
-            throw new NotFoundException("Flashcard with ID " + id + " not found.");
-        }
+    public void getFlashcardById(@PathParam("id") Long id,
+                                 @Context HttpHeaders headers,
+                                 @Context Request request,
+                                 @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            if (headers.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null
+                    || headers.getHeaderString(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+                FlashcardVersion version = flashcardStore.findVersion(id)
+                    .orElseThrow(() -> new NotFoundException("Flashcard with ID " + id + " not found."));
+                Response.ResponseBuilder notModified = request.evaluatePreconditions(
+                    EntityTags.lastModified(version.getUpdatedAt()), EntityTags.of(id, version.getVersion()));
+                if (notModified != null) {
+                    return notModified.tag(EntityTags.of(id, version.getVersion()))
+                        .lastModified(EntityTags.lastModified(version.getUpdatedAt()))
+                        .build();
+                }
+            }
+            Optional<Flashcard> flashcard = flashcardStore.findById(id);
+            if (flashcard.isPresent()) {
+                return entityResponse(Response.ok(flashcard.get()), flashcard.get()).build();
+            } else {
+                throw new NotFoundException("Flashcard with ID " + id + " not found.");
+            }
+        });
     }
 
     /**
      * Creates a new flashcard.
      *
-     * @param flashcard Flashcard object to create.
-     * @param uriInfo   URI context.
+     * <p>The flashcard is first compared with the deck. Stored flashcards that are likely
+     * near-duplicates of it are named in {@code Link} headers with
+     * {@code rel="duplicate"}. If one of them is at least as similar as the reject
+     * threshold, the flashcard is not created and the response is 409, listing the
+     * candidates, unless {@code allowDuplicates} is true.</p>
+     *
+     * @param flashcard       Flashcard object to create.
+     * @param allowDuplicates Whether to create the flashcard even if it nearly repeats another.
+     * @param uriInfo         URI context.
      * @return Response with location of created flashcard.
      */
     @POST
-    @Operation(summary = "Create a new flashcard", description = "Creates a new flashcard with the provided details.")
-    public Response createFlashcard(@Valid Flashcard flashcard, @Context UriInfo uriInfo) {
-        Flashcard createdFlashcard = flashcardDAO.create(flashcard);
-        URI uri = uriInfo.getAbsolutePathBuilder().path(String.valueOf(createdFlashcard.getId())).build();
-        return Response.created(uri).entity(createdFlashcard).build();
+    @Operation(summary = "Create a new flashcard", description = "Creates a new flashcard with the provided details, unless it nearly repeats an existing one.")
+    public void createFlashcard(@Valid Flashcard flashcard,
+                                @QueryParam("allowDuplicates") boolean allowDuplicates,
+                                @Context UriInfo uriInfo,
+                                @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            List<DuplicateCandidate> duplicates =
+                duplicateDetector.findCandidates(flashcard.getQuestion(), flashcard.getAnswer());
+            if (!allowDuplicates && duplicateDetector.isDuplicate(duplicates)) {
+                throw new WebApplicationException(
+                    duplicateLinks(Response.status(Response.Status.CONFLICT).entity(duplicates), duplicates, uriInfo).build());
+            }
+            Flashcard createdFlashcard = flashcardStore.create(flashcard);
+            URI uri = uriInfo.getAbsolutePathBuilder().path(String.valueOf(createdFlashcard.getId())).build();
+            return duplicateLinks(entityResponse(Response.created(uri).entity(createdFlashcard), createdFlashcard),
+                duplicates, uriInfo).build();
+        });
     }
 
     /**
      * Updates an existing flashcard.
      *
+     * <p>With {@code If-Match} or {@code If-Unmodified-Since}, the flashcard is only
+     * updated if it has not changed since the client read it; otherwise the response is
+     * 412 and the flashcard is left as it is.</p>
+     *
      * @param id         ID of the flashcard to update.
      * @param flashcard  Flashcard object with updated details.
+     * @param headers    Request headers.
+     * @param request    Request context, for evaluating preconditions.
      * @return Updated Flashcard.
      */
     @PUT
     @Path("/{id}")
     @Operation(summary = "Update an existing flashcard", description = "Updates the flashcard identified by the given ID.")
-    public Response updateFlashcard(@PathParam("id") Long id, @Valid Flashcard flashcard) {
-        Optional<Flashcard> updatedFlashcard = flashcardDAO.update(id, flashcard);
-        if (updatedFlashcard.isPresent()) {
-            return Response.ok(updatedFlashcard.get()).build();
-        } else {
-            throw new NotFoundException("Flashcard with ID " + id + " not found.");
-        }
+    public void updateFlashcard(@PathParam("id") Long id, @Valid Flashcard flashcard,
+                                @Context HttpHeaders headers, @Context Request request,
+                                @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            Long expectedVersion = checkPreconditions(id, headers, request);
+            Optional<Flashcard> updatedFlashcard = flashcardStore.update(id, flashcard, expectedVersion);
+            if (updatedFlashcard.isPresent()) {
+                return entityResponse(Response.ok(updatedFlashcard.get()), updatedFlashcard.get()).build();
+            } else if (expectedVersion != null) {
+                throw new ClientErrorException(Response.Status.PRECONDITION_FAILED);
+            } else {
+                throw new NotFoundException("Flashcard with ID " + id + " not found.");
+            }
+        });
+    }
+
+    /**
+     * Applies a JSON Merge Patch to a flashcard.
+     *
+     * <p>Only the members present in the patch are changed, in one UPDATE with no read
+     * beforehand. Include the {@code version} of the flashcard the patch was made against
+     * to have it applied only if nobody has changed the flashcard since; otherwise the
+     * response is 409 and the flashcard is left as it is. {@code If-Match} and
+     * {@code If-Unmodified-Since} are applied as {@link #updateFlashcard} does, the ETag
+     * naming the same version.</p>
+     *
+     * @param id      ID of the flashcard to patch.
+     * @param patch   Members to change, and optionally the expected version.
+     * @param headers Request headers.
+     * @param request Request context, for evaluating preconditions.
+     * @return Patched Flashcard.
+     */
+    @PATCH
+    @Path("/{id}")
+    @Consumes({MERGE_PATCH_JSON, MediaType.APPLICATION_JSON})
+    @Operation(summary = "Patch a flashcard", description = "Changes only the given fields of the flashcard identified by the given ID.")
+    public void patchFlashcard(@PathParam("id") Long id, @NotNull @Valid FlashcardPatch patch,
+                               @Context HttpHeaders headers, @Context Request request,
+                               @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            if (patch.getChanges().isEmpty()) {
+                throw new BadRequestException("Patch must change the question, answer or category.");
+            }
+            Long expectedVersion = checkPreconditions(id, headers, request);
+            if (expectedVersion != null) {
+                if (patch.getVersion() != null && !patch.getVersion().equals(expectedVersion)) {
+                    throw changedSince(id, patch.getVersion());
+                }
+                patch.setVersion(expectedVersion);
+            }
+            Optional<Flashcard> patchedFlashcard = flashcardStore.patch(id, patch);
+            if (patchedFlashcard.isPresent()) {
+                return entityResponse(Response.ok(patchedFlashcard.get()), patchedFlashcard.get()).build();
+            } else if (expectedVersion != null) {
+                throw new ClientErrorException(Response.Status.PRECONDITION_FAILED);
+            } else if (patch.getVersion() != null
+                    && ReadConsistency.fromPrimary(() -> flashcardStore.findVersion(id)).isPresent()) {
+                throw changedSince(id, patch.getVersion());
+            } else {
+                throw new NotFoundException("Flashcard with ID " + id + " not found.");
+            }
+        });
     }
 
     /**
      * Deletes a flashcard by ID.
      *
-     * @param id ID of the flashcard to delete.
+     * <p>Applies {@code If-Match} and {@code If-Unmodified-Since} as {@link #updateFlashcard} does.</p>
+     *
+     * @param id      ID of the flashcard to delete.
+     * @param headers Request headers.
+     * @param request Request context, for evaluating preconditions.
      * @return Response indicating the outcome.
      */
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a flashcard", description = "Deletes the flashcard identified by the given ID.")
-    public Response deleteFlashcard(@PathParam("id") Long id) {
-        boolean deleted = flashcardDAO.delete(id);
-        if (deleted) {
-            return Response.noContent().build();
-        } else {
-            throw new NotFoundException("Flashcard with ID " + id + " not found.");
-        }
+    public void deleteFlashcard(@PathParam("id") Long id,
+                                @Context HttpHeaders headers, @Context Request request,
+                                @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            Long expectedVersion = checkPreconditions(id, headers, request);
+            boolean deleted = flashcardStore.delete(id, expectedVersion);
+            if (deleted) {
+                return Response.noContent().build();
+            } else if (expectedVersion != null) {
+                throw new ClientErrorException(Response.Status.PRECONDITION_FAILED);
+            } else {
+                throw new NotFoundException("Flashcard with ID " + id + " not found.");
+            }
+        });
     }
 
     /**
-     * Searches flashcards by category.
+     * Searches flashcards by text or by category.
      *
+     * <p>With {@code q}, returns the best matches for the query text in the question or
+     * answer, best first, optionally restricted to {@code category}; the last word of the
+     * query also matches as a prefix. Without {@code q}, returns the flashcards in
+     * {@code category} one page at a time, paged as for {@link #getAllFlashcards};
+     * concurrent requests for the same page share one query and its serialized
+     * response, which is also served to later requests for a short while.</p>
+     *
+     * @param q        Free-text query, if any.
      * @param category Category to search for.
-     * @return List of Flashcards matching the category.
+     * @param after    ID of the last flashcard from the previous page, for category search.
+     * @param limit    Maximum number of flashcards to return.
+     * @param uriInfo  URI context.
+     * @param request  Request context, for {@code If-None-Match}.
+     * @return Flashcards matching the search, or 304 if the client's copy is current.
      */
     @GET
     @Path("/search")
-    @Operation(summary = "Search flashcards by category", description = "Retrieves flashcards that belong to the specified category.")
-    public Response searchFlashcardsByCategory(@QueryParam("category") String category) {
-        if (category == null || category.isEmpty()) {
-            throw new BadRequestException("Category query parameter is required.");
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Search flashcards", description = "Retrieves flashcards matching a text query or belonging to the specified category.")
+    public void searchFlashcards(@QueryParam("q") String q,
+                                 @QueryParam("category") String category,
+                                 @QueryParam("after") Long after,
+                                 @QueryParam("limit") @DefaultValue("" + DEFAULT_PAGE_SIZE) int limit,
+                                 @Context UriInfo uriInfo,
+                                 @Context Request request,
+                                 @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            checkLimit(limit);
+            if (q != null && !q.isBlank()) {
+                List<Long> ids = flashcardIndex.search(q, category == null || category.isEmpty() ? null : category, limit);
+                List<Flashcard> flashcards = flashcardStore.findByIds(ids);
+                return listResponse(flashcards, flashcards, request).build();
+            }
+            if (category == null || category.isEmpty()) {
+                throw new BadRequestException("Either the q or the category query parameter is required.");
+            }
+            CategorySearchCache.CategoryPage page = categorySearchCache.get(category, after, limit,
+                () -> flashcardStore.findByCategory(category, after, limit));
+            return pageResponse(page.getFlashcards(), page.getJson(), limit, uriInfo, request);
+        });
+    }
+
+    /**
+     * Retrieves flashcards chosen at random, for a quiz.
+     *
+     * <p>Draws {@code n} different flashcards, from the whole deck or from
+     * {@code category}, in random order; fewer are returned if there are not that many.
+     * Pass a {@code seed} to draw the same quiz again while the deck is unchanged.</p>
+     *
+     * @param n        Number of flashcards to draw.
+     * @param category Category to draw from, if any.
+     * @param seed     Seed for a reproducible draw, if any.
+     * @return Randomly chosen Flashcards.
+     */
+    @GET
+    @Path("/random")
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Get random flashcards", description = "Retrieves flashcards drawn at random, optionally from one category.")
+    public void getRandomFlashcards(@QueryParam("n") @DefaultValue("10") int n,
+                                    @QueryParam("category") String category,
+                                    @QueryParam("seed") Long seed,
+                                    @Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> {
+            if (n < 1 || n > MAX_PAGE_SIZE) {
+                throw new BadRequestException("N must be between 1 and " + MAX_PAGE_SIZE + ".");
+            }
+            Random random = seed == null ? ThreadLocalRandom.current() : new Random(seed);
+            List<Long> ids = flashcardSampler.sample(category == null || category.isEmpty() ? null : category, n, random);
+            return Response.ok(flashcardStore.findByIds(ids)).build();
+        });
+    }
+
+    /**
+     * Retrieves the pairs of flashcards in the deck that are likely near-duplicates of
+     * each other.
+     *
+     * <p>Every flashcard is compared with the flashcards sharing a MinHash bucket with
+     * it, in parallel. Similarities are estimates; pairs much less alike than 0.5 are
+     * seldom found, so thresholds below that report only some of them.</p>
+     *
+     * @param threshold Smallest similarity to report, from 0.3 to 1; the candidate
+     *                  threshold by default.
+     * @param limit     Maximum number of pairs to return.
+     * @return The most similar pairs, most similar first.
+     */
+    @GET
+    @Path("/duplicates")
+    @Timed
+    @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+    @Operation(summary = "Find near-duplicate flashcards", description = "Retrieves the pairs of flashcards whose questions and answers nearly repeat each other.")
+    public Response getDuplicates(@QueryParam("threshold") Double threshold,
+                                  @QueryParam("limit") @DefaultValue("" + DEFAULT_PAGE_SIZE) int limit) {
+        checkLimit(limit);
+        double minSimilarity = threshold == null ? duplicateDetector.getCandidateThreshold() : threshold;
+        if (minSimilarity < 0.3 || minSimilarity > 1) {
+            throw new BadRequestException("Threshold must be between 0.3 and 1.");
+        }
+        return Response.ok(duplicateDetector.findAllDuplicates(minSimilarity, limit)).build();
+    }
+
+    /**
+     * Retrieves the number of flashcards in each category.
+     *
+     * @return Map of category name to flashcard count.
+     */
+    @GET
+    @Path("/categories")
+    @Operation(summary = "Count flashcards by category", description = "Retrieves the number of flashcards in each category.")
+    public void getCategoryCounts(@Suspended AsyncResponse asyncResponse) {
+        storeExecutor.resume(asyncResponse, () -> Response.ok(flashcardStore.countByCategory()).build());
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    private static List<Long> parseIds(String ids) {
+        List<Long> parsed = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            try {
+                parsed.add(Long.valueOf(id.trim()));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("IDs must be a comma-separated list of numbers.");
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Loads the flashcards with the given IDs in one query, in the order the IDs are
+     * given and without repeats, and lists the IDs that matched no flashcard.
+     */
+    private FlashcardLookup lookup(List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE || ids.contains(null)) {
+            throw new BadRequestException("Between 1 and " + MAX_PAGE_SIZE + " IDs are required.");
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Flashcard> flashcards = flashcardStore.findByIds(distinctIds);
+        Set<Long> found = new HashSet<>();
+        for (Flashcard flashcard : flashcards) {
+            found.add(flashcard.getId());
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinctIds) {
+            if (!found.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return new FlashcardLookup(flashcards, missing);
+    }
+
+    /**
+     * Evaluates {@code If-Match} and {@code If-Unmodified-Since} against the flashcard's
+     * current version, read from the primary: a lagging replica would fail a client's
+     * precondition with a version it has already moved past.
+     *
+     * @return The version the write must find in place, or {@code null} if the request
+     *         has no preconditions.
+     * @throws WebApplicationException 412 if the preconditions already fail.
+     */
+    private Long checkPreconditions(Long id, HttpHeaders headers, Request request) {
+        if (headers.getHeaderString(HttpHeaders.IF_MATCH) == null
+                && headers.getHeaderString(HttpHeaders.IF_UNMODIFIED_SINCE) == null) {
+            return null;
+        }
+        FlashcardVersion version = ReadConsistency.fromPrimary(() -> flashcardStore.findVersion(id))
+            .orElseThrow(() -> new NotFoundException("Flashcard with ID " + id + " not found."));
+        EntityTag tag = EntityTags.of(id, version.getVersion());
+        Response.ResponseBuilder failed = request.evaluatePreconditions(
+            EntityTags.lastModified(version.getUpdatedAt()), tag);
+        if (failed != null) {
+            throw new WebApplicationException(failed.tag(tag).build());
+        }
+        return version.getVersion();
+    }
+
+    private static ClientErrorException changedSince(Long id, Long version) {
+        return new ClientErrorException("Flashcard with ID " + id + " has changed since version "
+            + version + ".", Response.Status.CONFLICT);
+    }
+
+    private static Response.ResponseBuilder duplicateLinks(Response.ResponseBuilder response,
+                                                           List<DuplicateCandidate> duplicates, UriInfo uriInfo) {
+        for (DuplicateCandidate duplicate : duplicates) {
+            response.link(uriInfo.getBaseUriBuilder().path(FlashcardResource.class)
+                .path(String.valueOf(duplicate.getId())).build(), "duplicate");
+        }
+        return response;
+    }
+
+    private static Response.ResponseBuilder entityResponse(Response.ResponseBuilder response, Flashcard flashcard) {
+        return response.tag(EntityTags.of(flashcard))
+            .lastModified(EntityTags.lastModified(flashcard.getUpdatedAt()));
+    }
+
+    /**
+     * Builds a response for an entity holding a list of flashcards, tagged with the
+     * version of the list, or a 304 if the request's {@code If-None-Match} already names
+     * that version.
+     */
+    private static Response.ResponseBuilder listResponse(List<Flashcard> flashcards, Object entity, Request request) {
+        EntityTag tag = EntityTags.of(flashcards);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        return (notModified != null ? notModified : Response.ok(entity)).tag(tag);
+    }
+
+    /**
+     * Builds a response for one keyset page, linking to the next page when the page is full.
+     */
+    private static Response pageResponse(List<Flashcard> flashcards, int limit, UriInfo uriInfo, Request request) {
+        return pageResponse(flashcards, flashcards, limit, uriInfo, request);
+    }
+
+    private static Response pageResponse(List<Flashcard> flashcards, Object entity, int limit, UriInfo uriInfo,
+                                         Request request) {
+        Response.ResponseBuilder response = listResponse(flashcards, entity, request);
+        if (flashcards.size() == limit) {
+            Long nextCursor = flashcards.get(flashcards.size() - 1).getId();
+            URI next = uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", nextCursor)
+                    .replaceQueryParam("limit", limit)
+                    .build();
+            response.link(next, "next");
         }
-        List<Flashcard> flashcards = flashcardDAO.findByCategory(category);
-        return Response.ok(flashcards).build();
+        return response.build();
     }
 
 }
@@ -0,0 +1,93 @@
+package com.example.flashcardapp.resources;
+
+import com.example.flashcardapp.db.ReadConsistency;
+import io.dropwizard.util.Duration;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.NewCookie;
+
+/**
+ * Lets GET requests read from a replica, except for clients that wrote recently.
+ *
+ * <p>Every response to a write sets a short-lived cookie holding the time until which
+ * its client's reads go to the primary, so that a client reads back its own write even
+ * if the replicas have not applied it yet. Keeping the window in a cookie rather than
+ * on the server lets any server behind the load balancer honor it. Clients that send
+ * no cookies, or send them after the window, may read from a replica.</p>
+ *
+ * <p>The read consistency of the serving thread is cleared once the response, including
+ * any streamed entity, has been written.</p>
+ */
+@PreMatching
+public class ReadYourWritesFilter implements ContainerRequestFilter, ContainerResponseFilter, ApplicationEventListener {
+
+    static final String COOKIE = "flashcards-read-primary-until";
+
+    private static final RequestEventListener CLEAR_READ_CONSISTENCY = event -> {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            ReadConsistency.clear();
+        }
+    };
+
+    private final Duration window;
+
+    /**
+     * @param window How long after a write its client's reads go to the primary.
+     */
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        ReadConsistency.clear();
+        if (isRead(request.getMethod()) && !wroteRecently(request.getCookies().get(COOKIE))) {
+            ReadConsistency.allowReplica();
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (!isRead(request.getMethod())) {
+            long until = System.currentTimeMillis() + window.toMilliseconds();
+            int maxAgeSeconds = (int) Math.max(1, window.toSeconds());
+            response.getHeaders().add(HttpHeaders.SET_COOKIE, new NewCookie(COOKIE, Long.toString(until),
+                "/", null, Cookie.DEFAULT_VERSION, null, maxAgeSeconds, null, false, true));
+        }
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return CLEAR_READ_CONSISTENCY;
+    }
+
+    private static boolean isRead(String method) {
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+    }
+
+    private static boolean wroteRecently(Cookie cookie) {
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
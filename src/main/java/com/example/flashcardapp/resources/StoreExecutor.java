@@ -0,0 +1,197 @@
+package com.example.flashcardapp.resources;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.db.QueryTimeout;
+import com.example.flashcardapp.db.ReadConsistency;
+import com.example.flashcardapp.shard.FlashcardOwner;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the store calls of flashcard requests, either on the Jetty thread serving the
+ * request or on a bounded executor of their own.
+ *
+ * <p>In blocking mode a call runs on the calling thread, which resumes the request
+ * with its response before returning. Otherwise the call is queued for one of {@code threads} threads
+ * and the Jetty thread is free to serve other requests meanwhile, so the number of
+ * requests in progress is no longer capped by Jetty's pool but by the database's.
+ * Calls beyond {@code maxQueued} waiting ones are answered 503 at once. A request whose
+ * call has not completed within {@code timeout} is answered 503; if the call had not
+ * started yet it is skipped, and the statements of a call already running time out at
+ * the same deadline through {@link QueryTimeout}, so the call gives back its connection
+ * and its thread soon after rather than when the database is done.</p>
+ *
+ * <p>On a JDK with virtual threads every call gets a virtual thread and at most
+ * {@code threads} of them use the store at once. The request's {@link ReadConsistency}
+ * and {@link FlashcardOwner} are carried over to the thread running its call.</p>
+ */
+public class StoreExecutor implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreExecutor.class);
+
+    // Seconds a client is asked to wait after a 503
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int maxPending;
+    private final long timeoutNanos;
+    private final Meter rejected;
+    private final Meter timedOut;
+
+    private StoreExecutor() {
+        this.executor = null;
+        this.running = null;
+        this.maxPending = 0;
+        this.timeoutNanos = 0;
+        this.rejected = null;
+        this.timedOut = null;
+    }
+
+    /**
+     * @param threads        Store calls running at once.
+     * @param maxQueued      Store calls waiting for a thread at most.
+     * @param timeout        Longest a request waits for its store call.
+     * @param virtualThreads Whether to run calls on virtual threads when the JDK has them.
+     */
+    public StoreExecutor(int threads, int maxQueued, Duration timeout, boolean virtualThreads, MetricRegistry metrics) {
+        ExecutorService virtual = virtualThreads ? virtualThreadExecutor() : null;
+        if (virtual != null) {
+            this.executor = virtual;
+            this.running = new Semaphore(threads);
+            LOGGER.info("Running store calls on virtual threads, {} at once", threads);
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "flashcard-store-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.running = null;
+        }
+        this.maxPending = threads + maxQueued;
+        this.timeoutNanos = timeout.toNanoseconds();
+        this.rejected = metrics.meter(MetricRegistry.name(StoreExecutor.class, "rejected"));
+        this.timedOut = metrics.meter(MetricRegistry.name(StoreExecutor.class, "timed-out"));
+        metrics.register(MetricRegistry.name(StoreExecutor.class, "pending"), (Gauge<Integer>) pending::get);
+    }
+
+    /**
+     * @return An executor running every store call on the calling thread.
+     */
+    public static StoreExecutor blocking() {
+        return new StoreExecutor();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs {@code call} and resumes the suspended request with the response it returns,
+     * or with the exception it throws, to be mapped as if the resource had thrown it.
+     */
+    public void resume(AsyncResponse asyncResponse, Supplier<Response> call) {
+        if (executor == null) {
+            run(call, asyncResponse);
+            return;
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejected.mark();
+            asyncResponse.resume(new ServiceUnavailableException(
+                "Too many requests are waiting for the database.", RETRY_AFTER_SECONDS));
+            return;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        asyncResponse.setTimeoutHandler(timedOutResponse -> {
+            timedOut.mark();
+            timedOutResponse.resume(new ServiceUnavailableException(
+                "The database did not answer in time.", RETRY_AFTER_SECONDS));
+        });
+        asyncResponse.setTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        Long owner = FlashcardOwner.get();
+        boolean replicaAllowed = ReadConsistency.isReplicaAllowed();
+        try {
+            executor.execute(() -> runQueued(call, asyncResponse, owner, replicaAllowed, deadline));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            asyncResponse.resume(new ServiceUnavailableException("The server is shutting down.", RETRY_AFTER_SECONDS));
+        }
+    }
+
+    private void runQueued(Supplier<Response> call, AsyncResponse asyncResponse, Long owner, boolean replicaAllowed,
+                           long deadline) {
+        boolean acquired = false;
+        try {
+            if (running != null) {
+                running.acquire();
+                acquired = true;
+            }
+            // Skipping calls whose request has timed out while they waited
+            if (asyncResponse.isDone()) {
+                return;
+            }
+            FlashcardOwner.set(owner);
+            QueryTimeout.setDeadline(deadline);
+            if (replicaAllowed) {
+                ReadConsistency.allowReplica();
+            }
+            run(call, asyncResponse);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            asyncResponse.resume(new ServiceUnavailableException("The server is shutting down.", RETRY_AFTER_SECONDS));
+        } finally {
+            FlashcardOwner.clear();
+            QueryTimeout.clear();
+            ReadConsistency.clear();
+            if (acquired) {
+                running.release();
+            }
+            pending.decrementAndGet();
+        }
+    }
+
+    private static void run(Supplier<Response> call, AsyncResponse asyncResponse) {
+        Response response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            asyncResponse.resume(e);
+            return;
+        }
+        asyncResponse.resume(response);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() on JDKs that have it; the build targets Java 11
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
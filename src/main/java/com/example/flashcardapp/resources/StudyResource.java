@@ -0,0 +1,107 @@
+package com.example.flashcardapp.resources;
+
+import com.codahale.metrics.annotation.Timed;
+import com.example.flashcardapp.admission.AdmissionControlled;
+import com.example.flashcardapp.core.Review;
+import com.example.flashcardapp.core.ReviewSchedule;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.study.ReviewQueueFullException;
+import com.example.flashcardapp.study.StudyScheduler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * RESTful API Resource for studying Flashcards with spaced repetition.
+ *
+ * <p>The studying user is identified by the {@code X-User-Id} header.</p>
+ */
+@Path("/study")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Tag(name = "Study API", description = "Spaced-repetition study sessions")
+@AdmissionControlled
+public class StudyResource {
+
+    public static final String USER_HEADER = "X-User-Id";
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    private final StudyScheduler studyScheduler;
+    private final FlashcardStore flashcardStore;
+
+    /**
+     * Constructor injecting the scheduler and the flashcard store.
+     *
+     * @param studyScheduler Spaced-repetition scheduler.
+     * @param flashcardStore Where flashcards are kept.
+     */
+    public StudyResource(StudyScheduler studyScheduler, FlashcardStore flashcardStore) {
+        this.studyScheduler = studyScheduler;
+        this.flashcardStore = flashcardStore;
+    }
+
+    /**
+     * Retrieves the flashcards the user should study next.
+     *
+     * @param userId ID of the studying user.
+     * @param limit  Maximum number of flashcards to return.
+     * @return Due flashcards, most overdue first, followed by flashcards never studied.
+     */
+    @GET
+    @Path("/next")
+    @Timed
+    @Operation(summary = "Get flashcards to study", description = "Retrieves the flashcards due for review, topped up with new flashcards.")
+    public Response getNextFlashcards(@HeaderParam(USER_HEADER) Long userId,
+                                      @QueryParam("limit") @DefaultValue("" + DEFAULT_BATCH_SIZE) int limit) {
+        checkUser(userId);
+        if (limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_BATCH_SIZE + ".");
+        }
+        return Response.ok(studyScheduler.next(userId, limit)).build();
+    }
+
+    /**
+     * Records a review of a flashcard and reschedules it.
+     *
+     * @param userId ID of the studying user.
+     * @param id     ID of the reviewed flashcard.
+     * @param review Grade given by the user.
+     * @return The flashcard's new schedule, or 429 if reviews are arriving faster than
+     *         they can be written.
+     */
+    @POST
+    @Path("/{id}/review")
+    @Timed
+    @Operation(summary = "Review a flashcard", description = "Records the user's grade for a flashcard and schedules its next review.")
+    public Response reviewFlashcard(@HeaderParam(USER_HEADER) Long userId,
+                                    @PathParam("id") Long id,
+                                    @NotNull @Valid Review review) {
+        checkUser(userId);
+        if (!flashcardStore.findById(id).isPresent()) {
+            throw new NotFoundException("Flashcard with ID " + id + " not found.");
+        }
+        try {
+            ReviewSchedule schedule = studyScheduler.review(userId, id, review.getGrade());
+            return Response.ok(schedule).build();
+        } catch (ReviewQueueFullException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+    }
+
+    private static void checkUser(Long userId) {
+        if (userId == null) {
+            throw new BadRequestException(USER_HEADER + " header is required.");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.flashcardapp.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times the requests served by resource methods that suspend them, from the start of
+ * the method until the response has been written, under the name {@code @Timed} would
+ * give the method.
+ *
+ * <p>{@code @Timed} stops its timer when the resource method returns, which for a
+ * suspended request is as soon as its store call has been handed to the
+ * {@link StoreExecutor}, so these methods are not annotated with it.</p>
+ */
+public class SuspendedRequestTimer implements ApplicationEventListener {
+
+    private final MetricRegistry metrics;
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public SuspendedRequestTimer(MetricRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return new RequestTimer();
+    }
+
+    private Timer timer(Method method) {
+        return timers.computeIfAbsent(method,
+            m -> metrics.timer(MetricRegistry.name(m.getDeclaringClass(), m.getName())));
+    }
+
+    private final class RequestTimer implements RequestEventListener {
+
+        // Started on the Jetty thread, stopped on the thread resuming the request
+        private volatile Timer.Context context;
+
+        @Override
+        public void onEvent(RequestEvent event) {
+            if (event.getType() == RequestEvent.Type.RESOURCE_METHOD_START) {
+                ResourceMethod method = event.getUriInfo().getMatchedResourceMethod();
+                if (method != null && method.isSuspendDeclared()) {
+                    context = timer(method.getInvocable().getDefinitionMethod()).time();
+                }
+            } else if (event.getType() == RequestEvent.Type.FINISHED && context != null) {
+                context.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.flashcardapp.search;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardListener;
+import com.example.flashcardapp.db.ReadConsistency;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.dropwizard.util.Duration;
+
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Shares the pages of a category search between the requests asking for them.
+ *
+ * <p>When many clients ask for the same page of a category at once, as a class does
+ * when a study session starts, the first request loads it and the others wait for
+ * that load and share its flashcards and JSON, rather than each running the same
+ * query and serializing the same page. A loaded page is then served to later requests
+ * for {@code resultTtl}.</p>
+ *
+ * <p>Every page is loaded and cached under the category's current generation, which
+ * a write to the category advances, so a write drops the category's pages at once and
+ * no request starting after a write joins a load that began before it. A flashcard
+ * moved or deleted out of a category advances the categories of the cached pages
+ * holding it too; a flashcard is tracked only while a cached page holds it.
+ * Pages read from a replica are kept apart from pages read from the primary, so a
+ * request that must read its own writes never gets a replica's page. Writes made
+ * through other servers are seen once the page expires.</p>
+ */
+public class CategorySearchCache implements FlashcardListener {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<PageKey, CategoryPage> pages;
+    private final ConcurrentMap<PageKey, CompletableFuture<CategoryPage>> loading = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> generations = new ConcurrentHashMap<>();
+
+    // Cached pages holding each flashcard, counted by the category they were cached under
+    private final ConcurrentMap<Long, ConcurrentMap<String, Integer>> categories = new ConcurrentHashMap<>();
+
+    private final Meter hits;
+    private final Meter loads;
+    private final Meter coalesced;
+
+    /**
+     * @param resultTtl  How long a loaded page is served; zero only shares a page between
+     *                   the requests waiting for it.
+     * @param maxResults Pages kept at most.
+     */
+    public CategorySearchCache(ObjectMapper objectMapper, Duration resultTtl, int maxResults, MetricRegistry metrics) {
+        this.objectMapper = objectMapper;
+        this.pages = resultTtl.toNanoseconds() > 0
+            ? Caffeine.newBuilder()
+                .expireAfterWrite(resultTtl.toNanoseconds(), TimeUnit.NANOSECONDS)
+                .maximumSize(maxResults)
+                .executor(Runnable::run)
+                .removalListener((PageKey key, CategoryPage page, RemovalCause cause) -> untrack(key, page))
+                .build()
+            : null;
+        this.hits = metrics.meter(MetricRegistry.name(CategorySearchCache.class, "hits"));
+        this.loads = metrics.meter(MetricRegistry.name(CategorySearchCache.class, "loads"));
+        this.coalesced = metrics.meter(MetricRegistry.name(CategorySearchCache.class, "coalesced"));
+        metrics.register(MetricRegistry.name(CategorySearchCache.class, "tracked"), (Gauge<Integer>) categories::size);
+    }
+
+    /**
+     * Returns the page of {@code category} after {@code afterId}, from the cache, from a
+     * load already under way, or else from {@code loader}, run on the calling thread.
+     */
+    public CategoryPage get(String category, Long afterId, int limit, Supplier<List<Flashcard>> loader) {
+        PageKey key = new PageKey(category, afterId, limit, ReadConsistency.isReplicaAllowed(),
+            generations.getOrDefault(category, 0L));
+        if (pages != null) {
+            CategoryPage page = pages.getIfPresent(key);
+            if (page != null) {
+                hits.mark();
+                return page;
+            }
+        }
+        CompletableFuture<CategoryPage> load = new CompletableFuture<>();
+        CompletableFuture<CategoryPage> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            coalesced.mark();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+        loads.mark();
+        try {
+            List<Flashcard> flashcards = Collections.unmodifiableList(loader.get());
+            CategoryPage page = new CategoryPage(flashcards, objectMapper.writeValueAsBytes(flashcards));
+            if (pages != null) {
+                track(category, flashcards);
+                pages.put(key, page);
+            }
+            load.complete(page);
+            return page;
+        } catch (JsonProcessingException e) {
+            UncheckedIOException failure = new UncheckedIOException(e);
+            load.completeExceptionally(failure);
+            throw failure;
+        } catch (Throwable e) {
+            // Whatever the load failed with, searches waiting on it must not wait forever
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    @Override
+    public void onCreated(Flashcard flashcard) {
+        invalidate(flashcard.getCategory());
+    }
+
+    @Override
+    public void onUpdated(Flashcard flashcard) {
+        invalidateCached(flashcard.getId());
+        invalidate(flashcard.getCategory());
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        invalidateCached(id);
+    }
+
+    private void track(String category, List<Flashcard> flashcards) {
+        for (Flashcard flashcard : flashcards) {
+            categories.compute(flashcard.getId(), (id, counts) -> {
+                ConcurrentMap<String, Integer> updated = counts != null ? counts : new ConcurrentHashMap<>();
+                updated.merge(category, 1, Integer::sum);
+                return updated;
+            });
+        }
+    }
+
+    // Called as a page leaves the cache, whether evicted, expired or replaced
+    private void untrack(PageKey key, CategoryPage page) {
+        if (key == null || page == null) {
+            return;
+        }
+        for (Flashcard flashcard : page.getFlashcards()) {
+            categories.computeIfPresent(flashcard.getId(), (id, counts) -> {
+                counts.computeIfPresent(key.category, (category, count) -> count == 1 ? null : count - 1);
+                return counts.isEmpty() ? null : counts;
+            });
+        }
+    }
+
+    private void invalidateCached(Long id) {
+        ConcurrentMap<String, Integer> counts = categories.get(id);
+        if (counts != null) {
+            counts.keySet().forEach(this::invalidate);
+        }
+    }
+
+    private void invalidate(String category) {
+        if (category != null) {
+            generations.merge(category, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * One page of a category search, with the JSON array it is served as. Shared between
+     * requests, so neither must be modified.
+     */
+    public static final class CategoryPage {
+
+        private final List<Flashcard> flashcards;
+        private final byte[] json;
+
+        CategoryPage(List<Flashcard> flashcards, byte[] json) {
+            this.flashcards = flashcards;
+            this.json = json;
+        }
+
+        public List<Flashcard> getFlashcards() {
+            return flashcards;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+    }
+
+    private static final class PageKey {
+
+        private final String category;
+        private final Long afterId;
+        private final int limit;
+        private final boolean fromReplica;
+        private final long generation;
+
+        PageKey(String category, Long afterId, int limit, boolean fromReplica, long generation) {
+            this.category = category;
+            this.afterId = afterId;
+            this.limit = limit;
+            this.fromReplica = fromReplica;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) o;
+            return limit == other.limit && fromReplica == other.fromReplica && generation == other.generation
+                && category.equals(other.category) && Objects.equals(afterId, other.afterId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, afterId, limit, fromReplica, generation);
+        }
+    }
+}
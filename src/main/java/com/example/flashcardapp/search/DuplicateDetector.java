@@ -0,0 +1,385 @@
+package com.example.flashcardapp.search;
+
+import com.example.flashcardapp.core.DuplicateCandidate;
+import com.example.flashcardapp.core.DuplicatePair;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds flashcards whose question and answer nearly repeat another's, with MinHash
+ * signatures and locality-sensitive hashing.
+ *
+ * <p>The question and answer are lowercased, reduced to letters and digits, and cut into
+ * overlapping three-character shingles. Each flashcard keeps a signature of
+ * {@value #HASHES} minimum shingle hashes, one per hash function; the share of equal
+ * positions in two signatures estimates the Jaccard similarity of their shingle sets.
+ * Signatures are split into {@value #BANDS} bands of {@value #ROWS} positions, and each
+ * band is hashed into a bucket, so only flashcards sharing a bucket in at least one band
+ * are compared. Pairs at a similarity of 0.7 share a bucket nearly 99% of the time,
+ * pairs at 0.3 less than 13% of the time.</p>
+ *
+ * <p>Lookups run concurrently under a read lock; changes take the write lock.</p>
+ */
+public class DuplicateDetector implements FlashcardListener {
+
+    static final int HASHES = 64;
+    static final int BANDS = 16;
+    static final int ROWS = HASHES / BANDS;
+    static final int MAX_CANDIDATES = 10;
+
+    // Flashcards compared per fork-join task in a full scan
+    private static final int SCAN_CHUNK = 512;
+
+    private static final long[] SEEDS = new SplittableRandom(42).longs(HASHES).toArray();
+
+    private static final Comparator<DuplicateCandidate> BY_SIMILARITY =
+        Comparator.comparingDouble(DuplicateCandidate::getSimilarity).reversed()
+            .thenComparingLong(DuplicateCandidate::getId);
+
+    private final double candidateThreshold;
+    private final double rejectThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, int[]> signatures = new HashMap<>();
+
+    // Flashcard ids by band key; a key mixes the band number with its signature positions
+    private final Map<Long, long[]> buckets = new HashMap<>();
+
+    /**
+     * @param candidateThreshold Similarity from which flashcards are reported as possible duplicates.
+     * @param rejectThreshold    Similarity from which a new flashcard counts as a duplicate.
+     */
+    public DuplicateDetector(double candidateThreshold, double rejectThreshold) {
+        this.candidateThreshold = candidateThreshold;
+        this.rejectThreshold = rejectThreshold;
+    }
+
+    public double getCandidateThreshold() {
+        return candidateThreshold;
+    }
+
+    public double getRejectThreshold() {
+        return rejectThreshold;
+    }
+
+    /**
+     * Adds a flashcard, replacing its signature if it is already held.
+     */
+    public void add(Flashcard flashcard) {
+        add(flashcard.getId(), flashcard.getQuestion(), flashcard.getAnswer());
+    }
+
+    /**
+     * Adds a question and answer under the given id, replacing any held under it.
+     */
+    public void add(long id, String question, String answer) {
+        int[] signature = signature(question, answer);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            signatures.put(id, signature);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.merge(bandKey(signature, band), new long[]{id}, DuplicateDetector::append);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a flashcard if it is held.
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every flashcard.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            signatures.clear();
+            buckets.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the held flashcards at least as similar to the given question and answer as
+     * the candidate threshold.
+     *
+     * @return Up to {@value #MAX_CANDIDATES} candidates, most similar first.
+     */
+    public List<DuplicateCandidate> findCandidates(String question, String answer) {
+        int[] signature = signature(question, answer);
+        lock.readLock().lock();
+        try {
+            List<DuplicateCandidate> candidates = new ArrayList<>();
+            for (long id : neighbours(signature)) {
+                double similarity = similarity(signature, signatures.get(id));
+                if (similarity >= candidateThreshold) {
+                    candidates.add(new DuplicateCandidate(id, similarity));
+                }
+            }
+            candidates.sort(BY_SIMILARITY);
+            return candidates.size() > MAX_CANDIDATES ? new ArrayList<>(candidates.subList(0, MAX_CANDIDATES)) : candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param candidates Candidates from {@link #findCandidates}, most similar first.
+     * @return Whether the most similar candidate reaches the reject threshold.
+     */
+    public boolean isDuplicate(List<DuplicateCandidate> candidates) {
+        return !candidates.isEmpty() && candidates.get(0).getSimilarity() >= rejectThreshold;
+    }
+
+    /**
+     * Finds every pair of held flashcards at least {@code minSimilarity} alike.
+     *
+     * <p>The held ids are split into ranges that are compared with their bucket
+     * neighbours in parallel on the common fork-join pool. Each range takes the read
+     * lock on its own, so changes are only held up for one range at a time, and a
+     * change made during the scan may or may not be reflected.</p>
+     *
+     * @param minSimilarity Smallest similarity to report.
+     * @param limit         Maximum number of pairs to return.
+     * @return The most similar pairs, most similar first.
+     */
+    public List<DuplicatePair> findAllDuplicates(double minSimilarity, int limit) {
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            ids = signatures.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<DuplicatePair> pairs = ForkJoinPool.commonPool().invoke(new ScanTask(ids, 0, ids.length, minSimilarity));
+        pairs.sort(Comparator.comparingDouble(DuplicatePair::getSimilarity).reversed()
+            .thenComparingLong(DuplicatePair::getFirstId)
+            .thenComparingLong(DuplicatePair::getSecondId));
+        return pairs.size() > limit ? new ArrayList<>(pairs.subList(0, limit)) : pairs;
+    }
+
+    /**
+     * @return Number of flashcards held.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return signatures.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Flashcard flashcard) {
+        add(flashcard);
+    }
+
+    @Override
+    public void onUpdated(Flashcard flashcard) {
+        add(flashcard);
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        remove(id);
+    }
+
+    /**
+     * Ids sharing a bucket with the signature in at least one band.
+     */
+    private Set<Long> neighbours(int[] signature) {
+        Set<Long> ids = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            long[] bucket = buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                for (long id : bucket) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void removeLocked(long id) {
+        int[] signature = signatures.remove(id);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(signature, band);
+            long[] bucket = buckets.get(key);
+            if (bucket.length == 1) {
+                buckets.remove(key);
+            } else {
+                long[] remaining = new long[bucket.length - 1];
+                int j = 0;
+                for (long other : bucket) {
+                    if (other != id) {
+                        remaining[j++] = other;
+                    }
+                }
+                buckets.put(key, remaining);
+            }
+        }
+    }
+
+    static int[] signature(String question, String answer) {
+        String text = normalize(question) + " " + normalize(answer);
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, text.length() - 2);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = (long) text.charAt(start) << 32;
+            if (start + 1 < text.length()) {
+                shingle |= (long) text.charAt(start + 1) << 16;
+            }
+            if (start + 2 < text.length()) {
+                shingle |= text.charAt(start + 2);
+            }
+            for (int i = 0; i < HASHES; i++) {
+                int hash = (int) (mix(shingle ^ SEEDS[i]) >>> 32);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / HASHES;
+    }
+
+    /**
+     * Lowercases the text and replaces each run of characters other than letters and
+     * digits with one space.
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(lower.length());
+        boolean space = true;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        return space && length > 0 ? normalized.substring(0, length - 1) : normalized.toString();
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            key = mix(key * 31 + signature[i]);
+        }
+        return key;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long[] append(long[] bucket, long[] id) {
+        long[] grown = Arrays.copyOf(bucket, bucket.length + 1);
+        grown[bucket.length] = id[0];
+        return grown;
+    }
+
+    /**
+     * Compares each flashcard in a range of ids with its bucket neighbours of higher id,
+     * splitting the range in two while it is larger than {@link #SCAN_CHUNK}.
+     */
+    private final class ScanTask extends RecursiveTask<List<DuplicatePair>> {
+
+        private final long[] ids;
+        private final int from;
+        private final int to;
+        private final double minSimilarity;
+
+        ScanTask(long[] ids, int from, int to, double minSimilarity) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.minSimilarity = minSimilarity;
+        }
+
+        @Override
+        protected List<DuplicatePair> compute() {
+            if (to - from > SCAN_CHUNK) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(ids, from, middle, minSimilarity);
+                left.fork();
+                List<DuplicatePair> pairs = new ScanTask(ids, middle, to, minSimilarity).compute();
+                pairs.addAll(left.join());
+                return pairs;
+            }
+            List<DuplicatePair> pairs = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                for (int i = from; i < to; i++) {
+                    long id = ids[i];
+                    int[] signature = signatures.get(id);
+                    if (signature == null) {
+                        continue;
+                    }
+                    for (long other : neighbours(signature)) {
+                        if (other <= id) {
+                            continue;
+                        }
+                        double similarity = similarity(signature, signatures.get(other));
+                        if (similarity >= minSimilarity) {
+                            pairs.add(new DuplicatePair(id, other, similarity));
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return pairs;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.example.flashcardapp.search;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over flashcard questions and answers, ranked with BM25.
+ *
+ * <p>Each indexed flashcard gets a dense internal document number. Postings lists hold
+ * document numbers and term frequencies in primitive arrays, and the term dictionary is
+ * sorted so the last word of a query can be matched as a prefix. Removing a flashcard
+ * only marks its document dead; postings lists drop dead entries once they make up half
+ * the list, and the document numbers are reassigned once dead documents outnumber live
+ * ones.</p>
+ *
+ * <p>Searches run concurrently under a read lock; changes take the write lock.</p>
+ */
+public class FlashcardIndex implements FlashcardListener {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    static final int MAX_PREFIX_EXPANSIONS = 32;
+
+    private static final ThreadLocal<Accumulator> ACCUMULATOR = ThreadLocal.withInitial(Accumulator::new);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> docsById = new HashMap<>();
+
+    // Per-document state, indexed by document number; length is -1 once removed
+    private long[] ids = new long[1024];
+    private int[] lengths = new int[1024];
+    private String[] categories = new String[1024];
+    private Postings[][] docTerms = new Postings[1024][];
+
+    private int nextDoc;
+    private int liveDocs;
+    private long totalLength;
+
+    /**
+     * Adds a flashcard to the index, replacing any earlier version of it.
+     */
+    public void add(Flashcard flashcard) {
+        List<String> tokens = tokenize(flashcard.getQuestion());
+        tokens.addAll(tokenize(flashcard.getAnswer()));
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(flashcard.getId());
+            ensureCapacity(nextDoc + 1);
+            int doc = nextDoc++;
+            Postings[] postings = new Postings[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings termPostings = terms.computeIfAbsent(entry.getKey(), Postings::new);
+                termPostings.add(doc, entry.getValue());
+                postings[i++] = termPostings;
+            }
+            ids[doc] = flashcard.getId();
+            lengths[doc] = tokens.size();
+            categories[doc] = flashcard.getCategory();
+            docTerms[doc] = postings;
+            docsById.put(flashcard.getId(), doc);
+            liveDocs++;
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a flashcard from the index if it is present.
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best matching flashcards, best first.
+     *
+     * <p>Every word of the query must match a word of the question or answer exactly,
+     * except the last, which also matches any word it is a prefix of. Flashcards are
+     * ranked by their BM25 score summed over the matched terms.</p>
+     *
+     * @param query    Free-text query.
+     * @param category Category to restrict results to, or {@code null} for all.
+     * @param limit    Maximum number of ids to return.
+     * @return Matching flashcard ids, best match first.
+     */
+    public List<Long> search(String query, String category, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return Collections.emptyList();
+            }
+            Set<Postings> matched = new LinkedHashSet<>();
+            for (int i = 0; i < queryTerms.size() - 1; i++) {
+                Postings postings = terms.get(queryTerms.get(i));
+                if (postings != null) {
+                    matched.add(postings);
+                }
+            }
+            String prefix = queryTerms.get(queryTerms.size() - 1);
+            int expansions = 0;
+            for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                matched.add(postings);
+            }
+
+            Accumulator accumulator = ACCUMULATOR.get();
+            accumulator.reset(nextDoc);
+            try {
+                float averageLength = (float) totalLength / liveDocs;
+                for (Postings postings : matched) {
+                    score(postings, category, averageLength, accumulator);
+                }
+                return topDocs(accumulator, limit);
+            } finally {
+                accumulator.clear();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of flashcards in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Flashcard flashcard) {
+        add(flashcard);
+    }
+
+    @Override
+    public void onUpdated(Flashcard flashcard) {
+        add(flashcard);
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        remove(id);
+    }
+
+    /**
+     * Splits text into lower-case runs of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void score(Postings postings, String category, float averageLength, Accumulator accumulator) {
+        float idf = (float) Math.log(1 + (liveDocs - postings.live + 0.5) / (postings.live + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            int doc = postings.docs[i];
+            int length = lengths[doc];
+            if (length < 0 || (category != null && !category.equals(categories[doc]))) {
+                continue;
+            }
+            int frequency = postings.frequencies[i];
+            float norm = K1 * (1 - B + B * length / averageLength);
+            accumulator.add(doc, idf * frequency * (K1 + 1) / (frequency + norm));
+        }
+    }
+
+    /**
+     * Selects the {@code limit} highest scoring documents with a bounded min-heap.
+     */
+    private List<Long> topDocs(Accumulator accumulator, int limit) {
+        int[] heap = new int[Math.min(limit, accumulator.touchedCount)];
+        int heapSize = 0;
+        for (int i = 0; i < accumulator.touchedCount; i++) {
+            int doc = accumulator.touched[i];
+            if (heapSize < heap.length) {
+                heap[heapSize] = doc;
+                siftUp(heap, heapSize++, accumulator.scores);
+            } else if (heapSize > 0 && ranksBefore(doc, heap[0], accumulator.scores)) {
+                heap[0] = doc;
+                siftDown(heap, heapSize, accumulator.scores);
+            }
+        }
+        Long[] result = new Long[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = ids[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i, accumulator.scores);
+        }
+        return Arrays.asList(result);
+    }
+
+    private boolean ranksBefore(int a, int b, float[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && ids[a] < ids[b]);
+    }
+
+    private void siftUp(int[] heap, int index, float[] scores) {
+        int doc = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(heap[parent], doc, scores)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = doc;
+    }
+
+    private void siftDown(int[] heap, int size, float[] scores) {
+        if (size == 0) {
+            return;
+        }
+        int doc = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!ranksBefore(doc, heap[child], scores)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = doc;
+    }
+
+    private void removeLocked(Long id) {
+        Integer doc = docsById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        liveDocs--;
+        totalLength -= lengths[doc];
+        lengths[doc] = -1;
+        categories[doc] = null;
+        for (Postings postings : docTerms[doc]) {
+            postings.live--;
+            if (postings.live == 0) {
+                terms.remove(postings.term);
+            } else if (postings.live * 2 < postings.size) {
+                postings.compact(lengths, null);
+            }
+        }
+        docTerms[doc] = null;
+        if (nextDoc - liveDocs > Math.max(1024, liveDocs)) {
+            renumber();
+        }
+    }
+
+    /**
+     * Reassigns document numbers so that live documents are dense again.
+     */
+    private void renumber() {
+        int[] newNumbers = new int[nextDoc];
+        int next = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (lengths[doc] >= 0) {
+                newNumbers[doc] = next;
+                ids[next] = ids[doc];
+                categories[next] = categories[doc];
+                docTerms[next] = docTerms[doc];
+                docsById.put(ids[next], next);
+                next++;
+            }
+        }
+        for (Postings postings : terms.values()) {
+            postings.compact(lengths, newNumbers);
+        }
+        // Lengths are rewritten last because compaction reads them to find dead documents
+        int[] oldLengths = lengths;
+        lengths = new int[lengths.length];
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (oldLengths[doc] >= 0) {
+                lengths[newNumbers[doc]] = oldLengths[doc];
+            }
+        }
+        for (int doc = next; doc < nextDoc; doc++) {
+            categories[doc] = null;
+            docTerms[doc] = null;
+        }
+        nextDoc = next;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        categories = Arrays.copyOf(categories, newCapacity);
+        docTerms = Arrays.copyOf(docTerms, newCapacity);
+    }
+
+    /**
+     * Documents containing one term, with the term's frequency in each.
+     */
+    private static final class Postings {
+
+        final String term;
+        int[] docs = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        int live;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        /**
+         * Drops entries for removed documents, optionally renumbering the survivors.
+         */
+        void compact(int[] lengths, int[] newNumbers) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = docs[i];
+                if (lengths[doc] >= 0) {
+                    docs[kept] = newNumbers == null ? doc : newNumbers[doc];
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            live = kept;
+        }
+    }
+
+    /**
+     * Per-thread score accumulator, reused between searches so that scoring does not
+     * allocate in proportion to the size of the index.
+     */
+    private static final class Accumulator {
+
+        float[] scores = new float[0];
+        int[] touched = new int[64];
+        int touchedCount;
+
+        void reset(int documents) {
+            if (scores.length < documents) {
+                scores = new float[Math.max(documents, scores.length * 2)];
+            }
+        }
+
+        void add(int doc, float score) {
+            if (scores[doc] == 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = doc;
+            }
+            scores[doc] += score;
+        }
+
+        void clear() {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.flashcardapp.search;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.SortedIds;
+import com.example.flashcardapp.db.FlashcardListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Draws random samples of flashcard ids, from the whole deck or from one category, for
+ * generating quizzes without {@code ORDER BY RAND()}.
+ *
+ * <p>The ids of all flashcards, and of the flashcards in each category, are held in
+ * sorted primitive arrays. New flashcards get ever larger ids and are appended; deleting
+ * a flashcard closes its gap. A sample of {@code n} ids is drawn without replacement
+ * with Floyd's algorithm, which touches {@code n} array slots however large the deck,
+ * and then shuffled. As the arrays are sorted, the same seed draws the same sample from
+ * the same deck on any server, before and after a restart.</p>
+ *
+ * <p>Samples are drawn concurrently under a read lock; changes take the write lock.</p>
+ */
+public class FlashcardSampler implements FlashcardListener {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SortedIds all = new SortedIds();
+    private final Map<String, SortedIds> byCategory = new HashMap<>();
+
+    // Category of every flashcard held, null if it has none
+    private final Map<Long, String> categories = new HashMap<>();
+
+    /**
+     * Adds a flashcard, moving it to its current category if it is already held.
+     */
+    public void add(Flashcard flashcard) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(flashcard.getId());
+            all.add(flashcard.getId());
+            categories.put(flashcard.getId(), flashcard.getCategory());
+            if (flashcard.getCategory() != null) {
+                byCategory.computeIfAbsent(flashcard.getCategory(), category -> new SortedIds()).add(flashcard.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a flashcard if it is held.
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns {@code n} distinct flashcard ids chosen uniformly at random, in random
+     * order, or every id if there are no more than {@code n}.
+     *
+     * @param category Category to sample from, or {@code null} for the whole deck.
+     * @param n        Number of ids to draw.
+     * @param random   Source of randomness; seed it to draw a reproducible sample.
+     * @return Sampled flashcard ids.
+     */
+    public List<Long> sample(String category, int n, Random random) {
+        lock.readLock().lock();
+        try {
+            SortedIds ids = category == null ? all : byCategory.get(category);
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+            int k = Math.min(n, ids.size());
+            Set<Integer> chosen = new HashSet<>();
+            List<Long> sample = new ArrayList<>(k);
+            for (int j = ids.size() - k; j < ids.size(); j++) {
+                int index = random.nextInt(j + 1);
+                if (!chosen.add(index)) {
+                    index = j;
+                    chosen.add(index);
+                }
+                sample.add(ids.get(index));
+            }
+            Collections.shuffle(sample, random);
+            return sample;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Flashcard flashcard) {
+        add(flashcard);
+    }
+
+    @Override
+    public void onUpdated(Flashcard flashcard) {
+        add(flashcard);
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        remove(id);
+    }
+
+    private void removeLocked(Long id) {
+        if (!categories.containsKey(id)) {
+            return;
+        }
+        String category = categories.remove(id);
+        all.remove(id);
+        if (category != null) {
+            SortedIds ids = byCategory.get(category);
+            ids.remove(id);
+            if (ids.size() == 0) {
+                byCategory.remove(category);
+            }
+        }
+    }
+}
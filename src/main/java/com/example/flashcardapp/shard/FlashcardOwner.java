@@ -0,0 +1,32 @@
+package com.example.flashcardapp.shard;
+
+/**
+ * The user the request being served on the current thread acts for, if known.
+ *
+ * <p>{@code FlashcardOwnerFilter} sets it from the {@code X-User-Id} header. New
+ * flashcards without an owner of their own get this one, and lookups by id try this
+ * owner's shard before asking every shard. The setting is per thread, so it must be
+ * cleared once the request has been served.</p>
+ */
+public final class FlashcardOwner {
+
+    private static final ThreadLocal<Long> OWNER = new ThreadLocal<>();
+
+    private FlashcardOwner() {
+    }
+
+    public static void set(Long userId) {
+        OWNER.set(userId);
+    }
+
+    public static void clear() {
+        OWNER.remove();
+    }
+
+    /**
+     * @return The current request's user, or {@code null} if it did not say.
+     */
+    public static Long get() {
+        return OWNER.get();
+    }
+}
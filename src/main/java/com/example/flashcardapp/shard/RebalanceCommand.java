@@ -0,0 +1,69 @@
+package com.example.flashcardapp.shard;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.FlashcardAppConfiguration;
+import com.example.flashcardapp.db.QueryMetrics;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves flashcards to their owners' shards while the servers keep running, after
+ * shards were added to or removed from the configured shard map.
+ *
+ * <pre>java -jar flashcard-app.jar rebalance config.yml
+ * java -jar flashcard-app.jar rebalance --user 42 config.yml</pre>
+ *
+ * <p>Deploy the new shard map to the servers first, so that they look for moved
+ * flashcards on their new shards; a removed shard stays in the map until it is empty.</p>
+ */
+public class RebalanceCommand extends ConfiguredCommand<FlashcardAppConfiguration> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RebalanceCommand.class);
+
+    public RebalanceCommand() {
+        super("rebalance", "Moves flashcards to the shards of their owners");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("--user")
+            .type(Long.class)
+            .help("Move only this user's flashcards");
+        super.configure(subparser);
+    }
+
+    @Override
+    protected void run(Bootstrap<FlashcardAppConfiguration> bootstrap, Namespace namespace,
+                       FlashcardAppConfiguration configuration) throws Exception {
+        if (configuration.getShards().isEmpty()) {
+            throw new IllegalArgumentException("No shards are configured");
+        }
+        MetricRegistry metrics = bootstrap.getMetricRegistry();
+        List<Managed> lifecycle = new ArrayList<>();
+        ShardedFlashcardStore store = ShardedFlashcardStore.build(configuration.getShards(), metrics,
+            new QueryMetrics(metrics, configuration.getSlowQueryThreshold()), lifecycle::add);
+        lifecycle.add(store);
+
+        for (Managed managed : lifecycle) {
+            managed.start();
+        }
+        try {
+            ShardRebalancer rebalancer = new ShardRebalancer(store);
+            Long userId = namespace.getLong("user");
+            long moved = userId == null ? rebalancer.moveAll() : rebalancer.moveUser(userId);
+            LOGGER.info("Moved {} flashcards", moved);
+        } finally {
+            for (int i = lifecycle.size() - 1; i >= 0; i--) {
+                lifecycle.get(i).stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.flashcardapp.shard;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Moves users' flashcards to the shards the {@link ShardRing} assigns them to, for
+ * instance after a shard was added, while the servers keep serving them.
+ *
+ * <p>Flashcards are moved a page at a time: the page is copied to the target shard,
+ * keeping ids and versions, and then each flashcard is deleted from the source shard
+ * only if it has not changed since it was copied. A flashcard changed in between is
+ * copied again, unless the copy on the target is already at that version or newer, or
+ * was deleted; one deleted in between is deleted from the target too. While a
+ * flashcard is on both shards the servers read and write the copy on the target, its
+ * owner's shard, so no write is lost to the move.</p>
+ */
+public class ShardRebalancer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    static final int PAGE_SIZE = 500;
+
+    private final ShardedFlashcardStore store;
+
+    public ShardRebalancer(ShardedFlashcardStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Moves the flashcards of {@code userId} held by any shard but the user's own.
+     *
+     * @return The number of flashcards moved.
+     */
+    public long moveUser(long userId) {
+        FlashcardDAO target = store.shardFor(userId);
+        long moved = 0;
+        for (FlashcardDAO source : store.getShards()) {
+            if (source != target) {
+                moved += move(userId, source, target);
+            }
+        }
+        if (moved > 0) {
+            LOGGER.info("Moved {} flashcards of user {}", moved, userId);
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the flashcards of every user that has flashcards on a shard other than
+     * their own.
+     *
+     * @return The number of flashcards moved.
+     */
+    public long moveAll() {
+        Set<Long> misplaced = new TreeSet<>();
+        for (FlashcardDAO shard : store.getShards()) {
+            long after = Long.MIN_VALUE;
+            List<Long> owners;
+            do {
+                owners = shard.findOwners(after, PAGE_SIZE);
+                for (Long owner : owners) {
+                    if (store.shardFor(owner) != shard) {
+                        misplaced.add(owner);
+                    }
+                }
+                after = owners.isEmpty() ? after : owners.get(owners.size() - 1);
+            } while (owners.size() == PAGE_SIZE);
+        }
+        long moved = 0;
+        for (Long owner : misplaced) {
+            moved += moveUser(owner);
+        }
+        return moved;
+    }
+
+    private long move(long userId, FlashcardDAO source, FlashcardDAO target) {
+        long moved = 0;
+        List<Flashcard> page;
+        // Each page settled leaves the source, so the next page starts from the beginning
+        while (!(page = source.findByOwner(userId, null, PAGE_SIZE)).isEmpty()) {
+            target.copy(page);
+            for (Flashcard flashcard : page) {
+                settle(flashcard, source, target);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    static void settle(Flashcard copied, FlashcardDAO source, FlashcardDAO target) {
+        Flashcard flashcard = copied;
+        while (!source.delete(flashcard.getId(), flashcard.getVersion())) {
+            Optional<Flashcard> current = source.findById(flashcard.getId());
+            if (!current.isPresent()) {
+                // Deleted from the source while being moved
+                target.delete(flashcard.getId());
+                return;
+            }
+            flashcard = current.get();
+            // Writes routed to the target since the first copy are newer, and are kept
+            target.recopy(flashcard);
+        }
+    }
+}
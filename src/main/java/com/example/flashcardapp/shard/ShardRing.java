@@ -0,0 +1,55 @@
+package com.example.flashcardapp.shard;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring assigning each user to a shard.
+ *
+ * <p>Every shard is placed on the ring at {@value #POINTS_PER_SHARD} points derived
+ * from its id, and a user belongs to the shard owning the first point at or after the
+ * hash of the user's id. Adding a shard therefore only moves the users whose hashes
+ * fall just before its points, about one in {@code n} of them, and the assignment
+ * depends on the shard ids alone, not on the order the shards are listed in.</p>
+ */
+public class ShardRing {
+
+    static final int POINTS_PER_SHARD = 128;
+
+    // Hashes users apart from shard points; mix(userId) alone would put small user ids on
+    // shard 0's points, mix(0) to mix(127)
+    private static final long USER_SALT = 0x9e3779b97f4a7c15L;
+
+    private final NavigableMap<Long, Integer> points = new TreeMap<>();
+
+    /**
+     * @param shardIds Distinct ids of the shards on the ring.
+     */
+    public ShardRing(Collection<Integer> shardIds) {
+        if (shardIds.isEmpty()) {
+            throw new IllegalArgumentException("A shard ring needs at least one shard");
+        }
+        for (int shardId : shardIds) {
+            for (int point = 0; point < POINTS_PER_SHARD; point++) {
+                points.put(mix(((long) shardId << 32) | point), shardId);
+            }
+        }
+    }
+
+    /**
+     * @return Id of the shard holding the user's flashcards.
+     */
+    public int shardFor(long userId) {
+        Map.Entry<Long, Integer> point = points.ceilingEntry(mix(userId ^ USER_SALT));
+        return (point == null ? points.firstEntry() : point).getValue();
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.flashcardapp.shard;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.ShardConfiguration;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardPatch;
+import com.example.flashcardapp.core.FlashcardVersion;
+import com.example.flashcardapp.db.DataAccessException;
+import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.db.FlashcardListener;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.db.QueryMetrics;
+import com.example.flashcardapp.db.QueryTimeout;
+import com.example.flashcardapp.db.ReadConsistency;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.lifecycle.Managed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Flashcards spread over several MySQL databases by owner.
+ *
+ * <p>A flashcard lives on the shard its owner's id hashes to on a {@link ShardRing};
+ * flashcards without an owner live on the first shard listed. Each shard hands out ids
+ * that are {@code n * }{@value #MAX_SHARDS}{@code  + shard id}, so ids are unique across
+ * shards and a flashcard keeps its id when {@link ShardRebalancer} moves it.</p>
+ *
+ * <p>Lookups by id go to the {@link FlashcardOwner} shard first, and to every other
+ * shard in parallel if it is not there, so a flashcard is found whoever asks and while
+ * its owner is being moved. Pages, category searches and counts are asked of every
+ * shard in parallel and merged. The change feed is only served by a single shard, as
+ * the shards number their changes independently.</p>
+ */
+public class ShardedFlashcardStore implements FlashcardStore, Managed {
+
+    public static final int MAX_SHARDS = 64;
+
+    static final int STREAM_PAGE_SIZE = 1000;
+
+    // Threads for scatter-gather queries, per shard
+    private static final int THREADS_PER_SHARD = 16;
+
+    private final Map<Integer, FlashcardDAO> shards;
+    private final List<FlashcardDAO> all;
+    private final FlashcardDAO home;
+    private final ShardRing ring;
+    private final ExecutorService executor;
+
+    /**
+     * @param shards DAOs by shard id, in the order the shards are listed; the first
+     *               holds the flashcards without an owner.
+     */
+    public ShardedFlashcardStore(LinkedHashMap<Integer, FlashcardDAO> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        shards.forEach((shardId, shard) -> {
+            if (shardId < 0 || shardId >= MAX_SHARDS) {
+                throw new IllegalArgumentException("Shard ids must be between 0 and " + (MAX_SHARDS - 1));
+            }
+            shard.assignIds(MAX_SHARDS, shardId);
+        });
+        this.shards = shards;
+        this.all = new ArrayList<>(shards.values());
+        this.home = all.get(0);
+        this.ring = new ShardRing(shards.keySet());
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(all.size() * THREADS_PER_SHARD, runnable -> {
+            Thread thread = new Thread(runnable, "flashcard-shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Builds the connection pool and DAO of every configured shard.
+     *
+     * @param lifecycle Told of every pool, which must be started before the store and
+     *                  stopped after it.
+     */
+    public static ShardedFlashcardStore build(List<ShardConfiguration> configurations, MetricRegistry metrics,
+                                              QueryMetrics queryMetrics, Consumer<Managed> lifecycle) {
+        LinkedHashMap<Integer, FlashcardDAO> shards = new LinkedHashMap<>();
+        for (ShardConfiguration configuration : configurations) {
+            if (shards.containsKey(configuration.getId())) {
+                throw new IllegalArgumentException("Shard " + configuration.getId() + " is configured twice");
+            }
+            ManagedDataSource dataSource = configuration.getDatabase()
+                .build(metrics, "flashcards-shard-" + configuration.getId());
+            lifecycle.accept(dataSource);
+            shards.put(configuration.getId(), new FlashcardDAO(dataSource, queryMetrics));
+        }
+        return new ShardedFlashcardStore(shards);
+    }
+
+    /**
+     * Makes every shard hand out ids above the largest id on any shard, so that ids
+     * given out before sharding, or by a database that became a shard, are not reused.
+     */
+    @Override
+    public void start() {
+        long maxId = scatter(all, FlashcardDAO::findMaxId).stream().mapToLong(Long::longValue).max().orElse(0);
+        for (FlashcardDAO shard : all) {
+            shard.raiseIdFloor(maxId);
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The shard holding the flashcards of {@code userId}, or of no owner if null.
+     */
+    public FlashcardDAO shardFor(Long userId) {
+        return userId == null ? home : shards.get(ring.shardFor(userId));
+    }
+
+    /**
+     * @return Every shard, the one holding flashcards without an owner first.
+     */
+    public List<FlashcardDAO> getShards() {
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public void addListener(FlashcardListener listener) {
+        for (FlashcardDAO shard : all) {
+            shard.addListener(listener);
+        }
+    }
+
+    @Override
+    public List<Flashcard> findPage(Long afterId, int limit) {
+        return merge(scatter(all, shard -> shard.findPage(afterId, limit)), limit);
+    }
+
+    /**
+     * Hands every flashcard to {@code consumer} in id order, a merged page of
+     * {@value #STREAM_PAGE_SIZE} from every shard at a time.
+     */
+    @Override
+    public void streamAll(Consumer<Flashcard> consumer) {
+        Long after = null;
+        List<Flashcard> page;
+        do {
+            page = findPage(after, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public Optional<Flashcard> findById(Long id) {
+        return locate(id).map(Located::getFlashcard);
+    }
+
+    @Override
+    public Optional<FlashcardVersion> findVersion(Long id) {
+        FlashcardDAO routed = routedShard();
+        if (routed != null) {
+            Optional<FlashcardVersion> version = routed.findVersion(id);
+            if (version.isPresent()) {
+                return version;
+            }
+        }
+        return scatter(others(routed), shard -> shard.findVersion(id)).stream()
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .max(Comparator.comparingLong(FlashcardVersion::getVersion));
+    }
+
+    @Override
+    public List<Flashcard> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Flashcard> byId = new HashMap<>();
+        FlashcardDAO routed = routedShard();
+        if (routed != null) {
+            routed.findByIds(ids).forEach(flashcard -> byId.put(flashcard.getId(), flashcard));
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (!byId.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (List<Flashcard> found : scatter(others(routed), shard -> shard.findByIds(missing))) {
+                found.forEach(flashcard -> byId.putIfAbsent(flashcard.getId(), flashcard));
+            }
+        }
+        List<Flashcard> flashcards = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            Flashcard flashcard = byId.get(id);
+            if (flashcard != null) {
+                flashcards.add(flashcard);
+            }
+        }
+        return flashcards;
+    }
+
+    @Override
+    public List<Flashcard> findByCategory(String category, Long afterId, int limit) {
+        return merge(scatter(all, shard -> shard.findByCategory(category, afterId, limit)), limit);
+    }
+
+    @Override
+    public Map<String, Long> countByCategory() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map<String, Long> shardCounts : scatter(all, FlashcardDAO::countByCategory)) {
+            shardCounts.forEach((category, count) -> counts.merge(category, count, Long::sum));
+        }
+        return counts;
+    }
+
+    /**
+     * Stores a new flashcard on its owner's shard. A flashcard without an owner is given
+     * the {@link FlashcardOwner} of the request, if any.
+     */
+    @Override
+    public Flashcard create(Flashcard flashcard) {
+        return shardFor(own(flashcard)).create(flashcard);
+    }
+
+    /**
+     * Stores the flashcards on their owners' shards, one batch per shard. A batch that
+     * spans shards is not atomic: if a later shard's batch fails, the flashcards already
+     * stored on the earlier shards are deleted again before the failure is thrown.
+     */
+    @Override
+    public int createBatch(List<Flashcard> flashcards) {
+        Map<FlashcardDAO, List<Flashcard>> byShard = new LinkedHashMap<>();
+        for (Flashcard flashcard : flashcards) {
+            byShard.computeIfAbsent(shardFor(own(flashcard)), shard -> new ArrayList<>()).add(flashcard);
+        }
+        List<Map.Entry<FlashcardDAO, List<Flashcard>>> stored = new ArrayList<>();
+        int inserted = 0;
+        for (Map.Entry<FlashcardDAO, List<Flashcard>> batch : byShard.entrySet()) {
+            try {
+                inserted += batch.getKey().createBatch(batch.getValue());
+            } catch (DataAccessException e) {
+                for (Map.Entry<FlashcardDAO, List<Flashcard>> undo : stored) {
+                    for (Flashcard flashcard : undo.getValue()) {
+                        undo.getKey().delete(flashcard.getId(), flashcard.getVersion());
+                    }
+                }
+                throw e;
+            }
+            stored.add(batch);
+        }
+        return inserted;
+    }
+
+    @Override
+    public Optional<Flashcard> update(Long id, Flashcard flashcard, Long expectedVersion) {
+        return locate(id).flatMap(located -> located.getShard().update(id, flashcard, expectedVersion));
+    }
+
+    @Override
+    public Optional<Flashcard> patch(Long id, FlashcardPatch patch) {
+        return locate(id).flatMap(located -> located.getShard().patch(id, patch));
+    }
+
+    @Override
+    public boolean delete(Long id, Long expectedVersion) {
+        return locate(id).map(located -> located.getShard().delete(id, expectedVersion)).orElse(false);
+    }
+
+    /**
+     * Serves the change feed when there is a single shard.
+     *
+     * @throws UnsupportedOperationException With more than one shard.
+     */
+    @Override
+    public FlashcardChanges findChanges(long since, int limit) {
+        if (all.size() > 1) {
+            throw new UnsupportedOperationException("The change feed is not available when flashcards are sharded.");
+        }
+        return home.findChanges(since, limit);
+    }
+
+    private Long own(Flashcard flashcard) {
+        if (flashcard.getUserId() == null) {
+            flashcard.setUserId(FlashcardOwner.get());
+        }
+        return flashcard.getUserId();
+    }
+
+    private FlashcardDAO routedShard() {
+        Long owner = FlashcardOwner.get();
+        return owner == null ? null : shardFor(owner);
+    }
+
+    private List<FlashcardDAO> others(FlashcardDAO shard) {
+        if (shard == null) {
+            return all;
+        }
+        List<FlashcardDAO> others = new ArrayList<>(all);
+        others.remove(shard);
+        return others;
+    }
+
+    /**
+     * Finds the shard holding the flashcard with the given id. While a flashcard is
+     * being moved it is on two shards; the copy on its owner's shard is the current one.
+     */
+    private Optional<Located> locate(Long id) {
+        FlashcardDAO routed = routedShard();
+        if (routed != null) {
+            Optional<Flashcard> flashcard = routed.findById(id);
+            if (flashcard.isPresent()) {
+                return Optional.of(new Located(routed, flashcard.get()));
+            }
+        }
+        List<FlashcardDAO> candidates = others(routed);
+        List<Optional<Flashcard>> found = scatter(candidates, shard -> shard.findById(id));
+        Located located = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (found.get(i).isPresent()) {
+                Flashcard flashcard = found.get(i).get();
+                if (located == null || candidates.get(i) == shardFor(flashcard.getUserId())) {
+                    located = new Located(candidates.get(i), flashcard);
+                }
+            }
+        }
+        return Optional.ofNullable(located);
+    }
+
+    /**
+     * Merges pages ordered by id from every shard into the first {@code limit}
+     * flashcards, keeping one copy of a flashcard that is being moved.
+     */
+    private static List<Flashcard> merge(List<List<Flashcard>> pages, int limit) {
+        List<Flashcard> merged = new ArrayList<>();
+        pages.forEach(merged::addAll);
+        merged.sort(Comparator.comparing(Flashcard::getId));
+        List<Flashcard> page = new ArrayList<>(Math.min(limit, merged.size()));
+        Set<Long> seen = new HashSet<>();
+        for (Flashcard flashcard : merged) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (seen.add(flashcard.getId())) {
+                page.add(flashcard);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Runs {@code query} on each of the given shards in parallel and returns the
+     * results in the order of the shards. The queries run with the calling thread's
+     * query deadline, owner and read consistency.
+     */
+    private <T> List<T> scatter(List<FlashcardDAO> targets, Function<FlashcardDAO, T> query) {
+        if (targets.size() == 1) {
+            return Collections.singletonList(query.apply(targets.get(0)));
+        }
+        Long deadline = QueryTimeout.getDeadline();
+        Long owner = FlashcardOwner.get();
+        boolean replicaAllowed = ReadConsistency.isReplicaAllowed();
+        List<Future<T>> futures = new ArrayList<>(targets.size());
+        for (FlashcardDAO shard : targets) {
+            futures.add(executor.submit(() -> {
+                if (deadline != null) {
+                    QueryTimeout.setDeadline(deadline);
+                }
+                FlashcardOwner.set(owner);
+                if (replicaAllowed) {
+                    ReadConsistency.allowReplica();
+                }
+                try {
+                    return query.apply(shard);
+                } finally {
+                    QueryTimeout.clear();
+                    FlashcardOwner.clear();
+                    ReadConsistency.clear();
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(targets.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while querying the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessException("Failed to query a shard", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static final class Located {
+
+        private final FlashcardDAO shard;
+        private final Flashcard flashcard;
+
+        Located(FlashcardDAO shard, Flashcard flashcard) {
+            this.shard = shard;
+            this.flashcard = flashcard;
+        }
+
+        FlashcardDAO getShard() {
+            return shard;
+        }
+
+        Flashcard getFlashcard() {
+            return flashcard;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.flashcardapp.snapshot;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.FlashcardAppConfiguration;
+import com.example.flashcardapp.FlashcardStoreConfiguration;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.ImportReport;
+import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.db.FlashcardImporter;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.db.QueryMetrics;
+import com.example.flashcardapp.shard.ShardedFlashcardStore;
+import com.example.flashcardapp.store.MappedFlashcardStore;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes every flashcard in the configured store to a snapshot file, or imports one,
+ * without a running server.
+ *
+ * <pre>java -jar flashcard-app.jar snapshot export deck.snapshot config.yml
+ * java -jar flashcard-app.jar snapshot import deck.snapshot config.yml</pre>
+ *
+ * <p>The file is read and written through a {@link FileChannel} a block at a time, so
+ * memory use does not grow with the deck. An export is written to a temporary file
+ * that is forced to disk and then renamed, so a failed export never leaves a partial
+ * snapshot behind. With shards configured, the export holds the flashcards of every
+ * shard and the import puts each flashcard on the shard of its owner. Stop the server
+ * first when the store is the memory-mapped log, which only one process may have
+ * open.</p>
+ */
+public class SnapshotCommand extends ConfiguredCommand<FlashcardAppConfiguration> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotCommand.class);
+
+    public SnapshotCommand() {
+        super("snapshot", "Exports the flashcards to a binary snapshot file, or imports one");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("action")
+            .choices("export", "import")
+            .help("Whether to write the snapshot file or read it");
+        subparser.addArgument("snapshot")
+            .help("Snapshot file");
+        super.configure(subparser);
+    }
+
+    @Override
+    protected void run(Bootstrap<FlashcardAppConfiguration> bootstrap, Namespace namespace,
+                       FlashcardAppConfiguration configuration) throws Exception {
+        Path snapshot = Paths.get(namespace.getString("snapshot"));
+        MetricRegistry metrics = bootstrap.getMetricRegistry();
+        FlashcardStoreConfiguration storeConfiguration = configuration.getFlashcardStore();
+        List<Managed> lifecycle = new ArrayList<>();
+        FlashcardStore flashcardStore;
+        if (storeConfiguration.getType() == FlashcardStoreConfiguration.Type.MAPPED) {
+            MappedFlashcardStore mappedStore = new MappedFlashcardStore(Paths.get(storeConfiguration.getDirectory()),
+                storeConfiguration.getCompactionInterval(), storeConfiguration.getCompactionThreshold(), metrics);
+            lifecycle.add(mappedStore);
+            flashcardStore = mappedStore;
+        } else if (configuration.getShards().isEmpty()) {
+            ManagedDataSource dataSource = configuration.getDataSourceFactory().build(metrics, "snapshot");
+            lifecycle.add(dataSource);
+            flashcardStore = new FlashcardDAO(dataSource, new QueryMetrics(metrics, configuration.getSlowQueryThreshold()));
+        } else {
+            ShardedFlashcardStore shardedStore = ShardedFlashcardStore.build(configuration.getShards(), metrics,
+                new QueryMetrics(metrics, configuration.getSlowQueryThreshold()), lifecycle::add);
+            lifecycle.add(shardedStore);
+            flashcardStore = shardedStore;
+        }
+
+        for (Managed managed : lifecycle) {
+            managed.start();
+        }
+        try {
+            if ("export".equals(namespace.getString("action"))) {
+                export(flashcardStore, snapshot);
+            } else {
+                restore(flashcardStore, snapshot, bootstrap, configuration.getImportChunkSize());
+            }
+        } finally {
+            for (int i = lifecycle.size() - 1; i >= 0; i--) {
+                lifecycle.get(i).stop();
+            }
+        }
+    }
+
+    private static void export(FlashcardStore flashcardStore, Path snapshot) throws IOException {
+        Path partial = snapshot.resolveSibling(snapshot.getFileName() + ".partial");
+        long count;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotWriter writer = new SnapshotWriter(channel);
+            try {
+                flashcardStore.streamAll(flashcard -> {
+                    try {
+                        writer.write(flashcard);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            channel.force(true);
+            count = writer.getCount();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, snapshot, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.info("Exported {} flashcards to {}", count, snapshot);
+    }
+
+    private static void restore(FlashcardStore flashcardStore, Path snapshot,
+                                        Bootstrap<FlashcardAppConfiguration> bootstrap, int chunkSize) throws IOException {
+        FlashcardImporter importer = new FlashcardImporter(flashcardStore,
+            bootstrap.getValidatorFactory().getValidator(), chunkSize);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            SnapshotReader reader = new SnapshotReader(channel);
+            Flashcard flashcard;
+            while ((flashcard = reader.next()) != null) {
+                importer.add(flashcard);
+            }
+        } catch (SnapshotFormatException e) {
+            importer.getReport().setError("Corrupt snapshot at row " + importer.getRow() + ": " + e.getMessage());
+        }
+        ImportReport report = importer.finish();
+        LOGGER.info("Imported {} flashcards from {}; {} rejected", report.getInserted(), snapshot, report.getRejected());
+        if (report.getError() != null) {
+            LOGGER.error(report.getError());
+        }
+        report.getChunks().stream()
+            .filter(chunk -> chunk.getError() != null)
+            .forEach(chunk -> LOGGER.error("Rows from {} were not imported: {}", chunk.getFirstRow(), chunk.getError()));
+    }
+}
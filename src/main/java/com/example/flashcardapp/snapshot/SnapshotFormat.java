@@ -0,0 +1,47 @@
+package com.example.flashcardapp.snapshot;
+
+/**
+ * Constants of the binary deck snapshot format, version {@value #VERSION}.
+ *
+ * <p>A snapshot starts with the magic bytes {@code FCSN}, a two-byte format version and
+ * two reserved bytes. Blocks follow, each with a 12-byte header: the length of the
+ * block's records, the length of the block as stored, and the CRC-32C of the records.
+ * A block is stored deflated, or as is when deflating does not make it smaller, in
+ * which case both lengths are equal. A header with both lengths zero ends the
+ * snapshot, followed by the eight-byte number of flashcards in it.</p>
+ *
+ * <p>Records never straddle blocks. A flashcard record is its ID, version, creation
+ * and update times in microseconds since the epoch, question and answer, the index of
+ * its category in the dictionary, or -1, and the user ID of its owner, or
+ * {@link Long#MIN_VALUE} for none. Version 1 snapshots, written before owners were
+ * kept, lack the owner and are still read. A category is added to the dictionary by a
+ * record of its own ahead of the first flashcard in it, so the dictionary is built as
+ * the snapshot is read. Strings are a four-byte length, -1 for null, and UTF-8 bytes;
+ * all numbers are big-endian.</p>
+ */
+public final class SnapshotFormat {
+
+    public static final String MEDIA_TYPE = "application/vnd.flashcards.snapshot";
+
+    static final byte[] MAGIC = {'F', 'C', 'S', 'N'};
+    static final short VERSION = 2;
+    static final short UNOWNED_VERSION = 1;
+    static final int FILE_HEADER_BYTES = 8;
+    static final int BLOCK_HEADER_BYTES = 12;
+
+    // Records a writer puts in one block before compressing it
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    // Largest block a reader accepts, so a corrupt length cannot exhaust the heap
+    static final int MAX_BLOCK_SIZE = 1024 * 1024;
+
+    static final byte CATEGORY_RECORD = 1;
+    static final byte FLASHCARD_RECORD = 2;
+
+    static final int NO_CATEGORY = -1;
+    static final long NO_TIME = Long.MIN_VALUE;
+    static final long NO_OWNER = Long.MIN_VALUE;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.flashcardapp.snapshot;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a snapshot is truncated, corrupt or of an unknown version.
+ */
+public class SnapshotFormatException extends IOException {
+
+    public SnapshotFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.flashcardapp.snapshot;
+
+import com.example.flashcardapp.core.Flashcard;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads flashcards from a channel in the {@link SnapshotFormat}, a block at a time.
+ * Each block is checked against its checksum before any of its flashcards is returned.
+ *
+ * <p>The channel is left open.</p>
+ */
+public class SnapshotReader {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.BLOCK_HEADER_BYTES);
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32C crc = new CRC32C();
+    private final List<String> categories = new ArrayList<>();
+    private final boolean owned;
+    private byte[] compressed = new byte[SnapshotFormat.BLOCK_SIZE];
+    private ByteBuffer block = ByteBuffer.allocate(0);
+    private long count;
+    private boolean ended;
+
+    public SnapshotReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer fileHeader = ByteBuffer.allocate(SnapshotFormat.FILE_HEADER_BYTES);
+        readFully(fileHeader, "header");
+        byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+        fileHeader.get(magic);
+        if (!Arrays.equals(magic, SnapshotFormat.MAGIC)) {
+            throw new SnapshotFormatException("Not a flashcard snapshot");
+        }
+        short version = fileHeader.getShort();
+        if (version != SnapshotFormat.VERSION && version != SnapshotFormat.UNOWNED_VERSION) {
+            throw new SnapshotFormatException("Unsupported snapshot version " + version);
+        }
+        owned = version != SnapshotFormat.UNOWNED_VERSION;
+    }
+
+    /**
+     * @return The next flashcard, or null after the last one.
+     */
+    public Flashcard next() throws IOException {
+        try {
+            while (true) {
+                while (!block.hasRemaining()) {
+                    if (ended || !readBlock()) {
+                        return null;
+                    }
+                }
+                byte type = block.get();
+                if (type == SnapshotFormat.CATEGORY_RECORD) {
+                    categories.add(getString());
+                } else if (type == SnapshotFormat.FLASHCARD_RECORD) {
+                    return getFlashcard();
+                } else {
+                    throw new SnapshotFormatException("Unknown record type " + type + " after flashcard " + count);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new SnapshotFormatException("Truncated record after flashcard " + count);
+        }
+    }
+
+    /**
+     * @return Number of flashcards read so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private Flashcard getFlashcard() throws SnapshotFormatException {
+        long id = block.getLong();
+        long version = block.getLong();
+        LocalDateTime createdAt = time(block.getLong());
+        LocalDateTime updatedAt = time(block.getLong());
+        String question = getString();
+        String answer = getString();
+        int categoryIndex = block.getInt();
+        if (categoryIndex < SnapshotFormat.NO_CATEGORY || categoryIndex >= categories.size()) {
+            throw new SnapshotFormatException("Unknown category " + categoryIndex + " in flashcard " + count);
+        }
+        long userId = owned ? block.getLong() : SnapshotFormat.NO_OWNER;
+        Flashcard flashcard = new Flashcard(question, answer,
+            categoryIndex == SnapshotFormat.NO_CATEGORY ? null : categories.get(categoryIndex));
+        flashcard.setId(id);
+        flashcard.setVersion(version);
+        flashcard.setCreatedAt(createdAt);
+        flashcard.setUpdatedAt(updatedAt);
+        flashcard.setUserId(userId == SnapshotFormat.NO_OWNER ? null : userId);
+        count++;
+        return flashcard;
+    }
+
+    /**
+     * Reads, checks and inflates the next block.
+     *
+     * @return False at the end of the snapshot.
+     */
+    private boolean readBlock() throws IOException {
+        header.clear();
+        readFully(header, "block header");
+        int length = header.getInt();
+        int storedLength = header.getInt();
+        int checksum = header.getInt();
+        if (length == 0 && storedLength == 0) {
+            ByteBuffer trailer = ByteBuffer.allocate(8);
+            readFully(trailer, "trailer");
+            long expected = trailer.getLong();
+            if (expected != count) {
+                throw new SnapshotFormatException("Snapshot holds " + expected + " flashcards, but " + count + " were read");
+            }
+            ended = true;
+            inflater.end();
+            return false;
+        }
+        if (length <= 0 || length > SnapshotFormat.MAX_BLOCK_SIZE || storedLength <= 0 || storedLength > length) {
+            throw new SnapshotFormatException("Corrupt block header after flashcard " + count);
+        }
+
+        if (compressed.length < storedLength) {
+            compressed = new byte[Math.max(storedLength, compressed.length * 2)];
+        }
+        readFully(ByteBuffer.wrap(compressed, 0, storedLength), "block");
+        if (block.capacity() < length) {
+            block = ByteBuffer.allocate(Math.max(length, SnapshotFormat.BLOCK_SIZE));
+        }
+        byte[] records = block.array();
+        if (storedLength == length) {
+            System.arraycopy(compressed, 0, records, 0, length);
+        } else {
+            inflater.reset();
+            inflater.setInput(compressed, 0, storedLength);
+            try {
+                if (inflater.inflate(records, 0, length) != length || !inflater.finished()) {
+                    throw new SnapshotFormatException("Block after flashcard " + count + " does not inflate to its length");
+                }
+            } catch (DataFormatException e) {
+                throw new SnapshotFormatException("Corrupt block after flashcard " + count + ": " + e.getMessage());
+            }
+        }
+        crc.reset();
+        crc.update(records, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            throw new SnapshotFormatException("Checksum mismatch in block after flashcard " + count);
+        }
+        block.clear().limit(length);
+        return true;
+    }
+
+    private void readFully(ByteBuffer buffer, String what) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new SnapshotFormatException("Snapshot ends in the middle of a " + what);
+            }
+        }
+        buffer.flip();
+    }
+
+    private String getString() throws SnapshotFormatException {
+        int length = block.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > block.remaining()) {
+            throw new SnapshotFormatException("Truncated string after flashcard " + count);
+        }
+        String value = new String(block.array(), block.position(), length, StandardCharsets.UTF_8);
+        block.position(block.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime time(long micros) {
+        return micros == SnapshotFormat.NO_TIME ? null : EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
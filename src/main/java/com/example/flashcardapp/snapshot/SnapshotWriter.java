@@ -0,0 +1,156 @@
+package com.example.flashcardapp.snapshot;
+
+import com.example.flashcardapp.core.Flashcard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Writes flashcards to a channel in the {@link SnapshotFormat}, a block at a time, so
+ * memory use stays the same however many flashcards are written. Only the category
+ * dictionary grows, with the number of distinct categories.
+ *
+ * <p>Call {@link #finish()} after the last flashcard; the channel is left open.</p>
+ */
+public class SnapshotWriter {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Fixed-size part of a flashcard record: type, ID, version, times, three lengths or index, owner
+    private static final int FLASHCARD_RECORD_BYTES = 1 + 8 + 8 + 8 + 8 + 4 + 4 + 4 + 8;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocate(SnapshotFormat.MAX_BLOCK_SIZE);
+    private final byte[] compressed = new byte[SnapshotFormat.MAX_BLOCK_SIZE];
+    private final ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.BLOCK_HEADER_BYTES);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final CRC32C crc = new CRC32C();
+    private final Map<String, Integer> categories = new HashMap<>();
+    private long count;
+    private boolean finished;
+
+    public SnapshotWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer fileHeader = ByteBuffer.allocate(SnapshotFormat.FILE_HEADER_BYTES);
+        fileHeader.put(SnapshotFormat.MAGIC).putShort(SnapshotFormat.VERSION).putShort((short) 0).flip();
+        writeFully(fileHeader);
+    }
+
+    public void write(Flashcard flashcard) throws IOException {
+        String category = flashcard.getCategory();
+        Integer categoryIndex = category == null ? Integer.valueOf(SnapshotFormat.NO_CATEGORY) : categories.get(category);
+        if (categoryIndex == null) {
+            byte[] name = category.getBytes(StandardCharsets.UTF_8);
+            reserve(1 + 4 + name.length);
+            block.put(SnapshotFormat.CATEGORY_RECORD);
+            putBytes(name);
+            categoryIndex = categories.size();
+            categories.put(category, categoryIndex);
+        }
+
+        byte[] question = bytes(flashcard.getQuestion());
+        byte[] answer = bytes(flashcard.getAnswer());
+        reserve(FLASHCARD_RECORD_BYTES + length(question) + length(answer));
+        block.put(SnapshotFormat.FLASHCARD_RECORD);
+        block.putLong(flashcard.getId() == null ? 0 : flashcard.getId());
+        block.putLong(flashcard.getVersion());
+        block.putLong(micros(flashcard.getCreatedAt()));
+        block.putLong(micros(flashcard.getUpdatedAt()));
+        putBytes(question);
+        putBytes(answer);
+        block.putInt(categoryIndex);
+        block.putLong(flashcard.getUserId() == null ? SnapshotFormat.NO_OWNER : flashcard.getUserId());
+        count++;
+    }
+
+    /**
+     * Writes the last block and the end of the snapshot.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        flushBlock();
+        ByteBuffer end = ByteBuffer.allocate(SnapshotFormat.BLOCK_HEADER_BYTES + 8);
+        end.putInt(0).putInt(0).putInt(0).putLong(count).flip();
+        writeFully(end);
+        deflater.end();
+        finished = true;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Makes room for a record of {@code size} bytes, writing out the current block if
+     * it is full.
+     */
+    private void reserve(int size) throws IOException {
+        if (size > SnapshotFormat.MAX_BLOCK_SIZE - SnapshotFormat.BLOCK_SIZE) {
+            throw new IllegalArgumentException("Flashcard record of " + size + " bytes is too large for a snapshot");
+        }
+        if (block.position() + size > SnapshotFormat.BLOCK_SIZE && block.position() > 0) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        int length = block.position();
+        if (length == 0) {
+            return;
+        }
+        byte[] records = block.array();
+        crc.reset();
+        crc.update(records, 0, length);
+
+        deflater.reset();
+        deflater.setInput(records, 0, length);
+        deflater.finish();
+        int stored = 0;
+        while (!deflater.finished() && stored < length) {
+            stored += deflater.deflate(compressed, stored, length - stored);
+        }
+        boolean deflated = deflater.finished() && stored < length;
+
+        header.clear();
+        header.putInt(length).putInt(deflated ? stored : length).putInt((int) crc.getValue()).flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(deflated ? compressed : records, 0, deflated ? stored : length));
+        block.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void putBytes(byte[] value) {
+        if (value == null) {
+            block.putInt(-1);
+        } else {
+            block.putInt(value.length).put(value);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time == null ? SnapshotFormat.NO_TIME : ChronoUnit.MICROS.between(EPOCH, time);
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.flashcardapp.store;
+
+import com.example.flashcardapp.core.Flashcard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of {@link LogEntry} records, memory-mapped a fixed-size chunk at a
+ * time so that reading a record is a memory access rather than a system call.
+ *
+ * <p>A record is its body length, the CRC-32 of its body, and the body: a type byte,
+ * the change sequence number, the flashcard id and, unless it is a tombstone, the
+ * flashcard's version, timestamps and text. A flashcard with an owner is written as an
+ * owned record, which carries the owner's user id after the flashcard id; logs written
+ * before owners were kept hold only plain records, read as flashcards without one. Records never straddle chunks; where the
+ * next record does not fit, the rest of the chunk is skipped. Every record of a
+ * multi-record write but the last is flagged as continued, so that on opening the log
+ * can be cut back to the end of the last write whose records are all intact: a write
+ * torn by a crash is dropped whole.</p>
+ *
+ * <p>Records are only appended by one thread at a time. Records below the end that the
+ * writer has published may be read concurrently.</p>
+ */
+final class FlashcardLog implements Closeable {
+
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte OWNED_PUT = 3;
+    private static final byte CONTINUED = (byte) 0x80;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int NEXT_CHUNK = -1;
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final FileChannel channel;
+    private final int chunkSize;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private long end;
+    private long forcedEnd;
+
+    private FlashcardLog(FileChannel channel, int chunkSize, long end) {
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+        this.end = end;
+        this.forcedEnd = end;
+    }
+
+    /**
+     * Opens the log in {@code file}, creating it if needed, and cuts it back to the end of
+     * its last complete write.
+     */
+    static FlashcardLog open(Path file, int chunkSize) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = completeEnd(channel, chunkSize);
+            // Nothing after the end may survive to be mistaken for a record later
+            channel.truncate(end);
+            FlashcardLog log = new FlashcardLog(channel, chunkSize, end);
+            for (int chunk = 0; (long) chunk * chunkSize < end; chunk++) {
+                log.map(chunk);
+            }
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the offset just after the last write whose records are all intact, reading
+     * the file a chunk at a time.
+     */
+    private static long completeEnd(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+        CRC32 crc = new CRC32();
+        long end = 0;
+        for (long start = 0; start < size; start += chunkSize) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunkSize, size - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) >= 0) {
+                // Read the whole chunk
+            }
+            int limit = chunk.position();
+            int position = 0;
+            while (limit - position >= HEADER_BYTES) {
+                int length = chunk.getInt(position);
+                if (length == NEXT_CHUNK) {
+                    break;
+                }
+                if (length <= 0 || length > limit - position - HEADER_BYTES) {
+                    return end;
+                }
+                crc.reset();
+                crc.update(chunk.array(), position + HEADER_BYTES, length);
+                if ((int) crc.getValue() != chunk.getInt(position + 4)) {
+                    return end;
+                }
+                boolean continued = (chunk.get(position + HEADER_BYTES) & CONTINUED) != 0;
+                position += HEADER_BYTES + length;
+                if (!continued) {
+                    end = start + position;
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns the offset the next record will be written at.
+     */
+    long end() {
+        return end;
+    }
+
+    LogEntry read(long offset) {
+        ByteBuffer buffer = chunks[(int) (offset / chunkSize)].duplicate();
+        int position = (int) (offset % chunkSize);
+        int length = buffer.getInt(position);
+        buffer.position(position + HEADER_BYTES);
+        byte type = (byte) (buffer.get() & ~CONTINUED);
+        long changeSeq = buffer.getLong();
+        long id = buffer.getLong();
+        LogEntry entry;
+        if (type == DELETE) {
+            entry = LogEntry.delete(changeSeq, id);
+        } else {
+            Long userId = type == OWNED_PUT ? buffer.getLong() : null;
+            long version = buffer.getLong();
+            LocalDateTime createdAt = EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+            LocalDateTime updatedAt = EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+            Flashcard flashcard = new Flashcard(readString(buffer), readString(buffer), readString(buffer));
+            flashcard.setId(id);
+            flashcard.setVersion(version);
+            flashcard.setCreatedAt(createdAt);
+            flashcard.setUpdatedAt(updatedAt);
+            flashcard.setUserId(userId);
+            entry = LogEntry.put(changeSeq, flashcard);
+        }
+        entry.offset = offset;
+        entry.size = HEADER_BYTES + length;
+        return entry;
+    }
+
+    /**
+     * Hands the records from offset {@code from} up to offset {@code until} to
+     * {@code visitor} in log order, until it returns {@code false}.
+     */
+    void scan(long from, long until, Predicate<LogEntry> visitor) {
+        long offset = from;
+        while (offset < until) {
+            int position = (int) (offset % chunkSize);
+            if (chunkSize - position < HEADER_BYTES
+                    || chunks[(int) (offset / chunkSize)].getInt(position) == NEXT_CHUNK) {
+                offset += chunkSize - position;
+                continue;
+            }
+            LogEntry entry = read(offset);
+            if (!visitor.test(entry)) {
+                return;
+            }
+            offset += entry.size;
+        }
+    }
+
+    /**
+     * Writes the records of one write and forces them to disk. If either fails, the
+     * records are wiped and the log is left as it was.
+     */
+    void append(List<LogEntry> entries) throws IOException {
+        long start = end;
+        write(entries);
+        try {
+            force();
+        } catch (RuntimeException e) {
+            rollBack(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the records of one write, setting their offsets and sizes, without forcing
+     * them to disk.
+     */
+    void write(List<LogEntry> entries) throws IOException {
+        long start = end;
+        try {
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < entries.size(); i++) {
+                LogEntry entry = entries.get(i);
+                byte[] body = encode(entry, i < entries.size() - 1);
+                if (body.length > chunkSize - HEADER_BYTES) {
+                    throw new IllegalArgumentException("Flashcard " + entry.id + " is too large to store");
+                }
+                int position = (int) (end % chunkSize);
+                if (chunkSize - position < HEADER_BYTES + body.length) {
+                    if (chunkSize - position >= HEADER_BYTES) {
+                        chunks[(int) (end / chunkSize)].putInt(position, NEXT_CHUNK);
+                    }
+                    end += chunkSize - position;
+                    position = 0;
+                }
+                int chunk = (int) (end / chunkSize);
+                ByteBuffer buffer = (chunk < chunks.length ? chunks[chunk] : map(chunk)).duplicate();
+                crc.reset();
+                crc.update(body);
+                buffer.position(position);
+                buffer.putInt(body.length).putInt((int) crc.getValue()).put(body);
+                entry.offset = end;
+                entry.size = HEADER_BYTES + body.length;
+                end += entry.size;
+            }
+        } catch (IOException | RuntimeException e) {
+            rollBack(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Forces every record written since the last force to disk.
+     */
+    void force() {
+        if (end > forcedEnd) {
+            for (int chunk = (int) (forcedEnd / chunkSize); chunk <= (end - 1) / chunkSize; chunk++) {
+                chunks[chunk].force();
+            }
+            forcedEnd = end;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void rollBack(long start) {
+        byte[] zeros = new byte[4096];
+        for (long offset = start; offset < end; ) {
+            int chunk = (int) (offset / chunkSize);
+            int position = (int) (offset % chunkSize);
+            int length = (int) Math.min(Math.min(zeros.length, chunkSize - position), end - offset);
+            if (chunk < chunks.length) {
+                ByteBuffer buffer = chunks[chunk].duplicate();
+                buffer.position(position);
+                buffer.put(zeros, 0, length);
+            }
+            offset += length;
+        }
+        end = start;
+        forcedEnd = Math.min(forcedEnd, start);
+    }
+
+    private synchronized MappedByteBuffer map(int chunk) throws IOException {
+        MappedByteBuffer[] mapped = chunks;
+        if (chunk < mapped.length) {
+            return mapped[chunk];
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long) chunk * chunkSize, chunkSize);
+        mapped = Arrays.copyOf(mapped, chunk + 1);
+        mapped[chunk] = buffer;
+        chunks = mapped;
+        return buffer;
+    }
+
+    private static byte[] encode(LogEntry entry, boolean continued) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        Flashcard flashcard = entry.flashcard;
+        byte type = entry.isDelete() ? DELETE : flashcard.getUserId() != null ? OWNED_PUT : PUT;
+        out.writeByte(continued ? type | CONTINUED : type);
+        out.writeLong(entry.changeSeq);
+        out.writeLong(entry.id);
+        if (!entry.isDelete()) {
+            if (type == OWNED_PUT) {
+                out.writeLong(flashcard.getUserId());
+            }
+            out.writeLong(flashcard.getVersion());
+            out.writeLong(ChronoUnit.MICROS.between(EPOCH, flashcard.getCreatedAt()));
+            out.writeLong(ChronoUnit.MICROS.between(EPOCH, flashcard.getUpdatedAt()));
+            writeString(out, flashcard.getQuestion());
+            writeString(out, flashcard.getAnswer());
+            writeString(out, flashcard.getCategory());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
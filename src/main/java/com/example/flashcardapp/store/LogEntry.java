@@ -0,0 +1,38 @@
+package com.example.flashcardapp.store;
+
+import com.example.flashcardapp.core.Flashcard;
+
+/**
+ * One record of the flashcard log: a flashcard as written, or the tombstone of a
+ * deleted one, stamped with the change sequence number of the write.
+ */
+final class LogEntry {
+
+    final long changeSeq;
+    final long id;
+
+    // Null for a tombstone
+    final Flashcard flashcard;
+
+    // Where the record starts in the log and how many bytes it takes, once written or read
+    long offset;
+    int size;
+
+    private LogEntry(long changeSeq, long id, Flashcard flashcard) {
+        this.changeSeq = changeSeq;
+        this.id = id;
+        this.flashcard = flashcard;
+    }
+
+    static LogEntry put(long changeSeq, Flashcard flashcard) {
+        return new LogEntry(changeSeq, flashcard.getId(), flashcard);
+    }
+
+    static LogEntry delete(long changeSeq, long id) {
+        return new LogEntry(changeSeq, id, null);
+    }
+
+    boolean isDelete() {
+        return flashcard == null;
+    }
+}
@@ -0,0 +1,591 @@
+package com.example.flashcardapp.store;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardPatch;
+import com.example.flashcardapp.core.FlashcardVersion;
+import com.example.flashcardapp.core.SortedIds;
+import com.example.flashcardapp.db.DataAccessException;
+import com.example.flashcardapp.db.FlashcardListener;
+import com.example.flashcardapp.db.FlashcardStore;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Embedded flashcard store for deployments without a database server: every write is
+ * appended to a memory-mapped log in {@code directory} and forced to disk before it is
+ * acknowledged, and the latest record of every flashcard is found through an off-heap
+ * id to offset index. A point read is a hash probe and a read from mapped memory.
+ *
+ * <p>On start, the log is cut back to the end of its last complete write, so a write
+ * torn by a crash is dropped whole, and the index is rebuilt by replaying the log.
+ * Updated and deleted flashcards leave dead records behind; once they take up more
+ * than the compaction threshold of the log, the live records and tombstones are copied
+ * to a new log, which atomically replaces the old one.</p>
+ *
+ * <p>Reads run concurrently under a read lock. Writes are serialized and take the
+ * write lock only to publish what they have appended; a compaction holds off writes
+ * while it copies, but not reads.</p>
+ */
+public class MappedFlashcardStore implements FlashcardStore, Managed {
+
+    static final String LOG_FILE = "flashcards.log";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFlashcardStore.class);
+
+    private static final String COMPACTED_FILE = "flashcards.log.compacted";
+    private static final int CHECKPOINT_INTERVAL = 256;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    private final Path directory;
+    private final int chunkSize;
+    private final Duration compactionInterval;
+    private final double compactionThreshold;
+    private final List<FlashcardListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Held by a write from its checks to its listeners, and by a compaction
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private FlashcardLog log;
+    private OffHeapIndex index;
+    private Checkpoints checkpoints;
+    private final SortedIds ids = new SortedIds();
+    private final Map<String, SortedIds> byCategory = new TreeMap<>();
+    private volatile long publishedEnd;
+    private volatile long deadBytes;
+    private long lastChangeSeq;
+    private long lastId;
+    private ScheduledExecutorService compactor;
+
+    /**
+     * @param directory           Directory holding the log.
+     * @param compactionInterval  How often the log is checked for compaction.
+     * @param compactionThreshold Share of the log that must be dead before it is compacted.
+     * @param metrics             Registry for the log size gauges.
+     */
+    public MappedFlashcardStore(Path directory, Duration compactionInterval, double compactionThreshold,
+                                MetricRegistry metrics) {
+        this(directory, FlashcardLog.DEFAULT_CHUNK_SIZE, compactionInterval, compactionThreshold);
+        metrics.register(MetricRegistry.name(MappedFlashcardStore.class, "log-bytes"),
+            (Gauge<Long>) () -> publishedEnd);
+        metrics.register(MetricRegistry.name(MappedFlashcardStore.class, "dead-bytes"),
+            (Gauge<Long>) () -> deadBytes);
+    }
+
+    MappedFlashcardStore(Path directory, int chunkSize, Duration compactionInterval, double compactionThreshold) {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.compactionInterval = compactionInterval;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Opens the log, recovering it after a crash, and starts the periodic compaction.
+     */
+    @Override
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        // A compaction that did not finish left the old log in place
+        Files.deleteIfExists(directory.resolve(COMPACTED_FILE));
+        log = FlashcardLog.open(directory.resolve(LOG_FILE), chunkSize);
+        index = new OffHeapIndex(1024);
+        checkpoints = new Checkpoints();
+        log.scan(0, log.end(), entry -> {
+            apply(entry);
+            return true;
+        });
+        publishedEnd = log.end();
+        LOGGER.info("Opened {} with {} flashcards", directory.resolve(LOG_FILE), ids.size());
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flashcard-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = compactionInterval.toMilliseconds();
+        compactor.scheduleWithFixedDelay(this::compactIfWorthwhile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void addListener(FlashcardListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public List<Flashcard> findPage(Long afterId, int limit) {
+        return readIds(ids, afterId, limit);
+    }
+
+    /**
+     * Hands every flashcard to {@code consumer} a page at a time, so that a slow consumer
+     * does not hold the read lock.
+     */
+    @Override
+    public void streamAll(Consumer<Flashcard> consumer) {
+        Long afterId = null;
+        List<Flashcard> page;
+        do {
+            page = findPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public Optional<Flashcard> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            long offset = index.get(id);
+            return offset == OffHeapIndex.ABSENT ? Optional.empty() : Optional.of(log.read(offset).flashcard);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<FlashcardVersion> findVersion(Long id) {
+        return findById(id).map(flashcard -> new FlashcardVersion(flashcard.getVersion(), flashcard.getUpdatedAt()));
+    }
+
+    @Override
+    public List<Flashcard> findByIds(List<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Flashcard> flashcards = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                long offset = index.get(id);
+                if (offset != OffHeapIndex.ABSENT) {
+                    flashcards.add(log.read(offset).flashcard);
+                }
+            }
+            return flashcards;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Flashcard> findByCategory(String category, Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            SortedIds categoryIds = byCategory.get(category);
+            return categoryIds == null ? new ArrayList<>() : readIds(categoryIds, afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Long> countByCategory() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            byCategory.forEach((category, categoryIds) -> counts.put(category, (long) categoryIds.size()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Flashcard create(Flashcard flashcard) {
+        createBatch(Collections.singletonList(flashcard));
+        return flashcard;
+    }
+
+    /**
+     * Appends all of the given flashcards as one write, forced to disk once.
+     */
+    @Override
+    public int createBatch(List<Flashcard> flashcards) {
+        if (flashcards.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = now();
+        writeLock.lock();
+        try {
+            List<LogEntry> entries = new ArrayList<>(flashcards.size());
+            for (int i = 0; i < flashcards.size(); i++) {
+                Flashcard flashcard = flashcards.get(i);
+                Flashcard stored = new Flashcard(flashcard.getQuestion(), flashcard.getAnswer(), flashcard.getCategory());
+                stored.setId(lastId + 1 + i);
+                stored.setUserId(flashcard.getUserId());
+                stored.setCreatedAt(now);
+                stored.setUpdatedAt(now);
+                entries.add(LogEntry.put(lastChangeSeq + 1 + i, stored));
+            }
+            write(entries, "Failed to store batch of " + flashcards.size() + " flashcards");
+            for (int i = 0; i < flashcards.size(); i++) {
+                Flashcard flashcard = flashcards.get(i);
+                flashcard.setId(entries.get(i).id);
+                flashcard.setCreatedAt(now);
+                flashcard.setUpdatedAt(now);
+                flashcard.setVersion(0);
+                fire(listener -> listener.onCreated(flashcard));
+            }
+            return flashcards.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Flashcard> update(Long id, Flashcard flashcard, Long expectedVersion) {
+        return modify(id, current -> expectedVersion == null || expectedVersion == current.getVersion(),
+            current -> {
+                current.setQuestion(flashcard.getQuestion());
+                current.setAnswer(flashcard.getAnswer());
+                current.setCategory(flashcard.getCategory());
+            });
+    }
+
+    @Override
+    public Optional<Flashcard> patch(Long id, FlashcardPatch patch) {
+        return modify(id, current -> patch.getVersion() == null || patch.getVersion() == current.getVersion(),
+            current -> patch.getChanges().forEach((field, value) -> {
+                switch (field) {
+                    case "question":
+                        current.setQuestion(value);
+                        break;
+                    case "answer":
+                        current.setAnswer(value);
+                        break;
+                    case "category":
+                        current.setCategory(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown flashcard field " + field);
+                }
+            }));
+    }
+
+    @Override
+    public boolean delete(Long id, Long expectedVersion) {
+        writeLock.lock();
+        try {
+            Optional<Flashcard> current = findById(id);
+            if (!current.isPresent()
+                    || (expectedVersion != null && expectedVersion != current.get().getVersion())) {
+                return false;
+            }
+            write(Collections.singletonList(LogEntry.delete(lastChangeSeq + 1, id)), "Failed to delete flashcard " + id);
+            fire(listener -> listener.onDeleted(id));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Scans the log from the last checkpoint at or before {@code since}. Records of
+     * flashcards that have been written again since are skipped, so every flashcard is
+     * listed once, at its latest change.
+     */
+    @Override
+    public FlashcardChanges findChanges(long since, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Flashcard> changed = new ArrayList<>();
+            List<Long> deleted = new ArrayList<>();
+            long[] cursor = {since};
+            boolean[] hasMore = {false};
+            log.scan(checkpoints.offsetAtOrBefore(since), publishedEnd, entry -> {
+                if (entry.changeSeq <= since || (!entry.isDelete() && index.get(entry.id) != entry.offset)) {
+                    return true;
+                }
+                if (changed.size() + deleted.size() == limit) {
+                    hasMore[0] = true;
+                    return false;
+                }
+                if (entry.isDelete()) {
+                    deleted.add(entry.id);
+                } else {
+                    changed.add(entry.flashcard);
+                }
+                cursor[0] = entry.changeSeq;
+                return true;
+            });
+            return new FlashcardChanges(changed, deleted, cursor[0], hasMore[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live records and tombstones to a new log, in log order, and swaps it in
+     * for the old one. Reads carry on against the old log while the copy is made.
+     */
+    void compact() throws IOException {
+        writeLock.lock();
+        try {
+            Path compactedFile = directory.resolve(COMPACTED_FILE);
+            Files.deleteIfExists(compactedFile);
+            FlashcardLog compacted = FlashcardLog.open(compactedFile, chunkSize);
+            OffHeapIndex compactedIndex = new OffHeapIndex(index.size());
+            Checkpoints compactedCheckpoints = new Checkpoints();
+            try {
+                List<LogEntry> copy = new ArrayList<>(1);
+                IOException[] failure = new IOException[1];
+                log.scan(0, publishedEnd, entry -> {
+                    if (!entry.isDelete() && index.get(entry.id) != entry.offset) {
+                        return true;
+                    }
+                    LogEntry copied = entry.isDelete()
+                        ? LogEntry.delete(entry.changeSeq, entry.id)
+                        : LogEntry.put(entry.changeSeq, entry.flashcard);
+                    copy.clear();
+                    copy.add(copied);
+                    try {
+                        compacted.write(copy);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                        return false;
+                    }
+                    if (!copied.isDelete()) {
+                        compactedIndex.put(copied.id, copied.offset);
+                    }
+                    compactedCheckpoints.add(copied);
+                    return true;
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                compacted.force();
+                Files.move(compactedFile, directory.resolve(LOG_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                syncDirectory();
+            } catch (IOException | RuntimeException e) {
+                compacted.close();
+                Files.deleteIfExists(compactedFile);
+                throw e;
+            }
+
+            FlashcardLog old = log;
+            long oldEnd = publishedEnd;
+            lock.writeLock().lock();
+            try {
+                log = compacted;
+                index = compactedIndex;
+                checkpoints = compactedCheckpoints;
+                publishedEnd = compacted.end();
+                deadBytes = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            old.close();
+            LOGGER.info("Compacted flashcard log from {} to {} bytes", oldEnd, compacted.end());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactIfWorthwhile() {
+        try {
+            if (publishedEnd >= MIN_COMPACTION_BYTES && deadBytes > publishedEnd * compactionThreshold) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to compact flashcard log", e);
+        }
+    }
+
+    /**
+     * Writes a new version of the flashcard with the given id if it exists and passes
+     * {@code guard}.
+     */
+    private Optional<Flashcard> modify(Long id, Predicate<Flashcard> guard, Consumer<Flashcard> change) {
+        writeLock.lock();
+        try {
+            Optional<Flashcard> current = findById(id);
+            if (!current.isPresent() || !guard.test(current.get())) {
+                return Optional.empty();
+            }
+            Flashcard updated = current.get();
+            change.accept(updated);
+            updated.setUpdatedAt(now());
+            updated.setVersion(updated.getVersion() + 1);
+            write(Collections.singletonList(LogEntry.put(lastChangeSeq + 1, updated)), "Failed to update flashcard " + id);
+            fire(listener -> listener.onUpdated(updated));
+            return Optional.of(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the records of one write and forces them to disk, then publishes them to
+     * readers. Called with the write lock held.
+     */
+    private void write(List<LogEntry> entries, String failureMessage) {
+        try {
+            log.append(entries);
+        } catch (IOException e) {
+            throw new DataAccessException(failureMessage, e);
+        }
+        lock.writeLock().lock();
+        try {
+            entries.forEach(this::apply);
+            publishedEnd = log.end();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Points the index at a record, and counts the record it replaces as dead.
+     */
+    private void apply(LogEntry entry) {
+        lastChangeSeq = Math.max(lastChangeSeq, entry.changeSeq);
+        lastId = Math.max(lastId, entry.id);
+        checkpoints.add(entry);
+        long previous = index.get(entry.id);
+        if (previous != OffHeapIndex.ABSENT) {
+            LogEntry replaced = log.read(previous);
+            deadBytes += replaced.size;
+            removeFromCategory(replaced.flashcard);
+        }
+        if (entry.isDelete()) {
+            index.remove(entry.id);
+            ids.remove(entry.id);
+        } else {
+            index.put(entry.id, entry.offset);
+            ids.add(entry.id);
+            if (entry.flashcard.getCategory() != null) {
+                byCategory.computeIfAbsent(entry.flashcard.getCategory(), category -> new SortedIds()).add(entry.id);
+            }
+        }
+    }
+
+    private void removeFromCategory(Flashcard flashcard) {
+        SortedIds categoryIds = flashcard.getCategory() == null ? null : byCategory.get(flashcard.getCategory());
+        if (categoryIds != null) {
+            categoryIds.remove(flashcard.getId());
+            if (categoryIds.size() == 0) {
+                byCategory.remove(flashcard.getCategory());
+            }
+        }
+    }
+
+    private List<Flashcard> readIds(SortedIds sortedIds, Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Flashcard> flashcards = new ArrayList<>(Math.min(limit, sortedIds.size()));
+            for (int i = sortedIds.indexAfter(afterId == null ? 0L : afterId);
+                 i < sortedIds.size() && flashcards.size() < limit; i++) {
+                flashcards.add(log.read(index.get(sortedIds.get(i))).flashcard);
+            }
+            return flashcards;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes the rename of the compacted log durable, where the platform allows a
+     * directory to be forced.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Could not force directory {}", directory, e);
+        }
+    }
+
+    private void fire(Consumer<FlashcardListener> event) {
+        for (FlashcardListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.error("Flashcard listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * The current time, to the microsecond as stored in the log.
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Change sequence numbers and offsets of every {@value #CHECKPOINT_INTERVAL}th
+     * record, for starting a scan of the changes since a sequence number near where
+     * they begin.
+     */
+    private static final class Checkpoints {
+
+        private long[] changeSeqs = new long[16];
+        private long[] offsets = new long[16];
+        private int size;
+        private int records;
+
+        void add(LogEntry entry) {
+            if (records++ % CHECKPOINT_INTERVAL != 0) {
+                return;
+            }
+            if (size == changeSeqs.length) {
+                changeSeqs = Arrays.copyOf(changeSeqs, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            changeSeqs[size] = entry.changeSeq;
+            offsets[size] = entry.offset;
+            size++;
+        }
+
+        long offsetAtOrBefore(long changeSeq) {
+            int index = Arrays.binarySearch(changeSeqs, 0, size, changeSeq);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index < 0 ? 0 : offsets[index];
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.flashcardapp.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash map from flashcard id to log offset, held in a direct buffer outside the Java
+ * heap, so that a large deck adds nothing for the garbage collector to trace.
+ *
+ * <p>Each slot is a pair of longs, the id (0 for an empty slot, as ids start at 1) and
+ * the offset. Collisions are resolved by linear probing, and a removal shifts the
+ * entries after it back into the gap instead of leaving a tombstone, so lookups never
+ * slow down as flashcards come and go. Not thread-safe.</p>
+ */
+final class OffHeapIndex {
+
+    static final long ABSENT = -1;
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int size;
+
+    OffHeapIndex(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3L < expectedSize * 4L) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the flashcard with the given id, or {@link #ABSENT}.
+     */
+    long get(long id) {
+        for (int slot = slotOf(id); ; slot = (slot + 1) & mask) {
+            long key = slots.getLong(slot * SLOT_BYTES);
+            if (key == id) {
+                return slots.getLong(slot * SLOT_BYTES + 8);
+            }
+            if (key == 0) {
+                return ABSENT;
+            }
+        }
+    }
+
+    void put(long id, long offset) {
+        if ((size + 1) * 4L > (mask + 1) * 3L) {
+            resize();
+        }
+        int slot = slotOf(id);
+        while (true) {
+            long key = slots.getLong(slot * SLOT_BYTES);
+            if (key == 0) {
+                slots.putLong(slot * SLOT_BYTES, id);
+                size++;
+                break;
+            }
+            if (key == id) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots.putLong(slot * SLOT_BYTES + 8, offset);
+    }
+
+    void remove(long id) {
+        int hole = slotOf(id);
+        while (true) {
+            long key = slots.getLong(hole * SLOT_BYTES);
+            if (key == 0) {
+                return;
+            }
+            if (key == id) {
+                break;
+            }
+            hole = (hole + 1) & mask;
+        }
+        // Move back every following entry whose home slot is not between the hole and itself
+        for (int slot = (hole + 1) & mask; ; slot = (slot + 1) & mask) {
+            long key = slots.getLong(slot * SLOT_BYTES);
+            if (key == 0) {
+                break;
+            }
+            int home = slotOf(key);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                slots.putLong(hole * SLOT_BYTES, key);
+                slots.putLong(hole * SLOT_BYTES + 8, slots.getLong(slot * SLOT_BYTES + 8));
+                hole = slot;
+            }
+        }
+        slots.putLong(hole * SLOT_BYTES, 0);
+        slots.putLong(hole * SLOT_BYTES + 8, 0);
+        size--;
+    }
+
+    private void resize() {
+        if (mask + 1 >= MAX_CAPACITY) {
+            throw new IllegalStateException("Flashcard index is full at " + size + " flashcards");
+        }
+        ByteBuffer old = slots;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity * 2);
+        size = 0;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long key = old.getLong(slot * SLOT_BYTES);
+            if (key != 0) {
+                put(key, old.getLong(slot * SLOT_BYTES + 8));
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        // Direct buffers start zeroed, which is every slot empty
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.flashcardapp.stream;
+
+import com.codahale.metrics.Meter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/**
+ * One open event stream, written with non-blocking servlet I/O.
+ *
+ * <p>Frames wait in a bounded buffer and are written only while the container reports
+ * the connection writable, so no thread ever blocks on a slow client. A subscriber whose
+ * buffer fills up is disconnected rather than allowed to fall further behind; it can
+ * reconnect and catch up from {@code GET /flashcards/changes}.</p>
+ */
+final class EventSubscriber implements WriteListener, AsyncListener {
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream output;
+    private final String category;
+    private final int capacity;
+    private final Meter overflows;
+    private final Consumer<EventSubscriber> onClose;
+
+    // Guarded by this
+    private final Queue<byte[]> pending;
+    private boolean idle;
+    private boolean unflushed;
+    private boolean closed;
+
+    EventSubscriber(AsyncContext asyncContext, String category, int capacity, Meter overflows,
+                    Consumer<EventSubscriber> onClose) throws IOException {
+        this.asyncContext = asyncContext;
+        this.output = asyncContext.getResponse().getOutputStream();
+        this.category = category;
+        this.capacity = capacity;
+        this.overflows = overflows;
+        this.onClose = onClose;
+        this.pending = new ArrayDeque<>(Math.min(capacity, 16));
+    }
+
+    /**
+     * Hands the stream over to the container; from here on frames are written whenever
+     * the connection can take them.
+     */
+    void start() {
+        asyncContext.addListener(this);
+        output.setWriteListener(this);
+    }
+
+    /**
+     * Whether events about flashcards in {@code category} should be sent to this subscriber.
+     */
+    boolean accepts(String category) {
+        return this.category == null || this.category.equals(category);
+    }
+
+    /**
+     * Queues a frame, writing it at once if the connection is idle.
+     *
+     * @return {@code false} if the subscriber is closed, including because its buffer was full.
+     */
+    boolean offer(byte[] frame) {
+        boolean overflow = false;
+        boolean failed = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (pending.size() == capacity) {
+                overflow = true;
+            } else {
+                pending.add(frame);
+                if (idle) {
+                    idle = false;
+                    failed = !write();
+                }
+            }
+        }
+        if (overflow) {
+            overflows.mark();
+        }
+        if (overflow || failed) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onWritePossible() {
+        boolean ok;
+        synchronized (this) {
+            ok = closed || write();
+        }
+        if (!ok) {
+            close();
+        }
+    }
+
+    /**
+     * Writes pending frames, then flushes them, for as long as the connection is ready.
+     * When it stops being ready the container calls {@link #onWritePossible} later.
+     *
+     * @return {@code false} if the connection failed.
+     */
+    private boolean write() {
+        try {
+            while (output.isReady()) {
+                byte[] frame = pending.poll();
+                if (frame != null) {
+                    output.write(frame);
+                    unflushed = true;
+                } else if (unflushed) {
+                    unflushed = false;
+                    output.flush();
+                } else {
+                    idle = true;
+                    return true;
+                }
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ends the stream and stops delivering to it. Safe to call more than once.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+        }
+        onClose.accept(this);
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.flashcardapp.stream;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.FlashcardListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans flashcard changes out to every open event stream as Server-Sent Events.
+ *
+ * <p>Each change is serialized once, after the DAO has committed it, and handed to a
+ * single dispatcher thread that offers the frame to every matching
+ * {@link EventSubscriber}. Offering never blocks: a subscriber that cannot keep up is
+ * disconnected when its own buffer fills, so one slow client cannot hold up the rest.
+ * A comment line is sent on every stream at the heartbeat interval so that proxies and
+ * the connector's idle timeout keep idle streams open, and dead ones are noticed.</p>
+ */
+public class FlashcardEventBroadcaster implements FlashcardListener, Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlashcardEventBroadcaster.class);
+
+    private static final int DISPATCH_QUEUE_CAPACITY = 10_000;
+    private static final byte[] RETRY = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper;
+    private final int subscriberBufferSize;
+    private final long heartbeatMillis;
+    private final Set<EventSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor dispatcher;
+    private final Meter overflows;
+    private ScheduledExecutorService heartbeat;
+
+    public FlashcardEventBroadcaster(ObjectMapper mapper, int subscriberBufferSize, Duration heartbeatInterval,
+                                     MetricRegistry metrics) {
+        this.mapper = mapper;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.heartbeatMillis = heartbeatInterval.toMilliseconds();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(DISPATCH_QUEUE_CAPACITY),
+            runnable -> new Thread(runnable, "flashcard-event-dispatcher"));
+        this.overflows = metrics.meter(MetricRegistry.name(FlashcardEventBroadcaster.class, "slow-subscribers-disconnected"));
+        metrics.register(MetricRegistry.name(FlashcardEventBroadcaster.class, "subscribers"),
+            (Gauge<Integer>) subscribers::size);
+    }
+
+    /**
+     * Opens an event stream on an asynchronous request.
+     *
+     * @param category Only send creates and updates of flashcards in this category, or
+     *                 {@code null} for all. Deletes are always sent.
+     */
+    void subscribe(AsyncContext asyncContext, String category) throws IOException {
+        EventSubscriber subscriber = new EventSubscriber(asyncContext, category, subscriberBufferSize,
+            overflows, subscribers::remove);
+        subscribers.add(subscriber);
+        subscriber.offer(RETRY);
+        subscriber.start();
+    }
+
+    @Override
+    public void onCreated(Flashcard flashcard) {
+        publish(flashcard.getCategory(), frame("created", flashcard));
+    }
+
+    @Override
+    public void onUpdated(Flashcard flashcard) {
+        publish(flashcard.getCategory(), frame("updated", flashcard));
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        publish(null, frame("deleted", Collections.singletonMap("id", id)));
+    }
+
+    @Override
+    public void start() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "flashcard-event-heartbeat"));
+        heartbeat.scheduleAtFixedRate(() -> publish(null, HEARTBEAT), heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        heartbeat.shutdownNow();
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        subscribers.forEach(EventSubscriber::close);
+    }
+
+    /**
+     * @param category Category of the flashcard concerned, or {@code null} to send to
+     *                 every subscriber.
+     */
+    private void publish(String category, byte[] frame) {
+        if (frame == null) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                for (EventSubscriber subscriber : subscribers) {
+                    if (category == null || subscriber.accepts(category)) {
+                        subscriber.offer(frame);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Dropping the event would leave every stream silently out of date; make
+            // subscribers reconnect and catch up instead
+            LOGGER.warn("Event dispatcher is saturated; disconnecting {} subscribers", subscribers.size());
+            subscribers.forEach(EventSubscriber::close);
+        }
+    }
+
+    private byte[] frame(String event, Object data) {
+        try {
+            return ("event: " + event + "\ndata: " + mapper.writeValueAsString(data) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Failed to serialize {} event", event, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.flashcardapp.stream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * {@code GET /flashcards/stream}: a Server-Sent Events feed of flashcard creates,
+ * updates and deletes, optionally limited to one {@code category}.
+ *
+ * <p>Each stream is an asynchronous request written with non-blocking I/O, so an open
+ * stream holds no thread while it waits for events. This is a plain servlet rather
+ * than a Jersey resource because JAX-RS event sinks write with blocking I/O.</p>
+ */
+public class FlashcardEventStreamServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient FlashcardEventBroadcaster broadcaster;
+
+    public FlashcardEventStreamServlet(FlashcardEventBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String category = request.getParameter("category");
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Stop reverse proxies such as nginx from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(0);
+        broadcaster.subscribe(asyncContext, category == null || category.isEmpty() ? null : category);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.flashcardapp.study;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import com.example.flashcardapp.core.ReviewEvent;
+import com.example.flashcardapp.db.ReviewScheduleDAO;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, group-committing writer for review events.
+ *
+ * <p>Request threads hand events to a bounded lock-free queue and return immediately.
+ * A single writer thread takes events off the queue and commits them in batches: a
+ * batch is committed once it reaches {@code maxBatchSize} events or once
+ * {@code maxBatchDelay} has passed since its first event, whichever comes first. When
+ * the queue is full, {@link #submit} refuses the event so the caller can shed load.
+ * Stopping the writer drains and commits everything already queued.</p>
+ *
+ * <p>An event is acknowledged to the client before it is written, so it must only be
+ * refused for good reasons the caller has already ruled out: a review of a flashcard
+ * that does not exist is answered 404 before it is queued. An event that still fails
+ * because its flashcard was deleted meanwhile is discarded, as its schedule went with
+ * the flashcard. Any other failure drops a review the user was told was recorded; those
+ * are counted in {@code dropped} and turn {@link #healthCheck} unhealthy for
+ * {@link #DROP_ALERT_WINDOW}.</p>
+ */
+public class ReviewEventWriter implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReviewEventWriter.class);
+
+    // How long the health check stays unhealthy after an event was dropped
+    static final Duration DROP_ALERT_WINDOW = Duration.minutes(15);
+
+    // SQLSTATE class of integrity constraint violations, such as a deleted flashcard's foreign key
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final ReviewScheduleDAO reviewScheduleDAO;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+
+    private final Queue<ReviewEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final Histogram batchSizes;
+    private final Timer commits;
+    private final Meter rejected;
+    private final Meter failed;
+    private final Meter discarded;
+    private final Counter dropped;
+    private volatile long lastDropNanos;
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    public ReviewEventWriter(ReviewScheduleDAO reviewScheduleDAO, int capacity, int maxBatchSize,
+                             Duration maxBatchDelay, MetricRegistry metrics) {
+        this.reviewScheduleDAO = reviewScheduleDAO;
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = maxBatchDelay.toNanoseconds();
+        metrics.register(MetricRegistry.name(ReviewEventWriter.class, "queue-depth"), (Gauge<Integer>) depth::get);
+        this.batchSizes = metrics.histogram(MetricRegistry.name(ReviewEventWriter.class, "batch-size"));
+        this.commits = metrics.timer(MetricRegistry.name(ReviewEventWriter.class, "commits"));
+        this.rejected = metrics.meter(MetricRegistry.name(ReviewEventWriter.class, "rejected"));
+        this.failed = metrics.meter(MetricRegistry.name(ReviewEventWriter.class, "failed"));
+        this.discarded = metrics.meter(MetricRegistry.name(ReviewEventWriter.class, "discarded"));
+        this.dropped = metrics.counter(MetricRegistry.name(ReviewEventWriter.class, "dropped"));
+    }
+
+    /**
+     * Queues an event to be committed.
+     *
+     * @return {@code false} if the queue is full or the writer is not running, in which
+     *         case the event has not been queued.
+     */
+    public boolean submit(ReviewEvent event) {
+        if (!running) {
+            rejected.mark();
+            return false;
+        }
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            rejected.mark();
+            return false;
+        }
+        queue.offer(event);
+        LockSupport.unpark(writerThread);
+        return true;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::writeLoop, "review-event-writer");
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join();
+    }
+
+    private void writeLoop() {
+        List<ReviewEvent> batch = new ArrayList<>(maxBatchSize);
+        while (running || depth.get() > 0) {
+            ReviewEvent first = poll();
+            if (first == null) {
+                if (running) {
+                    LockSupport.parkNanos(this, maxBatchDelayNanos);
+                }
+                continue;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + maxBatchDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                ReviewEvent next = poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !running) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private ReviewEvent poll() {
+        ReviewEvent event = queue.poll();
+        if (event != null) {
+            depth.decrementAndGet();
+        }
+        return event;
+    }
+
+    /**
+     * Commits a batch, falling back to one event per transaction if the batch fails so
+     * that a single bad event (for example one whose flashcard was deleted meanwhile)
+     * does not take the rest of the batch down with it.
+     */
+    private void commit(List<ReviewEvent> batch) {
+        batchSizes.update(batch.size());
+        try (Timer.Context ignored = commits.time()) {
+            reviewScheduleDAO.saveAll(batch);
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Batch of {} review events failed; retrying one by one", batch.size(), e);
+        }
+        for (ReviewEvent event : batch) {
+            try {
+                reviewScheduleDAO.saveAll(Collections.singletonList(event));
+            } catch (RuntimeException e) {
+                failed.mark();
+                if (violatesConstraint(e)) {
+                    discarded.mark();
+                    LOGGER.info("Discarding review event for flashcard {} of user {}; the flashcard is gone",
+                        event.getFlashcardId(), event.getUserId());
+                } else {
+                    dropped.inc();
+                    lastDropNanos = System.nanoTime();
+                    LOGGER.error("Dropping review event for flashcard {} of user {}",
+                        event.getFlashcardId(), event.getUserId(), e);
+                }
+            }
+        }
+    }
+
+    private static boolean violatesConstraint(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                return sqlState != null && sqlState.startsWith(INTEGRITY_CONSTRAINT_VIOLATION);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A health check that is unhealthy while an event has been dropped within
+     *         {@link #DROP_ALERT_WINDOW}, so that lost reviews raise an alert.
+     */
+    public HealthCheck healthCheck() {
+        return new HealthCheck() {
+            @Override
+            protected Result check() {
+                long count = dropped.getCount();
+                if (count > 0 && System.nanoTime() - lastDropNanos < DROP_ALERT_WINDOW.toNanoseconds()) {
+                    return Result.unhealthy("%d review events dropped since start, the last %d seconds ago",
+                        count, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - lastDropNanos));
+                }
+                return Result.healthy();
+            }
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.flashcardapp.study;
+
+/**
+ * Thrown when a review cannot be accepted because the review event queue is full.
+ */
+public class ReviewQueueFullException extends RuntimeException {
+
+    public ReviewQueueFullException() {
+        super("Review event queue is full");
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.flashcardapp.study;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.ReviewEvent;
+import com.example.flashcardapp.core.ReviewSchedule;
+import com.example.flashcardapp.db.FlashcardListener;
+import com.example.flashcardapp.db.FlashcardStore;
+import com.example.flashcardapp.db.ReviewScheduleDAO;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Server-side SM-2 spaced-repetition scheduler.
+ *
+ * <p>Each active user's review schedules are held in memory, ordered by due time, so
+ * finding the cards due now walks only the due cards rather than the whole deck. Users'
+ * queues are loaded from {@code review_schedules} on first use and evicted according to
+ * the {@link CaffeineSpec}. Reviews update the in-memory queue at once and are persisted
+ * asynchronously by the {@link ReviewEventWriter}, which commits them in groups.</p>
+ */
+public class StudyScheduler implements FlashcardListener {
+
+    private static final Comparator<ReviewSchedule> BY_DUE_TIME =
+        Comparator.comparing(ReviewSchedule::getDueAt).thenComparingLong(ReviewSchedule::getFlashcardId);
+
+    private final FlashcardStore flashcardStore;
+    private final ReviewScheduleDAO reviewScheduleDAO;
+    private final ReviewEventWriter reviewEventWriter;
+    private final Clock clock;
+    private final LoadingCache<Long, UserQueue> queues;
+
+    public StudyScheduler(FlashcardStore flashcardStore, ReviewScheduleDAO reviewScheduleDAO,
+                          ReviewEventWriter reviewEventWriter, Clock clock, CaffeineSpec queueSpec) {
+        this.flashcardStore = flashcardStore;
+        this.reviewScheduleDAO = reviewScheduleDAO;
+        this.reviewEventWriter = reviewEventWriter;
+        this.clock = clock;
+        this.queues = Caffeine.from(queueSpec).build(this::loadQueue);
+    }
+
+    /**
+     * Returns the flashcards the user should study next: those due for review, most
+     * overdue first, topped up with flashcards the user has never reviewed.
+     *
+     * @param userId User studying.
+     * @param limit  Maximum number of flashcards to return.
+     * @return Flashcards to study, in order.
+     */
+    public List<Flashcard> next(long userId, int limit) {
+        UserQueue queue = queues.get(userId);
+        List<Long> dueIds;
+        synchronized (queue) {
+            dueIds = queue.due(clock.instant(), limit);
+        }
+        List<Flashcard> flashcards = new ArrayList<>(flashcardStore.findByIds(dueIds));
+        if (flashcards.size() < limit) {
+            List<Flashcard> unreviewed = reviewScheduleDAO.findUnreviewed(userId, limit - flashcards.size());
+            synchronized (queue) {
+                // Reviews still waiting in the writer are not in the database yet
+                for (Flashcard flashcard : unreviewed) {
+                    if (queue.get(flashcard.getId()) == null) {
+                        flashcards.add(flashcard);
+                    }
+                }
+            }
+        }
+        return flashcards;
+    }
+
+    /**
+     * Records the user's grade for a flashcard and reschedules it.
+     *
+     * @param userId      User studying.
+     * @param flashcardId Flashcard reviewed.
+     * @param grade       Recall quality from 0 to 5.
+     * @return The flashcard's new schedule.
+     * @throws ReviewQueueFullException if the review cannot be queued for writing; the
+     *         flashcard's schedule is then left unchanged.
+     */
+    public ReviewSchedule review(long userId, long flashcardId, int grade) {
+        UserQueue queue = queues.get(userId);
+        synchronized (queue) {
+            Instant now = clock.instant();
+            ReviewSchedule current = queue.get(flashcardId);
+            if (current == null) {
+                current = ReviewSchedule.unreviewed(userId, flashcardId, now);
+            }
+            ReviewSchedule next = current.review(grade, now);
+            if (!reviewEventWriter.submit(new ReviewEvent(grade, now, next))) {
+                throw new ReviewQueueFullException();
+            }
+            queue.put(next);
+            return next;
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id) {
+        for (UserQueue queue : queues.asMap().values()) {
+            synchronized (queue) {
+                queue.remove(id);
+            }
+        }
+    }
+
+    private UserQueue loadQueue(Long userId) {
+        UserQueue queue = new UserQueue();
+        for (ReviewSchedule schedule : reviewScheduleDAO.findByUser(userId)) {
+            queue.put(schedule);
+        }
+        return queue;
+    }
+
+    /**
+     * One user's review schedules, indexed by flashcard and ordered by due time.
+     * Guarded by its own monitor.
+     */
+    private static final class UserQueue {
+
+        private final NavigableSet<ReviewSchedule> byDueTime = new TreeSet<>(BY_DUE_TIME);
+        private final Map<Long, ReviewSchedule> byFlashcard = new HashMap<>();
+
+        ReviewSchedule get(long flashcardId) {
+            return byFlashcard.get(flashcardId);
+        }
+
+        void put(ReviewSchedule schedule) {
+            ReviewSchedule previous = byFlashcard.put(schedule.getFlashcardId(), schedule);
+            if (previous != null) {
+                byDueTime.remove(previous);
+            }
+            byDueTime.add(schedule);
+        }
+
+        void remove(long flashcardId) {
+            ReviewSchedule previous = byFlashcard.remove(flashcardId);
+            if (previous != null) {
+                byDueTime.remove(previous);
+            }
+        }
+
+        List<Long> due(Instant now, int limit) {
+            List<Long> ids = new ArrayList<>(Math.min(limit, byDueTime.size()));
+            for (ReviewSchedule schedule : byDueTime) {
+                if (ids.size() == limit || schedule.getDueAt().isAfter(now)) {
+                    break;
+                }
+                ids.add(schedule.getFlashcardId());
+            }
+            return ids;
+        }
+    }
+}
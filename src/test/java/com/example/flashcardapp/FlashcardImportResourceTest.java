@@ -0,0 +1,158 @@
+package com.example.flashcardapp;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.db.DataAccessException;
+import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.resources.FlashcardImportResource;
+import com.example.flashcardapp.search.DuplicateDetector;
+import com.example.flashcardapp.snapshot.SnapshotFormat;
+import com.example.flashcardapp.snapshot.SnapshotWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class FlashcardImportResourceTest {
+
+    // Mocked FlashcardDAO to simulate database interactions
+    private static final FlashcardDAO mockFlashcardDAO = mock(FlashcardDAO.class);
+
+    // Duplicate detector, filled by the tests that need it
+    private static final DuplicateDetector duplicateDetector = new DuplicateDetector(0.7, 0.9);
+
+    // ResourceExtension with a chunk size of two rows
+    private static final ResourceExtension RESOURCES = ResourceExtension.builder()
+            .addResource(new FlashcardImportResource(mockFlashcardDAO,
+                    Jackson.newObjectMapper(), Validators.newValidator(), 2, duplicateDetector))
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        reset(mockFlashcardDAO);
+        duplicateDetector.clear();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportJsonArray_InChunks() {
+        // Arrange: Every batch is written in full
+        when(mockFlashcardDAO.createBatch(anyList())).thenAnswer(invocation -> ((List<Flashcard>) invocation.getArgument(0)).size());
+        String body = "[" + card("Q1") + "," + card("Q2") + "," + card("Q3") + "]";
+
+        // Act: POST a JSON array of three flashcards
+        JsonNode report = RESOURCES.target("/flashcards/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, MediaType.APPLICATION_JSON), JsonNode.class);
+
+        // Assert: Two chunks were written, of two rows and one row
+        assertThat(report.get("inserted").asInt()).isEqualTo(3);
+        assertThat(report.get("chunks")).hasSize(2);
+        assertThat(report.get("chunks").get(1).get("firstRow").asInt()).isEqualTo(2);
+        verify(mockFlashcardDAO, times(2)).createBatch(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportNdjson_RejectsInvalidRows() {
+        // Arrange: Every batch is written in full
+        when(mockFlashcardDAO.createBatch(anyList())).thenAnswer(invocation -> ((List<Flashcard>) invocation.getArgument(0)).size());
+        String body = card("Q1") + "\n{\"question\":\"\",\"answer\":\"A\"}\n" + card("Q3") + "\n";
+
+        // Act: POST an NDJSON stream whose second row has a blank question
+        JsonNode report = RESOURCES.target("/flashcards/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, FlashcardImportResource.APPLICATION_NDJSON), JsonNode.class);
+
+        // Assert: The invalid row is reported and the others are inserted
+        assertThat(report.get("inserted").asInt()).isEqualTo(2);
+        assertThat(report.get("rejected").asInt()).isEqualTo(1);
+        JsonNode rejected = report.get("chunks").get(0).get("rejected").get(0);
+        assertThat(rejected.get("row").asInt()).isEqualTo(1);
+        assertThat(rejected.get("errors").get(0).asText()).isEqualTo("question: Question cannot be blank");
+    }
+
+    @Test
+    void testImport_FailedChunkDoesNotAbortUpload() {
+        // Arrange: The first batch fails, the second succeeds
+        when(mockFlashcardDAO.createBatch(anyList()))
+                .thenThrow(new DataAccessException("Failed to insert batch", new SQLException("boom")))
+                .thenReturn(1);
+        String body = card("Q1") + "\n" + card("Q2") + "\n" + card("Q3") + "\n";
+
+        // Act: POST an NDJSON stream of three flashcards
+        JsonNode report = RESOURCES.target("/flashcards/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, FlashcardImportResource.APPLICATION_NDJSON), JsonNode.class);
+
+        // Assert: The failed chunk is reported and the next chunk is still written
+        assertThat(report.get("chunks").get(0).get("error").asText()).isEqualTo("Failed to insert batch");
+        assertThat(report.get("inserted").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImport_RejectsNearDuplicates() {
+        // Arrange: The deck already holds a flashcard on photosynthesis
+        when(mockFlashcardDAO.createBatch(anyList())).thenAnswer(invocation -> ((List<Flashcard>) invocation.getArgument(0)).size());
+        duplicateDetector.add(7L, "What is photosynthesis?", "A");
+        String body = card("What is osmosis?") + "\n" + card("What is OSMOSIS") + "\n" + card("What is photosynthesis") + "\n";
+
+        // Act: POST one flashcard twice within a chunk, then the stored flashcard again
+        JsonNode report = RESOURCES.target("/flashcards/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, FlashcardImportResource.APPLICATION_NDJSON), JsonNode.class);
+
+        // Assert: Only the first osmosis row is inserted
+        assertThat(report.get("inserted").asInt()).isEqualTo(1);
+        JsonNode first = report.get("chunks").get(0).get("rejected").get(0);
+        assertThat(first.get("row").asInt()).isEqualTo(1);
+        assertThat(first.get("errors").get(0).asText()).isEqualTo("Near-duplicate of row 0 (similarity 1.00)");
+        JsonNode second = report.get("chunks").get(1).get("rejected").get(0);
+        assertThat(second.get("row").asInt()).isEqualTo(2);
+        assertThat(second.get("errors").get(0).asText()).startsWith("Near-duplicate of flashcard 7");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportSnapshot_InChunks() throws Exception {
+        // Arrange: Every batch is written in full
+        when(mockFlashcardDAO.createBatch(anyList())).thenAnswer(invocation -> ((List<Flashcard>) invocation.getArgument(0)).size());
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter(Channels.newChannel(snapshot));
+        writer.write(new Flashcard("Q1", "A", "Test"));
+        writer.write(new Flashcard("", "A", "Test"));
+        writer.write(new Flashcard("Q3", "A", null));
+        writer.finish();
+
+        // Act: POST a snapshot of three flashcards, the second with a blank question
+        JsonNode report = RESOURCES.target("/flashcards/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(snapshot.toByteArray(), SnapshotFormat.MEDIA_TYPE), JsonNode.class);
+
+        // Assert: The valid rows are inserted in two chunks and the invalid one is reported
+        assertThat(report.get("inserted").asInt()).isEqualTo(2);
+        assertThat(report.get("rejected").asInt()).isEqualTo(1);
+        assertThat(report.get("chunks")).hasSize(2);
+        verify(mockFlashcardDAO, times(2)).createBatch(anyList());
+    }
+
+    private static String card(String question) {
+        return "{\"question\":\"" + question + "\",\"answer\":\"A\",\"category\":\"Test\"}";
+    }
+}
@@ -1,20 +1,38 @@
 package com.example.flashcardapp;
 
+import com.codahale.metrics.MetricRegistry;
 import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardPatch;
+import com.example.flashcardapp.core.FlashcardVersion;
 import com.example.flashcardapp.db.FlashcardDAO;
 import com.example.flashcardapp.resources.FlashcardResource;
+import com.example.flashcardapp.resources.StoreExecutor;
+import com.example.flashcardapp.search.CategorySearchCache;
+import com.example.flashcardapp.search.DuplicateDetector;
+import com.example.flashcardapp.search.FlashcardIndex;
+import com.example.flashcardapp.search.FlashcardSampler;
+import io.dropwizard.jackson.Jackson;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import io.dropwizard.testing.junit5.ResourceExtension;
+import io.dropwizard.util.Duration;
+import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -26,9 +44,29 @@ public class FlashcardResourceTest {
     // Mocked FlashcardDAO to simulate database interactions
     private static final FlashcardDAO mockFlashcardDAO = mock(FlashcardDAO.class);
 
-    // ResourceExtension to set up the testing environment for FlashcardResource
+    // Full-text index, filled by the tests that need it
+    private static final FlashcardIndex flashcardIndex = new FlashcardIndex();
+
+    // Random sampler, filled by the tests that need it
+    private static final FlashcardSampler flashcardSampler = new FlashcardSampler();
+
+    // Duplicate detector, filled by the tests that need it
+    private static final DuplicateDetector duplicateDetector = new DuplicateDetector(0.7, 0.9);
+
+    // Category search sharing only concurrent loads, so every test sees the mock's answers
+    private static final CategorySearchCache categorySearchCache =
+        new CategorySearchCache(Jackson.newObjectMapper(), Duration.seconds(0), 100, new MetricRegistry());
+
+    // Store calls made on threads of their own, as in async mode
+    private static final StoreExecutor storeExecutor =
+        new StoreExecutor(4, 100, Duration.seconds(10), false, new MetricRegistry());
+
+    // ResourceExtension to set up the testing environment for FlashcardResource, served by
+    // Grizzly as the in-memory container cannot suspend requests
     private static final ResourceExtension RESOURCES = ResourceExtension.builder()
-            .addResource(new FlashcardResource(mockFlashcardDAO))
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new FlashcardResource(mockFlashcardDAO, flashcardIndex, flashcardSampler, duplicateDetector,
+                categorySearchCache, storeExecutor))
             .build();
 
     // Sample flashcard instances for testing
@@ -51,20 +89,240 @@ public class FlashcardResourceTest {
         flashcard2.setCategory("Framework");
     }
 
+    @AfterEach
+    void tearDown() {
+        // The DAO mock, index, sampler and detector are shared by every test; clear stubs, calls and entries
+        reset(mockFlashcardDAO);
+        flashcardIndex.remove(1L);
+        flashcardIndex.remove(2L);
+        flashcardSampler.remove(1L);
+        flashcardSampler.remove(2L);
+        duplicateDetector.clear();
+    }
+
     @Test
     void testGetAllFlashcards() {
-        // Arrange: Mock the DAO to return a list of flashcards
+        // Arrange: Mock the DAO to return a page of flashcards
         List<Flashcard> flashcards = Arrays.asList(flashcard1, flashcard2);
-        when(mockFlashcardDAO.findAll()).thenReturn(flashcards);
+        when(mockFlashcardDAO.findPage(null, FlashcardResource.DEFAULT_PAGE_SIZE)).thenReturn(flashcards);
 
         // Act: Make a GET request to /flashcards
-        List<?> response = RESOURCES.target("/flashcards")
+        Response response = RESOURCES.target("/flashcards")
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the response and that no next link is offered for a short page
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(List.class)).hasSize(2);
+        assertThat(response.getLink("next")).isNull();
+        verify(mockFlashcardDAO).findPage(null, FlashcardResource.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    void testGetAllFlashcards_FullPageHasNextLink() {
+        // Arrange: Mock the DAO to return a full page of two flashcards
+        List<Flashcard> flashcards = Arrays.asList(flashcard1, flashcard2);
+        when(mockFlashcardDAO.findPage(null, 2)).thenReturn(flashcards);
+
+        // Act: Make a GET request to /flashcards?limit=2
+        Response response = RESOURCES.target("/flashcards")
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the next link resumes after the last flashcard
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getLink("next").getUri().getQuery().split("&"))
+                .containsExactlyInAnyOrder("after=2", "limit=2");
+    }
+
+    @Test
+    void testGetAllFlashcards_InvalidLimit() {
+        // Act: Make a GET request to /flashcards with a limit above the maximum
+        Response response = RESOURCES.target("/flashcards")
+                .queryParam("limit", FlashcardResource.MAX_PAGE_SIZE + 1)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the response status is 400 Bad Request
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void testGetFlashcardsByIds() {
+        // Arrange: Mock the DAO to find two of the three requested flashcards
+        when(mockFlashcardDAO.findByIds(Arrays.asList(2L, 9L, 1L))).thenReturn(Arrays.asList(flashcard2, flashcard1));
+
+        // Act: Make a GET request to /flashcards?ids=2,9,1,2
+        Response response = RESOURCES.target("/flashcards")
+                .queryParam("ids", "2,9,1,2")
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify one query, the requested order and the missing ID
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getEntityTag()).isNotNull();
+        Map<?, ?> body = response.readEntity(Map.class);
+        List<?> found = (List<?>) body.get("flashcards");
+        assertThat(((Map<?, ?>) found.get(0)).get("id")).isEqualTo(2);
+        assertThat(((Map<?, ?>) found.get(1)).get("id")).isEqualTo(1);
+        assertThat(body.get("missing")).isEqualTo(Arrays.asList(9));
+        verify(mockFlashcardDAO).findByIds(Arrays.asList(2L, 9L, 1L));
+        verify(mockFlashcardDAO, never()).findById(anyLong());
+    }
+
+    @Test
+    void testGetFlashcardsByIds_Invalid() {
+        // Act: Make a GET request to /flashcards with a malformed ID list
+        Response response = RESOURCES.target("/flashcards")
+                .queryParam("ids", "1,two")
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the response status is 400 Bad Request
+        assertThat(response.getStatus()).isEqualTo(400);
+        verifyNoInteractions(mockFlashcardDAO);
+    }
+
+    @Test
+    void testLookupFlashcards() {
+        // Arrange: Mock the DAO to find one of the two requested flashcards
+        when(mockFlashcardDAO.findByIds(Arrays.asList(1L, 5L))).thenReturn(Arrays.asList(flashcard1));
+
+        // Act: Make a POST request to /flashcards/lookup with the IDs in the body
+        Response response = RESOURCES.target("/flashcards/lookup")
+                .request(MediaType.APPLICATION_JSON)
+                .post(javax.ws.rs.client.Entity.json(Arrays.asList(1L, 5L)));
+
+        // Assert: Verify the flashcard found and the ID missing
+        assertThat(response.getStatus()).isEqualTo(200);
+        Map<?, ?> body = response.readEntity(Map.class);
+        assertThat((List<?>) body.get("flashcards")).hasSize(1);
+        assertThat(body.get("missing")).isEqualTo(Arrays.asList(5));
+    }
+
+    @Test
+    void testSearchFlashcardsByCategory_NextLinkKeepsCategory() {
+        // Arrange: Mock the DAO to return a full page of one flashcard
+        when(mockFlashcardDAO.findByCategory("Programming", 0L, 1)).thenReturn(Arrays.asList(flashcard1));
+
+        // Act: Make a GET request to /flashcards/search?category=Programming&after=0&limit=1
+        Response response = RESOURCES.target("/flashcards/search")
+                .queryParam("category", "Programming")
+                .queryParam("after", 0)
+                .queryParam("limit", 1)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the next link stays in the category and resumes after the last flashcard
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getLink("next").getUri().getQuery().split("&"))
+                .containsExactlyInAnyOrder("category=Programming", "after=1", "limit=1");
+        verify(mockFlashcardDAO).findByCategory("Programming", 0L, 1);
+    }
+
+    @Test
+    void testSearchFlashcardsByCategory_MissingCategory() {
+        // Act: Make a GET request to /flashcards/search without a category
+        Response response = RESOURCES.target("/flashcards/search")
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the response status is 400 Bad Request
+        assertThat(response.getStatus()).isEqualTo(400);
+        verifyNoInteractions(mockFlashcardDAO);
+    }
+
+    @Test
+    void testSearchFlashcardsByText() {
+        // Arrange: Index both flashcards and mock the DAO to load the best match
+        flashcardIndex.add(flashcard1);
+        flashcardIndex.add(flashcard2);
+        when(mockFlashcardDAO.findByIds(Arrays.asList(2L))).thenReturn(Arrays.asList(flashcard2));
+
+        // Act: Make a GET request to /flashcards/search?q=dropw, matching "Dropwizard" by prefix
+        List<?> response = RESOURCES.target("/flashcards/search")
+                .queryParam("q", "dropw")
+                .request(MediaType.APPLICATION_JSON)
+                .get(List.class);
+
+        // Assert: Verify only the matching flashcard is loaded and returned
+        assertThat(response).hasSize(1);
+        verify(mockFlashcardDAO).findByIds(Arrays.asList(2L));
+    }
+
+    @Test
+    void testGetRandomFlashcards_SampleFromCategory() {
+        // Arrange: Two flashcards in different categories, loaded in one query
+        flashcardSampler.add(flashcard1);
+        flashcardSampler.add(flashcard2);
+        when(mockFlashcardDAO.findByIds(Arrays.asList(1L))).thenReturn(Arrays.asList(flashcard1));
+
+        // Act: Draw five flashcards from a category holding one
+        List<?> response = RESOURCES.target("/flashcards/random")
+                .queryParam("n", 5)
+                .queryParam("category", "Programming")
+                .queryParam("seed", 42)
                 .request(MediaType.APPLICATION_JSON)
                 .get(List.class);
 
-        // Assert: Verify the response and interactions
+        // Assert: Only the flashcard in the category is drawn and loaded
+        assertThat(response).hasSize(1);
+        verify(mockFlashcardDAO).findByIds(Arrays.asList(1L));
+    }
+
+    @Test
+    void testGetChanges_FullPageHasNextLink() {
+        // Arrange: Mock the DAO to report more changes after this page
+        when(mockFlashcardDAO.findChanges(40L, 2))
+                .thenReturn(new FlashcardChanges(Arrays.asList(flashcard1), Arrays.asList(9L), 42L, true));
+
+        // Act: Make a GET request to /flashcards/changes
+        Response response = RESOURCES.target("/flashcards/changes")
+                .queryParam("since", 40)
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the changes, the cursor and the next link
+        assertThat(response.getStatus()).isEqualTo(200);
+        Map<?, ?> body = response.readEntity(Map.class);
+        assertThat((List<?>) body.get("changed")).hasSize(1);
+        assertThat(body.get("deleted")).isEqualTo(Arrays.asList(9));
+        assertThat(body.get("cursor")).isEqualTo(42);
+        assertThat(response.getLink("next").getUri().getQuery().split("&"))
+                .containsExactlyInAnyOrder("since=42", "limit=2");
+    }
+
+    @Test
+    void testGetChanges_NegativeSince() {
+        // Act: Make a GET request with a negative cursor
+        Response response = RESOURCES.target("/flashcards/changes")
+                .queryParam("since", -1)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Verify the request is rejected without touching the DAO
+        assertThat(response.getStatus()).isEqualTo(400);
+        verifyNoInteractions(mockFlashcardDAO);
+    }
+
+    @Test
+    void testGetCategoryCounts() {
+        // Arrange: Mock the DAO to return per-category counts
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("Framework", 4L);
+        counts.put("Programming", 7L);
+        when(mockFlashcardDAO.countByCategory()).thenReturn(counts);
+
+        // Act: Make a GET request to /flashcards/categories
+        Map<?, ?> response = RESOURCES.target("/flashcards/categories")
+                .request(MediaType.APPLICATION_JSON)
+                .get(Map.class);
+
+        // Assert: Verify the counts are returned as-is
         assertThat(response).hasSize(2);
-        verify(mockFlashcardDAO).findAll();
+        assertThat(((Number) response.get("Programming")).longValue()).isEqualTo(7L);
     }
 
     @Test
@@ -99,6 +357,115 @@ public class FlashcardResourceTest {
         verify(mockFlashcardDAO).findById(3L);
     }
 
+    @Test
+    void testGetFlashcardById_NotModified() {
+        // Arrange: Fetch the flashcard once to learn its ETag
+        flashcard1.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_456_000));
+        when(mockFlashcardDAO.findById(1L)).thenReturn(Optional.of(flashcard1));
+        when(mockFlashcardDAO.findVersion(1L))
+                .thenReturn(Optional.of(new FlashcardVersion(flashcard1.getVersion(), flashcard1.getUpdatedAt())));
+        Response first = RESOURCES.target("/flashcards/1").request(MediaType.APPLICATION_JSON).get();
+        EntityTag tag = first.getEntityTag();
+        assertThat(tag).isNotNull();
+        assertThat(tag.isWeak()).isFalse();
+        assertThat(first.getLastModified()).isNotNull();
+
+        // Act: Revalidate with If-None-Match
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, tag.toString())
+                .get();
+
+        // Assert: 304 without loading the flashcard again
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getEntityTag()).isEqualTo(tag);
+        verify(mockFlashcardDAO, times(1)).findById(1L);
+    }
+
+    @Test
+    void testGetFlashcardById_ModifiedSinceTag() {
+        // Arrange: The flashcard changed after the client's copy was taken
+        flashcard1.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_456_000));
+        when(mockFlashcardDAO.findById(1L)).thenReturn(Optional.of(flashcard1));
+        when(mockFlashcardDAO.findVersion(1L)).thenReturn(
+                Optional.of(new FlashcardVersion(flashcard1.getVersion() + 1, flashcard1.getUpdatedAt().plusNanos(1000))));
+
+        // Act: Revalidate with a stale tag
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-0\"")
+                .get();
+
+        // Assert: The full flashcard is returned
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(Flashcard.class).getQuestion()).isEqualTo("What is Java?");
+    }
+
+    @Test
+    void testGetAllFlashcards_NotModified() {
+        // Arrange: Fetch a page once to learn its collection ETag
+        when(mockFlashcardDAO.findPage(null, FlashcardResource.DEFAULT_PAGE_SIZE))
+                .thenReturn(Arrays.asList(flashcard1, flashcard2));
+        EntityTag tag = RESOURCES.target("/flashcards").request(MediaType.APPLICATION_JSON).get().getEntityTag();
+        assertThat(tag).isNotNull();
+
+        // Act: Revalidate the page, then revalidate after a flashcard on it changed
+        Response unchanged = RESOURCES.target("/flashcards")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, tag.toString())
+                .get();
+        flashcard2.setVersion(flashcard2.getVersion() + 1);
+        Response changed = RESOURCES.target("/flashcards")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, tag.toString())
+                .get();
+
+        // Assert
+        assertThat(unchanged.getStatus()).isEqualTo(304);
+        assertThat(changed.getStatus()).isEqualTo(200);
+        assertThat(changed.getEntityTag()).isNotEqualTo(tag);
+    }
+
+    @Test
+    void testUpdateFlashcard_IfMatchStale() {
+        // Arrange: The flashcard's current version differs from the client's
+        when(mockFlashcardDAO.findVersion(1L))
+                .thenReturn(Optional.of(new FlashcardVersion(5L, LocalDateTime.of(2026, 1, 1, 12, 0))));
+        String staleTag = "\"1-4\"";
+
+        // Act: PUT with If-Match naming the old version
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, staleTag)
+                .put(javax.ws.rs.client.Entity.entity(flashcard1, MediaType.APPLICATION_JSON));
+
+        // Assert: 412 and no write
+        assertThat(response.getStatus()).isEqualTo(412);
+        verify(mockFlashcardDAO, never()).update(anyLong(), any(Flashcard.class), any());
+    }
+
+    @Test
+    void testUpdateFlashcard_IfMatchCurrent() {
+        // Arrange: The client's version is current, but another writer gets in first
+        flashcard1.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        flashcard1.setVersion(4L);
+        when(mockFlashcardDAO.findById(1L)).thenReturn(Optional.of(flashcard1));
+        when(mockFlashcardDAO.findVersion(1L))
+                .thenReturn(Optional.of(new FlashcardVersion(4L, flashcard1.getUpdatedAt())));
+        EntityTag tag = RESOURCES.target("/flashcards/1").request(MediaType.APPLICATION_JSON).get().getEntityTag();
+        when(mockFlashcardDAO.update(eq(1L), any(Flashcard.class), eq(4L))).thenReturn(Optional.empty());
+
+        // Act: PUT with If-Match naming the current version
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, tag.toString())
+                .put(javax.ws.rs.client.Entity.entity(flashcard1, MediaType.APPLICATION_JSON));
+
+        // Assert: The write was conditioned on that version and lost the race
+        assertThat(response.getStatus()).isEqualTo(412);
+        verify(mockFlashcardDAO).update(eq(1L), any(Flashcard.class), eq(4L));
+    }
+
     @Test
     void testCreateFlashcard() {
         // Arrange: Mock the DAO to return the flashcard with an assigned ID
@@ -113,31 +480,81 @@ public class FlashcardResourceTest {
         createdFlashcard.setAnswer(newFlashcard.getAnswer());
         createdFlashcard.setCategory(newFlashcard.getCategory());
 
-        when(mockFlashcardDAO.create(newFlashcard)).thenReturn(createdFlashcard);
+        when(mockFlashcardDAO.create(any(Flashcard.class))).thenReturn(createdFlashcard);
 
         // Act: Make a POST request to /flashcards with the new flashcard data
         Response response = RESOURCES.target("/flashcards")
                 .request(MediaType.APPLICATION_JSON)
                 .post(javax.ws.rs.client.Entity.entity(newFlashcard, MediaType.APPLICATION_JSON));
 
-        // Assert: Verify the response status and content
-        assertThat(response.getStatus()).isEqualTo(200);
+        // Assert: Verify the response status, location and content
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getLocation().getPath()).isEqualTo("/flashcards/3");
         Flashcard returned = response.readEntity(Flashcard.class);
         assertThat(returned.getId()).isEqualTo(3L);
         assertThat(returned.getQuestion()).isEqualTo("What is JUnit?");
-        verify(mockFlashcardDAO).create(newFlashcard);
+        verify(mockFlashcardDAO).create(any(Flashcard.class));
+    }
+
+    @Test
+    void testCreateFlashcard_NearDuplicateRejected() {
+        // Arrange: The deck holds flashcard1, and the new flashcard differs only in punctuation and case
+        duplicateDetector.add(flashcard1);
+        Flashcard newFlashcard = new Flashcard("what is java",
+                "A high-level, class-based, object-oriented programming language!", "Programming");
+
+        // Act: POST the flashcard, then POST it again allowing duplicates
+        Response rejected = RESOURCES.target("/flashcards")
+                .request(MediaType.APPLICATION_JSON)
+                .post(javax.ws.rs.client.Entity.entity(newFlashcard, MediaType.APPLICATION_JSON));
+        Flashcard createdFlashcard = new Flashcard(newFlashcard.getQuestion(), newFlashcard.getAnswer(), "Programming");
+        createdFlashcard.setId(3L);
+        when(mockFlashcardDAO.create(any(Flashcard.class))).thenReturn(createdFlashcard);
+        Response created = RESOURCES.target("/flashcards")
+                .queryParam("allowDuplicates", true)
+                .request(MediaType.APPLICATION_JSON)
+                .post(javax.ws.rs.client.Entity.entity(newFlashcard, MediaType.APPLICATION_JSON));
+
+        // Assert: The first is refused with the duplicate listed, the second is created with a link to it
+        assertThat(rejected.getStatus()).isEqualTo(409);
+        assertThat(rejected.getLink("duplicate").getUri().getPath()).isEqualTo("/flashcards/1");
+        assertThat(rejected.readEntity(String.class)).contains("\"id\":1");
+        assertThat(created.getStatus()).isEqualTo(201);
+        assertThat(created.getLink("duplicate").getUri().getPath()).isEqualTo("/flashcards/1");
+        verify(mockFlashcardDAO, times(1)).create(any(Flashcard.class));
+    }
+
+    @Test
+    void testGetDuplicates() {
+        // Arrange: flashcard1, flashcard2 and a copy of flashcard1 are in the deck
+        Flashcard copy = new Flashcard(flashcard1.getQuestion(), flashcard1.getAnswer(), "Languages");
+        copy.setId(3L);
+        duplicateDetector.add(flashcard1);
+        duplicateDetector.add(flashcard2);
+        duplicateDetector.add(copy);
+
+        // Act: Make a GET request to /flashcards/duplicates
+        Response response = RESOURCES.target("/flashcards/duplicates")
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+
+        // Assert: Only the copy is paired, with flashcard1
+        assertThat(response.getStatus()).isEqualTo(200);
+        List<Map<String, Object>> pairs = response.readEntity(new javax.ws.rs.core.GenericType<List<Map<String, Object>>>() { });
+        assertThat(pairs).hasSize(1);
+        assertThat(pairs.get(0)).containsEntry("firstId", 1).containsEntry("secondId", 3).containsEntry("similarity", 1.0);
     }
 
     @Test
     void testUpdateFlashcard_Found() {
-        // Arrange: Mock the DAO to return an existing flashcard and to update it
+        // Arrange: Mock the DAO to update an existing flashcard
         Flashcard updatedFlashcard = new Flashcard();
         updatedFlashcard.setQuestion("What is JUnit?");
         updatedFlashcard.setAnswer("A popular Java testing framework.");
         updatedFlashcard.setCategory("Testing");
+        updatedFlashcard.setId(1L);
 
-        when(mockFlashcardDAO.findById(1L)).thenReturn(Optional.of(flashcard1));
-        when(mockFlashcardDAO.update(flashcard1)).thenReturn(flashcard1);
+        when(mockFlashcardDAO.update(eq(1L), any(Flashcard.class), isNull())).thenReturn(Optional.of(updatedFlashcard));
 
         // Act: Make a PUT request to /flashcards/1 with updated data
         Response response = RESOURCES.target("/flashcards/1")
@@ -149,8 +566,7 @@ public class FlashcardResourceTest {
         Flashcard returned = response.readEntity(Flashcard.class);
         assertThat(returned.getQuestion()).isEqualTo("What is JUnit?");
         assertThat(returned.getAnswer()).isEqualTo("A popular Java testing framework.");
-        verify(mockFlashcardDAO).findById(1L);
-        verify(mockFlashcardDAO).update(flashcard1);
+        verify(mockFlashcardDAO).update(eq(1L), any(Flashcard.class), isNull());
     }
 
     @Test
@@ -161,7 +577,7 @@ public class FlashcardResourceTest {
         updatedFlashcard.setAnswer("A popular Java testing framework.");
         updatedFlashcard.setCategory("Testing");
 
-        when(mockFlashcardDAO.findById(4L)).thenReturn(Optional.empty());
+        when(mockFlashcardDAO.update(eq(4L), any(Flashcard.class), isNull())).thenReturn(Optional.empty());
 
         // Act: Make a PUT request to /flashcards/4 with updated data
         Response response = RESOURCES.target("/flashcards/4")
@@ -170,31 +586,100 @@ public class FlashcardResourceTest {
 
         // Assert: Verify the response status is 404 Not Found
         assertThat(response.getStatus()).isEqualTo(404);
-        verify(mockFlashcardDAO).findById(4L);
-        verify(mockFlashcardDAO, never()).update(any(Flashcard.class));
+        verify(mockFlashcardDAO).update(eq(4L), any(Flashcard.class), isNull());
+    }
+
+    @Test
+    void testPatchFlashcard_ChangesOnlyGivenFields() {
+        // Arrange: Mock the DAO to apply the patch
+        flashcard1.setCategory(null);
+        flashcard1.setVersion(4L);
+        when(mockFlashcardDAO.patch(eq(1L), any(FlashcardPatch.class))).thenReturn(Optional.of(flashcard1));
+
+        // Act: PATCH /flashcards/1 removing the category at version 3
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .method("PATCH", javax.ws.rs.client.Entity.entity("{\"category\": null, \"version\": 3}",
+                        FlashcardResource.MERGE_PATCH_JSON));
+
+        // Assert: Only the category is changed, against the client's version
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(Flashcard.class).getVersion()).isEqualTo(4L);
+        verify(mockFlashcardDAO).patch(eq(1L), argThat(patch ->
+                patch.getChanges().keySet().equals(java.util.Collections.singleton("category"))
+                        && patch.getChanges().get("category") == null
+                        && patch.getVersion() == 3L));
+        verify(mockFlashcardDAO, never()).findById(anyLong());
+    }
+
+    @Test
+    void testPatchFlashcard_VersionConflict() {
+        // Arrange: The flashcard exists but is no longer at the client's version
+        when(mockFlashcardDAO.patch(eq(1L), any(FlashcardPatch.class))).thenReturn(Optional.empty());
+        when(mockFlashcardDAO.findVersion(1L))
+                .thenReturn(Optional.of(new FlashcardVersion(4L, LocalDateTime.of(2026, 1, 1, 12, 0))));
+
+        // Act: PATCH /flashcards/1 at a stale version
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .method("PATCH", javax.ws.rs.client.Entity.entity("{\"answer\": \"A language.\", \"version\": 3}",
+                        FlashcardResource.MERGE_PATCH_JSON));
+
+        // Assert: Verify the response status is 409 Conflict
+        assertThat(response.getStatus()).isEqualTo(409);
+    }
+
+    @Test
+    void testPatchFlashcard_IfMatch() {
+        // Arrange: The client's ETag is current, but another writer gets in first
+        when(mockFlashcardDAO.findVersion(1L))
+                .thenReturn(Optional.of(new FlashcardVersion(4L, LocalDateTime.of(2026, 1, 1, 12, 0))));
+        when(mockFlashcardDAO.patch(eq(1L), any(FlashcardPatch.class))).thenReturn(Optional.empty());
+
+        // Act: PATCH /flashcards/1 with If-Match instead of a version in the body
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"1-4\"")
+                .method("PATCH", javax.ws.rs.client.Entity.entity("{\"answer\": \"A language.\"}",
+                        FlashcardResource.MERGE_PATCH_JSON));
+
+        // Assert: The patch was conditioned on the ETag's version and lost the race
+        assertThat(response.getStatus()).isEqualTo(412);
+        verify(mockFlashcardDAO).patch(eq(1L), argThat(patch -> patch.getVersion() == 4L));
+    }
+
+    @Test
+    void testPatchFlashcard_BlankQuestion() {
+        // Act: PATCH /flashcards/1 blanking the question
+        Response response = RESOURCES.target("/flashcards/1")
+                .request(MediaType.APPLICATION_JSON)
+                .method("PATCH", javax.ws.rs.client.Entity.entity("{\"question\": \" \"}",
+                        FlashcardResource.MERGE_PATCH_JSON));
+
+        // Assert: The patch is rejected without touching the DAO
+        assertThat(response.getStatus()).isEqualTo(422);
+        verifyNoInteractions(mockFlashcardDAO);
     }
 
     @Test
     void testDeleteFlashcard_Found() {
-        // Arrange: Mock the DAO to return an existing flashcard for deletion
-        when(mockFlashcardDAO.findById(2L)).thenReturn(Optional.of(flashcard2));
-        doNothing().when(mockFlashcardDAO).delete(flashcard2);
+        // Arrange: Mock the DAO to report that the flashcard was deleted
+        when(mockFlashcardDAO.delete(2L, null)).thenReturn(true);
 
         // Act: Make a DELETE request to /flashcards/2
         Response response = RESOURCES.target("/flashcards/2")
                 .request(MediaType.APPLICATION_JSON)
                 .delete();
 
-        // Assert: Verify the response status is 200 OK
-        assertThat(response.getStatus()).isEqualTo(200);
-        verify(mockFlashcardDAO).findById(2L);
-        verify(mockFlashcardDAO).delete(flashcard2);
+        // Assert: Verify the response status is 204 No Content
+        assertThat(response.getStatus()).isEqualTo(204);
+        verify(mockFlashcardDAO).delete(2L, null);
     }
 
     @Test
     void testDeleteFlashcard_NotFound() {
-        // Arrange: Mock the DAO to return empty when searching for a non-existent ID
-        when(mockFlashcardDAO.findById(5L)).thenReturn(Optional.empty());
+        // Arrange: Mock the DAO to report that nothing was deleted
+        when(mockFlashcardDAO.delete(5L, null)).thenReturn(false);
 
         // Act: Make a DELETE request to /flashcards/5
         Response response = RESOURCES.target("/flashcards/5")
@@ -203,7 +688,6 @@ public class FlashcardResourceTest {
 
         // Assert: Verify the response status is 404 Not Found
         assertThat(response.getStatus()).isEqualTo(404);
-        verify(mockFlashcardDAO).findById(5L);
-        verify(mockFlashcardDAO, never()).delete(any(Flashcard.class));
+        verify(mockFlashcardDAO).delete(5L, null);
     }
 }
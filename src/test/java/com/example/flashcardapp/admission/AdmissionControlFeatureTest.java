@@ -0,0 +1,97 @@
+package com.example.flashcardapp.admission;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class AdmissionControlFeatureTest {
+
+    private static final CountDownLatch entered = new CountDownLatch(1);
+    private static final CountDownLatch release = new CountDownLatch(1);
+
+    // Three requests per client, one expensive request at a time, shed after 50ms in the queue
+    private static final ResourceExtension RESOURCES = ResourceExtension.builder()
+            .addProvider(new AdmissionControlFeature(0.001, 3, 4, 1, Duration.milliseconds(50),
+                "X-Forwarded-For", 1, new MetricRegistry()))
+            .addResource(new TestResource())
+            .build();
+
+    @Path("/test")
+    @AdmissionControlled
+    public static class TestResource {
+
+        @GET
+        @Path("/cheap")
+        public String cheap() {
+            return "cheap";
+        }
+
+        @GET
+        @Path("/expensive")
+        @AdmissionControlled(AdmissionControlled.Cost.EXPENSIVE)
+        public String expensive() throws InterruptedException {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "expensive";
+        }
+    }
+
+    @Test
+    void testRateLimitsEachClientSeparately() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(get("/test/cheap", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        Response limited = get("/test/cheap", "10.0.0.1");
+
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(limited.getHeaderString(HttpHeaders.RETRY_AFTER))).isPositive();
+        assertThat(get("/test/cheap", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testForgedForwardedForDoesNotEscapeTheLimit() {
+        // The client prepends a different address each time; the proxy appends the real one
+        for (int i = 0; i < 3; i++) {
+            assertThat(get("/test/cheap", "203.0.113." + i + ", 10.0.2.1").getStatus()).isEqualTo(200);
+        }
+
+        assertThat(get("/test/cheap", "203.0.113.99, 10.0.2.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void testShedsExpensiveRequestsWhenBulkheadIsFull() throws Exception {
+        // Hold the only expensive permit
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() -> get("/test/expensive", "10.0.1.1"));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Response shed = get("/test/expensive", "10.0.1.2");
+        Response cheap = get("/test/cheap", "10.0.1.2");
+        release.countDown();
+
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(cheap.getStatus()).isEqualTo(200);
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        // The permit is back once the first response has been written
+        assertThat(get("/test/expensive", "10.0.1.3").getStatus()).isEqualTo(200);
+    }
+
+    private static Response get(String path, String client) {
+        return RESOURCES.target(path).request().header("X-Forwarded-For", client).get();
+    }
+}
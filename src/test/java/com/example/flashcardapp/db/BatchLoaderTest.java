@@ -0,0 +1,94 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.UniformReservoir;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchLoaderTest {
+
+    private final List<List<Long>> calls = new CopyOnWriteArrayList<>();
+    private final Histogram batchSizes = new Histogram(new UniformReservoir());
+
+    @Test
+    void testConcurrentLoadsShareOneCall() throws Exception {
+        // Arrange: Even keys exist, odd keys do not
+        BatchLoader<Long, String> loader = new BatchLoader<>(this::loadEven,
+            TimeUnit.MILLISECONDS.toNanos(500), 100, batchSizes);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        // Act: Five threads load at once, two of them the same key
+        List<Future<Optional<String>>> results = new ArrayList<>();
+        try {
+            for (long key : new long[] {2, 3, 4, 2, 6}) {
+                results.add(executor.submit(() -> loader.load(key)));
+            }
+            // Assert: Every caller gets its own value, or empty if its key does not exist
+            assertThat(results.get(0).get(5, TimeUnit.SECONDS)).contains("card 2");
+            assertThat(results.get(1).get(5, TimeUnit.SECONDS)).isEmpty();
+            assertThat(results.get(2).get(5, TimeUnit.SECONDS)).contains("card 4");
+            assertThat(results.get(3).get(5, TimeUnit.SECONDS)).contains("card 2");
+            assertThat(results.get(4).get(5, TimeUnit.SECONDS)).contains("card 6");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(calls).hasSize(1);
+        assertThat(calls.get(0)).containsExactlyInAnyOrder(2L, 3L, 4L, 6L);
+        assertThat(batchSizes.getSnapshot().getMax()).isEqualTo(4);
+    }
+
+    @Test
+    void testFullBatchLoadsWithoutWaitingOutTheWindow() throws Exception {
+        // Arrange: A window far longer than the test may take
+        BatchLoader<Long, String> loader = new BatchLoader<>(this::loadEven,
+            TimeUnit.SECONDS.toNanos(30), 2, batchSizes);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act & Assert: The second key fills the batch, which loads at once
+        try {
+            Future<Optional<String>> first = executor.submit(() -> loader.load(2L));
+            Future<Optional<String>> second = executor.submit(() -> loader.load(4L));
+            assertThat(first.get(5, TimeUnit.SECONDS)).contains("card 2");
+            assertThat(second.get(5, TimeUnit.SECONDS)).contains("card 4");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(calls).hasSize(1);
+    }
+
+    @Test
+    void testFailureReachesEveryCaller() {
+        // Arrange
+        BatchLoader<Long, String> loader = new BatchLoader<>(keys -> {
+            throw new DataAccessException("Failed to load", new SQLException("connection reset"));
+        }, TimeUnit.MILLISECONDS.toNanos(1), 100, batchSizes);
+
+        // Act & Assert
+        assertThatThrownBy(() -> loader.load(1L)).isInstanceOf(DataAccessException.class);
+    }
+
+    private Map<Long, String> loadEven(List<Long> keys) {
+        calls.add(new ArrayList<>(keys));
+        Map<Long, String> values = new HashMap<>();
+        for (Long key : keys) {
+            if (key % 2 == 0) {
+                values.put(key, "card " + key);
+            }
+        }
+        return values;
+    }
+}
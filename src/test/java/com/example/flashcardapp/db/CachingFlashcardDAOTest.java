@@ -0,0 +1,84 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingFlashcardDAOTest {
+
+    private ManagedDataSource dataSource;
+    private CachingFlashcardDAO flashcardDAO;
+
+    @BeforeEach
+    void setup() throws Exception {
+        dataSource = migratedDatabase();
+        flashcardDAO = new CachingFlashcardDAO(dataSource, QueryMetrics.unregistered(),
+            CaffeineSpec.parse("maximumSize=100"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dataSource.stop();
+    }
+
+    @Test
+    void testListenersReadBackTheWrite() {
+        // Arrange: A cached flashcard, and a listener reading every changed flashcard back
+        Flashcard created = flashcardDAO.create(new Flashcard("What is H2?", "A database", "Tech"));
+        assertThat(flashcardDAO.findById(created.getId())).isPresent();
+        List<Optional<Flashcard>> readBack = new ArrayList<>();
+        flashcardDAO.addListener(new FlashcardListener() {
+            @Override
+            public void onUpdated(Flashcard flashcard) {
+                readBack.add(flashcardDAO.findById(flashcard.getId()));
+            }
+
+            @Override
+            public void onDeleted(Long id) {
+                readBack.add(flashcardDAO.findById(id));
+            }
+        });
+
+        // Act
+        flashcardDAO.update(created.getId(), new Flashcard("What is H2?", "An embedded database", "Tech"), null);
+        flashcardDAO.delete(created.getId());
+
+        // Assert: Neither listener call saw the copy cached before the write
+        assertThat(readBack).hasSize(2);
+        assertThat(readBack.get(0)).hasValueSatisfying(
+            flashcard -> assertThat(flashcard.getAnswer()).isEqualTo("An embedded database"));
+        assertThat(readBack.get(1)).isEmpty();
+    }
+
+    private static ManagedDataSource migratedDatabase() throws Exception {
+        DataSourceFactory factory = new DataSourceFactory();
+        factory.setDriverClass("org.h2.Driver");
+        factory.setUrl("jdbc:h2:mem:cache-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        factory.setUser("sa");
+        factory.setPassword("");
+        ManagedDataSource dataSource = factory.build(new MetricRegistry(), "cache");
+        dataSource.start();
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("migrations/db.changelog-master.xml", new ClassLoaderResourceAccessor(),
+                new JdbcConnection(connection)).update(new Contexts());
+        }
+        return dataSource;
+    }
+}
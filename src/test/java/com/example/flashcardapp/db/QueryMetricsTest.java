@@ -0,0 +1,31 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryMetricsTest {
+
+    @Test
+    void testTimesEachQueryUnderItsDaoAndMethod() {
+        // Arrange
+        MetricRegistry metrics = new MetricRegistry();
+        QueryMetrics queryMetrics = new QueryMetrics(metrics, Duration.milliseconds(200));
+
+        // Act
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findById")) {
+            // the query
+        }
+        try (QueryMetrics.Context ignored = queryMetrics.time(FlashcardDAO.class, "findById")) {
+            // the query
+        }
+
+        // Assert
+        Timer timer = metrics.getTimers().get("com.example.flashcardapp.db.FlashcardDAO.findById");
+        assertThat(timer).isNotNull();
+        assertThat(timer.getCount()).isEqualTo(2);
+    }
+}
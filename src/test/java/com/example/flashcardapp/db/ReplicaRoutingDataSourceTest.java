@@ -0,0 +1,126 @@
+package com.example.flashcardapp.db;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.util.Duration;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the DAO against two embedded databases, a primary and a "replica" that never
+ * receives the primary's writes, so that which one served a read is visible.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private ManagedDataSource primary;
+    private ManagedDataSource replica;
+
+    @BeforeEach
+    void setup() throws Exception {
+        primary = migratedDatabase("primary");
+        replica = migratedDatabase("replica");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ReadConsistency.clear();
+        primary.stop();
+        replica.stop();
+    }
+
+    @Test
+    void testReadsGoToReplicaOnlyWhenAllowed() {
+        // Arrange
+        ReplicaRoutingDataSource router = router(replica);
+        FlashcardDAO flashcardDAO = new FlashcardDAO(primary, router, QueryMetrics.unregistered());
+        Flashcard created = flashcardDAO.create(new Flashcard("What is H2?", "A database", "Tech"));
+
+        // Act & Assert: The replica has not seen the write
+        assertThat(flashcardDAO.findById(created.getId())).isPresent();
+        ReadConsistency.allowReplica();
+        assertThat(flashcardDAO.findById(created.getId())).isEmpty();
+        assertThat(flashcardDAO.findPage(null, 10)).isEmpty();
+        assertThat(ReadConsistency.fromPrimary(() -> flashcardDAO.findById(created.getId()))).isPresent();
+    }
+
+    @Test
+    void testFailedReplicaLeavesRotationUntilItPassesAHealthCheck() throws Exception {
+        // Arrange: A replica that refuses connections
+        DataSource failing = mock(DataSource.class);
+        when(failing.getConnection()).thenThrow(new SQLException("Connection refused"));
+        ReplicaRoutingDataSource router = router(failing);
+        FlashcardDAO flashcardDAO = new FlashcardDAO(primary, router, QueryMetrics.unregistered());
+        Flashcard created = flashcardDAO.create(new Flashcard("What is H2?", "A database", "Tech"));
+        ReadConsistency.allowReplica();
+
+        // Act & Assert: The read falls back to the primary
+        assertThat(flashcardDAO.findById(created.getId())).isPresent();
+        assertThat(healthyReplicas()).isEqualTo(0);
+
+        // Act & Assert: Back in rotation once it answers again
+        doAnswer(invocation -> replica.getConnection()).when(failing).getConnection();
+        router.checkReplicas();
+        assertThat(healthyReplicas()).isEqualTo(1);
+        assertThat(flashcardDAO.findById(created.getId())).isEmpty();
+    }
+
+    @Test
+    void testCacheMissesLoadFromPrimary() {
+        // Arrange
+        CachingFlashcardDAO flashcardDAO = new CachingFlashcardDAO(primary, router(replica),
+            QueryMetrics.unregistered(), CaffeineSpec.parse("maximumSize=100"));
+        Flashcard created = flashcardDAO.create(new Flashcard("What is H2?", "A database", "Tech"));
+        ReadConsistency.allowReplica();
+
+        // Act & Assert
+        assertThat(flashcardDAO.findById(created.getId())).isPresent();
+        assertThat(flashcardDAO.findByIds(Arrays.asList(created.getId(), created.getId() + 1))).hasSize(1);
+    }
+
+    private ReplicaRoutingDataSource router(DataSource replica) {
+        return new ReplicaRoutingDataSource(primary, Collections.singletonList(replica), Duration.seconds(5), metrics);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int healthyReplicas() {
+        return ((Gauge<Integer>) metrics.getGauges()
+            .get(MetricRegistry.name(ReplicaRoutingDataSource.class, "healthy-replicas"))).getValue();
+    }
+
+    private ManagedDataSource migratedDatabase(String name) throws Exception {
+        DataSourceFactory factory = new DataSourceFactory();
+        factory.setDriverClass("org.h2.Driver");
+        factory.setUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        factory.setUser("sa");
+        factory.setPassword("");
+        ManagedDataSource dataSource = factory.build(new MetricRegistry(), name);
+        dataSource.start();
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("migrations/db.changelog-master.xml", new ClassLoaderResourceAccessor(),
+                new JdbcConnection(connection)).update(new Contexts());
+        }
+        return dataSource;
+    }
+}
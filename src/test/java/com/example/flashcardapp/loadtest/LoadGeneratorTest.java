@@ -0,0 +1,76 @@
+package com.example.flashcardapp.loadtest;
+
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadGeneratorTest {
+
+    private final ScheduledExecutorService server = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        server.shutdownNow();
+    }
+
+    @Test
+    void testStallCountsAgainstRequestsHeldUpBehindIt() throws Exception {
+        // Arrange: One request in flight at a time, and the first one stalls for 500ms
+        LoadGenerator generator = new LoadGenerator(Collections.singletonMap(Endpoint.GET_BY_ID, 1), 200, 1);
+        AtomicInteger sent = new AtomicInteger();
+        RequestSender sender = endpoint -> {
+            CompletableFuture<Integer> response = new CompletableFuture<>();
+            server.schedule(() -> response.complete(200), sent.getAndIncrement() == 0 ? 500 : 0, TimeUnit.MILLISECONDS);
+            return response;
+        };
+
+        // Act
+        LoadTestReport report = generator.run(sender, Duration.seconds(0), Duration.seconds(1));
+
+        // Assert: The ~100 requests due during the stall waited for it, from 500ms down to 0
+        LoadTestReport.EndpointReport getById = report.getEndpoints().get("getById");
+        assertThat(getById.getRequests()).isEqualTo(200);
+        assertThat(getById.getStatuses()).containsEntry("200", 200L);
+        assertThat(getById.getLatencyMillis().get("max")).isGreaterThanOrEqualTo(500.0);
+        assertThat(getById.getLatencyMillis().get("p90")).isGreaterThan(300.0);
+    }
+
+    @Test
+    void testWarmupIsNotMeasuredAndFailuresAreCounted() throws Exception {
+        // Arrange
+        Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+        mix.put(Endpoint.CREATE, 1);
+        mix.put(Endpoint.SEARCH, 0);
+        LoadGenerator generator = new LoadGenerator(mix, 100, 10);
+        AtomicInteger sent = new AtomicInteger();
+        RequestSender sender = endpoint -> {
+            int n = sent.getAndIncrement();
+            return n % 2 == 0
+                ? CompletableFuture.completedFuture(n % 4 == 0 ? 201 : 429)
+                : CompletableFuture.failedFuture(new RuntimeException("Connection refused"));
+        };
+
+        // Act
+        LoadTestReport report = generator.run(sender, Duration.milliseconds(500), Duration.milliseconds(500));
+
+        // Assert
+        LoadTestReport.EndpointReport create = report.getEndpoints().get("create");
+        assertThat(sent.get()).isEqualTo(100);
+        assertThat(create.getRequests()).isEqualTo(50);
+        assertThat(create.getFailures()).isEqualTo(25);
+        assertThat(create.getStatuses()).containsOnlyKeys("201", "429");
+        assertThat(create.getThroughput()).isEqualTo(100.0);
+        assertThat(report.getEndpoints().get("search").getRequests()).isZero();
+    }
+}
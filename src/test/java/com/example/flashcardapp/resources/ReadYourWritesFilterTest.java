@@ -0,0 +1,64 @@
+package com.example.flashcardapp.resources;
+
+import com.example.flashcardapp.db.ReadConsistency;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class ReadYourWritesFilterTest {
+
+    private static final ResourceExtension RESOURCES = ResourceExtension.builder()
+            .addProvider(new ReadYourWritesFilter(Duration.seconds(5)))
+            .addResource(new TestResource())
+            .build();
+
+    @Path("/test")
+    public static class TestResource {
+
+        @GET
+        public String read() {
+            return Boolean.toString(ReadConsistency.isReplicaAllowed());
+        }
+
+        @POST
+        public String write(String body) {
+            return Boolean.toString(ReadConsistency.isReplicaAllowed());
+        }
+    }
+
+    @Test
+    void testReadsAfterOwnWriteStayOnPrimary() {
+        assertThat(RESOURCES.target("/test").request().get(String.class)).isEqualTo("true");
+
+        Response write = RESOURCES.target("/test").request().post(Entity.text("card"));
+        NewCookie cookie = write.getCookies().get(ReadYourWritesFilter.COOKIE);
+
+        assertThat(write.readEntity(String.class)).isEqualTo("false");
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+        assertThat(RESOURCES.target("/test").request().cookie(cookie).get(String.class)).isEqualTo("false");
+    }
+
+    @Test
+    void testExpiredWindowReadsFromReplica() {
+        String expired = Long.toString(System.currentTimeMillis() - 1);
+
+        String replicaAllowed = RESOURCES.target("/test").request()
+            .cookie(ReadYourWritesFilter.COOKIE, expired)
+            .get(String.class);
+
+        assertThat(replicaAllowed).isEqualTo("true");
+    }
+}
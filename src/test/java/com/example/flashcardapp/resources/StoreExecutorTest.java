@@ -0,0 +1,134 @@
+package com.example.flashcardapp.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import io.dropwizard.util.Duration;
+import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class StoreExecutorTest {
+
+    private static final MetricRegistry METRICS = new MetricRegistry();
+
+    // One thread, one waiting call, and a timeout well short of the slow call
+    private static final StoreExecutor EXECUTOR = new StoreExecutor(1, 1, Duration.seconds(1), false, METRICS);
+
+    private static final AtomicInteger CALLS = new AtomicInteger();
+    private static volatile CountDownLatch started = new CountDownLatch(1);
+    private static volatile CountDownLatch release = new CountDownLatch(1);
+
+    private static final ResourceExtension RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new TestResource())
+            .addProvider(new SuspendedRequestTimer(METRICS))
+            .build();
+
+    @Path("/test")
+    public static class TestResource {
+
+        @GET
+        public void slow(@Suspended AsyncResponse asyncResponse) {
+            EXECUTOR.resume(asyncResponse, () -> {
+                CALLS.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Response.ok("done").build();
+            });
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        while (pending() > 0) {
+            Thread.sleep(1);
+        }
+        CALLS.set(0);
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    @Test
+    void testTimedOutRequestsAreAnswered503AndQueuedCallsSkipped() throws Exception {
+        // Arrange: The only thread is held by a slow call
+        Future<Response> running = RESOURCES.target("/test").request().async().get();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        long timedOut = METRICS.meter(MetricRegistry.name(StoreExecutor.class, "timed-out")).getCount();
+        long slowRequests = slowRequests();
+
+        // Act: A second request waits for the thread past its timeout
+        Response queued = RESOURCES.target("/test").request().get();
+
+        // Assert
+        assertThat(queued.getStatus()).isEqualTo(503);
+        assertThat(queued.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(running.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(503);
+
+        // Once the slow call returns, the timed out call behind it never runs
+        release.countDown();
+        while (pending() > 0) {
+            Thread.sleep(1);
+        }
+        assertThat(CALLS.get()).isEqualTo(1);
+        assertThat(METRICS.meter(MetricRegistry.name(StoreExecutor.class, "timed-out")).getCount())
+            .isEqualTo(timedOut + 2);
+
+        // Both requests are timed until their 503 was written, not until they were suspended
+        assertThat(slowRequests()).isEqualTo(slowRequests + 2);
+    }
+
+    @Test
+    void testCallsBeyondQueueAreRejectedAtOnce() throws Exception {
+        // Arrange: One call running and one waiting
+        Future<Response> running = RESOURCES.target("/test").request().async().get();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Response> waiting = RESOURCES.target("/test").request().async().get();
+        while (pending() < 2) {
+            Thread.sleep(1);
+        }
+        long rejected = METRICS.meter(MetricRegistry.name(StoreExecutor.class, "rejected")).getCount();
+
+        // Act
+        Response third = RESOURCES.target("/test").request().get();
+
+        // Assert: Rejected without waiting, while the others still complete
+        assertThat(third.getStatus()).isEqualTo(503);
+        assertThat(METRICS.meter(MetricRegistry.name(StoreExecutor.class, "rejected")).getCount())
+            .isEqualTo(rejected + 1);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS).readEntity(String.class)).isEqualTo("done");
+        assertThat(waiting.get(5, TimeUnit.SECONDS).readEntity(String.class)).isEqualTo("done");
+    }
+
+    // Requests timed at the timeout or longer
+    private static long slowRequests() {
+        long[] durations = METRICS.timer(MetricRegistry.name(TestResource.class, "slow")).getSnapshot().getValues();
+        return Arrays.stream(durations).filter(duration -> duration >= TimeUnit.MILLISECONDS.toNanos(900)).count();
+    }
+
+    private static int pending() {
+        return (Integer) METRICS.getGauges().get(MetricRegistry.name(StoreExecutor.class, "pending")).getValue();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.flashcardapp.search;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CategorySearchCacheTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    void testConcurrentSearchesShareOneQuery() throws Exception {
+        // Arrange: A query that blocks until every search has arrived
+        CategorySearchCache cache = new CategorySearchCache(Jackson.newObjectMapper(), Duration.seconds(0), 100, metrics);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<Flashcard>> loader = () -> {
+            queries.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonList(card(1L, "Biology"));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CategorySearchCache.CategoryPage>> searches = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                searches.add(executor.submit(() -> cache.get("Biology", null, 10, loader)));
+            }
+            while (metrics.meter(MetricRegistry.name(CategorySearchCache.class, "coalesced")).getCount() < 7) {
+                Thread.sleep(1);
+            }
+
+            // Act
+            release.countDown();
+
+            // Assert: One query and one serialized page for all of them
+            CategorySearchCache.CategoryPage first = searches.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<CategorySearchCache.CategoryPage> search : searches) {
+                assertThat(search.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(queries.get()).isEqualTo(1);
+            assertThat(new String(first.getJson(), StandardCharsets.UTF_8)).contains("\"category\":\"Biology\"");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Without a TTL the next search queries again
+        cache.get("Biology", null, 10, loader);
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testFailedLoadReleasesWaitingSearches() throws Exception {
+        // Arrange: A query that fails with an Error once the other search waits on it
+        CategorySearchCache cache = new CategorySearchCache(Jackson.newObjectMapper(), Duration.minutes(1), 100, metrics);
+        Supplier<List<Flashcard>> loader = () -> {
+            while (metrics.meter(MetricRegistry.name(CategorySearchCache.class, "coalesced")).getCount() < 1) {
+                Thread.onSpinWait();
+            }
+            throw new AssertionError("Query failed");
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            List<Future<CategorySearchCache.CategoryPage>> searches = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                searches.add(executor.submit(() -> cache.get("Biology", null, 10, loader)));
+            }
+
+            // Assert: Both fail with the Error rather than the waiting one hanging
+            for (Future<CategorySearchCache.CategoryPage> search : searches) {
+                assertThatThrownBy(() -> search.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(AssertionError.class);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWritesInvalidateOnlyTheirCategories() {
+        // Arrange
+        CategorySearchCache cache = new CategorySearchCache(Jackson.newObjectMapper(), Duration.minutes(1), 100, metrics);
+        search(cache, "Biology", card(1L, "Biology"));
+        search(cache, "History", card(2L, "History"));
+        search(cache, "Biology", card(1L, "Biology"));
+        assertThat(queries.get()).isEqualTo(2);
+
+        // Act & Assert: A new Biology flashcard leaves the History page cached
+        cache.onCreated(card(3L, "Biology"));
+        search(cache, "History", card(2L, "History"));
+        search(cache, "Biology", card(1L, "Biology"));
+        assertThat(queries.get()).isEqualTo(3);
+
+        // A flashcard moved from History to Chemistry drops the History page
+        cache.onUpdated(card(2L, "Chemistry"));
+        search(cache, "History");
+        assertThat(queries.get()).isEqualTo(4);
+
+        // Deleting a flashcard drops the page it was cached in
+        cache.onDeleted(1L);
+        search(cache, "Biology");
+        search(cache, "History");
+        assertThat(queries.get()).isEqualTo(5);
+        assertThat(metrics.meter(MetricRegistry.name(CategorySearchCache.class, "hits")).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testFlashcardsAreTrackedOnlyWhileCached() {
+        // Arrange: Room for a single page
+        CategorySearchCache cache = new CategorySearchCache(Jackson.newObjectMapper(), Duration.minutes(1), 1, metrics);
+
+        // Act: Each page evicts the one before it
+        for (long id = 1; id <= 50; id++) {
+            search(cache, "Category " + id, card(id, "Category " + id), card(id + 1000, "Category " + id));
+        }
+
+        // Assert: Only the flashcards of the page still cached are tracked
+        assertThat(tracked()).isEqualTo(2);
+    }
+
+    private void search(CategorySearchCache cache, String category, Flashcard... flashcards) {
+        cache.get(category, null, 10, () -> {
+            queries.incrementAndGet();
+            List<Flashcard> page = new ArrayList<>();
+            Collections.addAll(page, flashcards);
+            return page;
+        });
+    }
+
+    private int tracked() {
+        return (Integer) metrics.getGauges().get(MetricRegistry.name(CategorySearchCache.class, "tracked")).getValue();
+    }
+
+    private static Flashcard card(long id, String category) {
+        Flashcard flashcard = new Flashcard("Question " + id, "Answer " + id, category);
+        flashcard.setId(id);
+        return flashcard;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.flashcardapp.search;
+
+import com.example.flashcardapp.core.DuplicateCandidate;
+import com.example.flashcardapp.core.DuplicatePair;
+import com.example.flashcardapp.core.Flashcard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class DuplicateDetectorTest {
+
+    private DuplicateDetector detector;
+
+    @BeforeEach
+    void setup() {
+        detector = new DuplicateDetector(0.7, 0.9);
+        detector.add(card(1L, "What is the capital of France?", "Paris, on the Seine"));
+        detector.add(card(2L, "What is the boiling point of water at sea level?", "100 degrees Celsius"));
+        detector.add(card(3L, "Who wrote Hamlet?", "William Shakespeare"));
+    }
+
+    @Test
+    void testFindCandidates_RewordedAndUnrelated() {
+        List<DuplicateCandidate> same = detector.findCandidates("what is the CAPITAL of france", "Paris - on the Seine.");
+        List<DuplicateCandidate> close = detector.findCandidates("What is the capital city of France?", "Paris, on the Seine");
+        List<DuplicateCandidate> unrelated = detector.findCandidates("What is the capital of Peru?", "Lima");
+
+        assertThat(same).extracting(DuplicateCandidate::getId).containsExactly(1L);
+        assertThat(same.get(0).getSimilarity()).isEqualTo(1.0);
+        assertThat(detector.isDuplicate(same)).isTrue();
+        assertThat(close).extracting(DuplicateCandidate::getId).containsExactly(1L);
+        assertThat(close.get(0).getSimilarity()).isCloseTo(0.86, within(0.15));
+        assertThat(unrelated).isEmpty();
+        assertThat(detector.isDuplicate(unrelated)).isFalse();
+    }
+
+    @Test
+    void testUpdateAndDelete() {
+        detector.onUpdated(card(1L, "What is the capital of Italy?", "Rome"));
+        detector.onDeleted(2L);
+
+        assertThat(detector.findCandidates("What is the capital of France?", "Paris, on the Seine")).isEmpty();
+        assertThat(detector.findCandidates("What is the capital of Italy?", "Rome"))
+            .extracting(DuplicateCandidate::getId).containsExactly(1L);
+        assertThat(detector.findCandidates("What is the boiling point of water at sea level?", "100 degrees Celsius")).isEmpty();
+        assertThat(detector.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testFindAllDuplicates_AcrossScanChunks() {
+        // Enough random flashcards for several fork-join tasks, every hundredth one copied
+        // with one word changed
+        detector.clear();
+        Random random = new Random(1);
+        for (long id = 1; id <= 3000; id++) {
+            String question = words(random, 8);
+            String answer = words(random, 8);
+            detector.add(card(id, question, answer));
+            if (id % 100 == 0) {
+                detector.add(card(10_000 + id, question, answer.substring(6) + " zzzzz"));
+            }
+        }
+
+        List<DuplicatePair> pairs = detector.findAllDuplicates(0.5, 1000);
+
+        assertThat(pairs).hasSize(30);
+        assertThat(pairs).allMatch(pair -> pair.getSecondId() == pair.getFirstId() + 10_000);
+        assertThat(pairs).isSortedAccordingTo((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()));
+        assertThat(detector.findAllDuplicates(0.5, 5)).hasSize(5);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < 5; j++) {
+                words.append((char) ('a' + random.nextInt(26)));
+            }
+            words.append(' ');
+        }
+        return words.toString().trim();
+    }
+
+    private static Flashcard card(long id, String question, String answer) {
+        Flashcard flashcard = new Flashcard(question, answer, null);
+        flashcard.setId(id);
+        return flashcard;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.flashcardapp.search;
+
+import com.example.flashcardapp.core.Flashcard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlashcardIndexTest {
+
+    private FlashcardIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new FlashcardIndex();
+        index.add(card(1L, "What is Java?", "A programming language.", "Programming"));
+        index.add(card(2L, "What is Dropwizard?", "A Java framework for REST services.", "Framework"));
+        index.add(card(3L, "What is a JVM?", "The Java Virtual Machine runs Java bytecode.", "Programming"));
+    }
+
+    @Test
+    void testSearch_RanksByTermFrequency() {
+        // "java" appears three times in card 3, once or twice in the others
+        assertThat(index.search("java", null, 10)).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    void testSearch_LastWordMatchesAsPrefix() {
+        assertThat(index.search("drop", null, 10)).containsExactly(2L);
+        assertThat(index.search("virtual mach", null, 10)).containsExactly(3L);
+    }
+
+    @Test
+    void testSearch_FiltersByCategoryAndLimit() {
+        assertThat(index.search("java", "Programming", 10)).containsExactly(3L, 1L);
+        assertThat(index.search("java", null, 1)).containsExactly(3L);
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        index.add(card(2L, "What is Jersey?", "A JAX-RS implementation.", "Framework"));
+        assertThat(index.search("dropwizard", null, 10)).isEmpty();
+        assertThat(index.search("jersey", null, 10)).containsExactly(2L);
+
+        index.remove(1L);
+        assertThat(index.search("java", null, 10)).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testRenumberKeepsResults() {
+        // Churn enough documents to force document numbers to be reassigned
+        for (long id = 100; id < 5000; id++) {
+            index.add(card(id, "Churn " + id, "Temporary", null));
+            index.remove(id);
+        }
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search("java", null, 10)).containsExactly(3L, 1L, 2L);
+        assertThat(index.search("temporary", null, 10)).isEmpty();
+    }
+
+    private static Flashcard card(Long id, String question, String answer, String category) {
+        Flashcard flashcard = new Flashcard(question, answer, category);
+        flashcard.setId(id);
+        return flashcard;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.flashcardapp.search;
+
+import com.example.flashcardapp.core.Flashcard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlashcardSamplerTest {
+
+    private FlashcardSampler sampler;
+
+    @BeforeEach
+    void setup() {
+        sampler = new FlashcardSampler();
+        for (long id = 1; id <= 100; id++) {
+            sampler.add(card(id, id % 2 == 0 ? "Even" : "Odd"));
+        }
+    }
+
+    @Test
+    void testSample_DistinctIdsFromCategory() {
+        List<Long> sample = sampler.sample("Even", 20, new Random());
+
+        assertThat(sample).hasSize(20);
+        assertThat(new HashSet<>(sample)).hasSize(20);
+        assertThat(sample).allMatch(id -> id % 2 == 0);
+        assertThat(sampler.sample("Odd", 80, new Random())).hasSize(50);
+        assertThat(sampler.sample("Missing", 5, new Random())).isEmpty();
+    }
+
+    @Test
+    void testSample_SameSeedSameDeckSameSample() {
+        // The same deck built in a different order draws the same sample
+        FlashcardSampler other = new FlashcardSampler();
+        for (long id = 100; id >= 1; id--) {
+            other.add(card(id, id % 2 == 0 ? "Even" : "Odd"));
+        }
+
+        assertThat(other.sample(null, 10, new Random(7))).isEqualTo(sampler.sample(null, 10, new Random(7)));
+        assertThat(sampler.sample(null, 10, new Random(8))).isNotEqualTo(sampler.sample(null, 10, new Random(7)));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        sampler.add(card(2L, "Odd"));
+        sampler.remove(4L);
+
+        assertThat(sampler.sample("Even", 100, new Random())).hasSize(48).doesNotContain(2L, 4L);
+        assertThat(sampler.sample("Odd", 100, new Random())).hasSize(51).contains(2L);
+        assertThat(sampler.sample(null, 100, new Random())).hasSize(99);
+    }
+
+    private static Flashcard card(long id, String category) {
+        Flashcard flashcard = new Flashcard("Question " + id, "Answer " + id, category);
+        flashcard.setId(id);
+        return flashcard;
+    }
+}
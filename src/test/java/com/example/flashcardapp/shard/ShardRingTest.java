@@ -0,0 +1,28 @@
+package com.example.flashcardapp.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardRingTest {
+
+    @Test
+    void testFirstUsersSpreadAcrossShards() {
+        // Arrange
+        ShardRing ring = new ShardRing(Arrays.asList(0, 1, 2, 3));
+
+        // Act: The ids of the oldest users
+        Map<Integer, Integer> usersPerShard = new HashMap<>();
+        for (long userId = 0; userId < ShardRing.POINTS_PER_SHARD; userId++) {
+            usersPerShard.merge(ring.shardFor(userId), 1, Integer::sum);
+        }
+
+        // Assert: Every shard gets a fair share, rather than shard 0 getting them all
+        assertThat(usersPerShard).containsOnlyKeys(0, 1, 2, 3);
+        assertThat(usersPerShard.values()).allMatch(users -> users >= ShardRing.POINTS_PER_SHARD / 8);
+    }
+}
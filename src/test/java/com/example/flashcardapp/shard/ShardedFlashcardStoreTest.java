@@ -0,0 +1,248 @@
+package com.example.flashcardapp.shard;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.db.QueryMetrics;
+import com.example.flashcardapp.db.QueryTimeout;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the sharded store against two embedded databases, first with only shard 0 in
+ * the shard map and then with shard 1 added, as when a shard is added in production.
+ */
+public class ShardedFlashcardStoreTest {
+
+    private ManagedDataSource first;
+    private ManagedDataSource second;
+    private ShardedFlashcardStore store;
+
+    @BeforeEach
+    void setup() throws Exception {
+        first = migratedDatabase("shard-0");
+        second = migratedDatabase("shard-1");
+        store = store(true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        FlashcardOwner.clear();
+        store.stop();
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    void testWritesGoToOwnersShardAndReadsMerge() {
+        // Arrange
+        long onFirst = userOn(0);
+        long onSecond = userOn(1);
+
+        // Act
+        Flashcard a = store.create(card("What is H2?", onFirst));
+        Flashcard b = store.create(card("What is MySQL?", onSecond));
+        FlashcardOwner.set(onSecond);
+        Flashcard c = store.create(new Flashcard("What is a shard?", "A slice", "Tech"));
+        FlashcardOwner.clear();
+        Flashcard d = store.create(new Flashcard("What is Java?", "A language", "Lang"));
+
+        // Assert
+        assertThat(a.getId() % ShardedFlashcardStore.MAX_SHARDS).isEqualTo(0);
+        assertThat(b.getId() % ShardedFlashcardStore.MAX_SHARDS).isEqualTo(1);
+        assertThat(c.getUserId()).isEqualTo(onSecond);
+        assertThat(d.getUserId()).isNull();
+        assertThat(dao(second).findPage(null, 10)).extracting(Flashcard::getId).containsExactly(b.getId(), c.getId());
+        assertThat(store.findPage(null, 10)).extracting(Flashcard::getId)
+            .containsExactly(a.getId(), b.getId(), d.getId(), c.getId());
+        assertThat(store.findPage(d.getId(), 1)).extracting(Flashcard::getId).containsExactly(c.getId());
+        assertThat(store.findByIds(Arrays.asList(c.getId(), a.getId(), 9999L)))
+            .extracting(Flashcard::getId).containsExactly(c.getId(), a.getId());
+        assertThat(store.findByCategory("Tech", null, 2)).hasSize(2);
+        assertThat(store.delete(b.getId())).isTrue();
+        assertThat(store.findById(b.getId())).isEmpty();
+        FlashcardChanges changes = dao(second).findChanges(0, 10);
+        assertThat(changes.getChanged()).extracting(Flashcard::getId).containsExactly(c.getId());
+        assertThat(changes.getDeleted()).containsExactly(b.getId());
+        store.update(c.getId(), new Flashcard("What is a shard?", "A slice of the data", "Tech"), null);
+        assertThat(dao(second).findChanges(changes.getCursor(), 10).getChanged())
+            .extracting(Flashcard::getAnswer).containsExactly("A slice of the data");
+        assertThatThrownBy(() -> store.findChanges(0, 10)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testRebalanceMovesFlashcardsToNewShard() {
+        // Arrange: Flashcards created while shard 0 was the only shard
+        long onFirst = userOn(0);
+        long onSecond = userOn(1);
+        store.stop();
+        ShardedFlashcardStore single = store(false);
+        Flashcard staying = single.create(card("What is H2?", onFirst));
+        Flashcard moving = single.create(card("What is MySQL?", onSecond));
+        single.stop();
+        store = store(true);
+
+        // Act & Assert: Found on the old shard before the move and on the new one after
+        assertThat(store.findById(moving.getId())).isPresent();
+        assertThat(new ShardRebalancer(store).moveAll()).isEqualTo(1);
+        assertThat(dao(first).findById(moving.getId())).isEmpty();
+        assertThat(dao(second).findById(moving.getId())).hasValueSatisfying(flashcard -> {
+            assertThat(flashcard.getUpdatedAt()).isEqualTo(moving.getUpdatedAt());
+            assertThat(flashcard.getUserId()).isEqualTo(onSecond);
+        });
+        assertThat(store.findPage(null, 10)).extracting(Flashcard::getId)
+            .containsExactly(staying.getId(), moving.getId());
+        assertThat(new ShardRebalancer(store).moveUser(onSecond)).isEqualTo(0);
+
+        // New ids on either shard are above every id handed out before
+        Flashcard created = store.create(card("What is a shard?", onSecond));
+        assertThat(created.getId()).isGreaterThan(moving.getId());
+    }
+
+    @Test
+    void testSettleKeepsNewerWriteOnTarget() {
+        // Arrange: A flashcard copied to the new shard, then written on both shards, the
+        // target twice through the store and the source once by a server not yet routing it
+        long onSecond = userOn(1);
+        store.stop();
+        ShardedFlashcardStore single = store(false);
+        Flashcard moving = single.create(card("What is MySQL?", onSecond));
+        single.stop();
+        store = store(true);
+        dao(second).copy(Collections.singletonList(moving));
+        store.update(moving.getId(), card("What is MySQL?", onSecond), null);
+        store.update(moving.getId(), new Flashcard("What is MySQL?", "A database", "Tech"), null);
+        dao(first).update(moving.getId(), new Flashcard("What is MySQL?", "Stale", "Tech"), null);
+
+        // Act
+        ShardRebalancer.settle(moving, dao(first), dao(second));
+
+        // Assert: The source copy is gone without overwriting the newer target copy
+        assertThat(dao(first).findById(moving.getId())).isEmpty();
+        assertThat(dao(second).findById(moving.getId())).hasValueSatisfying(flashcard -> {
+            assertThat(flashcard.getAnswer()).isEqualTo("A database");
+            assertThat(flashcard.getVersion()).isEqualTo(moving.getVersion() + 2);
+        });
+    }
+
+    @Test
+    void testScatteredQueriesRunWithCallersDeadline() throws Exception {
+        // Arrange: Shards whose statements record the timeouts they are given
+        store.create(card("What is H2?", userOn(0)));
+        store.create(card("What is MySQL?", userOn(1)));
+        List<Integer> timeouts = Collections.synchronizedList(new ArrayList<>());
+        LinkedHashMap<Integer, FlashcardDAO> shards = new LinkedHashMap<>();
+        shards.put(0, new FlashcardDAO(recordingTimeouts(DataSource.class, first, timeouts), QueryMetrics.unregistered()));
+        shards.put(1, new FlashcardDAO(recordingTimeouts(DataSource.class, second, timeouts), QueryMetrics.unregistered()));
+        ShardedFlashcardStore recorded = new ShardedFlashcardStore(shards);
+        recorded.start();
+
+        // Act
+        QueryTimeout.setDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(30));
+        List<Flashcard> page;
+        try {
+            page = recorded.findPage(null, 10);
+        } finally {
+            QueryTimeout.clear();
+            recorded.stop();
+        }
+
+        // Assert: Each shard's query ran on the store's pool with the request's timeout
+        assertThat(page).hasSize(2);
+        assertThat(timeouts).hasSize(2).allSatisfy(timeout -> assertThat(timeout).isBetween(1, 30));
+    }
+
+    private ShardedFlashcardStore store(boolean withSecond) {
+        LinkedHashMap<Integer, FlashcardDAO> shards = new LinkedHashMap<>();
+        shards.put(0, new FlashcardDAO(first, QueryMetrics.unregistered()));
+        if (withSecond) {
+            shards.put(1, new FlashcardDAO(second, QueryMetrics.unregistered()));
+        }
+        ShardedFlashcardStore shardedStore = new ShardedFlashcardStore(shards);
+        shardedStore.start();
+        return shardedStore;
+    }
+
+    private FlashcardDAO dao(ManagedDataSource dataSource) {
+        return new FlashcardDAO(dataSource, QueryMetrics.unregistered());
+    }
+
+    private static long userOn(int shardId) {
+        ShardRing ring = new ShardRing(Arrays.asList(0, 1));
+        long userId = 1;
+        while (ring.shardFor(userId) != shardId) {
+            userId++;
+        }
+        return userId;
+    }
+
+    private static Flashcard card(String question, long userId) {
+        Flashcard flashcard = new Flashcard(question, "An answer", "Tech");
+        flashcard.setUserId(userId);
+        return flashcard;
+    }
+
+    /**
+     * Wraps {@code target} so that every statement prepared through it adds the query
+     * timeout it is given to {@code timeouts}.
+     */
+    private static <T> T recordingTimeouts(Class<T> type, T target, List<Integer> timeouts) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().equals("setQueryTimeout")) {
+                timeouts.add((Integer) args[0]);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof PreparedStatement) {
+                return recordingTimeouts(PreparedStatement.class, (PreparedStatement) result, timeouts);
+            }
+            if (result instanceof Connection) {
+                return recordingTimeouts(Connection.class, (Connection) result, timeouts);
+            }
+            return result;
+        }));
+    }
+
+    private ManagedDataSource migratedDatabase(String name) throws Exception {
+        DataSourceFactory factory = new DataSourceFactory();
+        factory.setDriverClass("org.h2.Driver");
+        factory.setUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        factory.setUser("sa");
+        factory.setPassword("");
+        ManagedDataSource dataSource = factory.build(new MetricRegistry(), name);
+        dataSource.start();
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("migrations/db.changelog-master.xml", new ClassLoaderResourceAccessor(),
+                new JdbcConnection(connection)).update(new Contexts());
+        }
+        return dataSource;
+    }
+}
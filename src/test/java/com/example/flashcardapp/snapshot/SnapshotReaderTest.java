@@ -0,0 +1,115 @@
+package com.example.flashcardapp.snapshot;
+
+import com.example.flashcardapp.core.Flashcard;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotReaderTest {
+
+    @Test
+    void testRoundTripAcrossBlocks() throws Exception {
+        // Arrange: Enough flashcards for several blocks, in three categories and none
+        List<Flashcard> flashcards = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Flashcard flashcard = new Flashcard("Question " + i + " \u00e9t\u00e9", "Answer " + i,
+                i % 4 == 3 ? null : "Category " + (i % 4));
+            flashcard.setId((long) i + 1);
+            flashcard.setVersion(i % 3);
+            flashcard.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_456_000));
+            flashcard.setUpdatedAt(i == 0 ? null : LocalDateTime.of(2024, 2, 1, 12, 0));
+            flashcard.setUserId(i % 5 == 0 ? null : (long) i % 7);
+            flashcards.add(flashcard);
+        }
+
+        // Act
+        byte[] snapshot = write(flashcards);
+        List<Flashcard> read = read(snapshot);
+
+        // Assert
+        assertThat(snapshot.length).isLessThan(5000 * 40);
+        assertThat(read).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(flashcards);
+    }
+
+    @Test
+    void testVersionOneSnapshotIsReadWithoutOwners() throws Exception {
+        // Arrange: A version 1 snapshot of one flashcard, which has no owner field
+        ByteBuffer records = ByteBuffer.allocate(64);
+        records.put(SnapshotFormat.FLASHCARD_RECORD).putLong(7).putLong(2)
+            .putLong(SnapshotFormat.NO_TIME).putLong(SnapshotFormat.NO_TIME);
+        byte[] question = "Question".getBytes(StandardCharsets.UTF_8);
+        records.putInt(question.length).put(question).putInt(-1).putInt(SnapshotFormat.NO_CATEGORY);
+        CRC32C crc = new CRC32C();
+        crc.update(records.array(), 0, records.position());
+        ByteBuffer snapshot = ByteBuffer.allocate(SnapshotFormat.FILE_HEADER_BYTES
+            + 2 * SnapshotFormat.BLOCK_HEADER_BYTES + records.position() + 8);
+        snapshot.put(SnapshotFormat.MAGIC).putShort(SnapshotFormat.UNOWNED_VERSION).putShort((short) 0)
+            .putInt(records.position()).putInt(records.position()).putInt((int) crc.getValue())
+            .put(records.array(), 0, records.position())
+            .putInt(0).putInt(0).putInt(0).putLong(1);
+
+        // Act
+        List<Flashcard> read = read(snapshot.array());
+
+        // Assert
+        assertThat(read).hasSize(1);
+        assertThat(read.get(0).getId()).isEqualTo(7L);
+        assertThat(read.get(0).getQuestion()).isEqualTo("Question");
+        assertThat(read.get(0).getUserId()).isNull();
+    }
+
+    @Test
+    void testCorruptBlockIsRejected() throws Exception {
+        // Arrange: A byte in the middle of the first block is flipped
+        Flashcard flashcard = new Flashcard("Question", "Answer", "Category");
+        byte[] snapshot = write(Arrays.asList(flashcard, flashcard, flashcard));
+        snapshot[SnapshotFormat.FILE_HEADER_BYTES + SnapshotFormat.BLOCK_HEADER_BYTES + 4] ^= 0x10;
+
+        // Act & Assert
+        assertThatThrownBy(() -> read(snapshot)).isInstanceOf(SnapshotFormatException.class);
+    }
+
+    @Test
+    void testTruncatedSnapshotIsRejected() throws Exception {
+        // Arrange: The end of the snapshot is cut off
+        byte[] snapshot = write(Arrays.asList(new Flashcard("Question", "Answer", null)));
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 4);
+
+        // Act & Assert
+        assertThatThrownBy(() -> read(truncated))
+            .isInstanceOf(SnapshotFormatException.class)
+            .hasMessageContaining("ends in the middle");
+    }
+
+    private static byte[] write(List<Flashcard> flashcards) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SnapshotWriter writer = new SnapshotWriter(Channels.newChannel(output));
+        for (Flashcard flashcard : flashcards) {
+            writer.write(flashcard);
+        }
+        writer.finish();
+        return output.toByteArray();
+    }
+
+    private static List<Flashcard> read(byte[] snapshot) throws Exception {
+        SnapshotReader reader = new SnapshotReader(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+        List<Flashcard> flashcards = new ArrayList<>();
+        Flashcard flashcard;
+        while ((flashcard = reader.next()) != null) {
+            flashcards.add(flashcard);
+        }
+        return flashcards;
+    }
+}
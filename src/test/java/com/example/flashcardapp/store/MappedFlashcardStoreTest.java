@@ -0,0 +1,184 @@
+package com.example.flashcardapp.store;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.FlashcardChanges;
+import com.example.flashcardapp.core.FlashcardPatch;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedFlashcardStoreTest {
+
+    // Small chunks, so that a few flashcards already span several
+    private static final int CHUNK_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private MappedFlashcardStore store;
+
+    @BeforeEach
+    void setup() throws Exception {
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.stop();
+    }
+
+    @Test
+    void testWritesAndReads() {
+        // Arrange
+        List<Flashcard> flashcards = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            flashcards.add(new Flashcard("Question " + i, "Answer " + i, i % 2 == 0 ? "Even" : "Odd"));
+        }
+        store.createBatch(flashcards);
+        Flashcard first = flashcards.get(0);
+
+        // Act
+        Optional<Flashcard> updated = store.update(first.getId(), new Flashcard("New question", "New answer", "Odd"));
+        FlashcardPatch stalePatch = new FlashcardPatch();
+        stalePatch.setAnswer("Stale answer");
+        stalePatch.setVersion(0L);
+        boolean deleted = store.delete(flashcards.get(1).getId(), 7L);
+
+        // Assert
+        assertThat(flashcards).extracting(Flashcard::getId).doesNotHaveDuplicates().doesNotContainNull();
+        assertThat(updated).hasValueSatisfying(card -> assertThat(card.getVersion()).isEqualTo(1));
+        assertThat(store.patch(first.getId(), stalePatch)).isEmpty();
+        assertThat(deleted).isFalse();
+        assertThat(store.findById(first.getId())).hasValueSatisfying(card -> {
+            assertThat(card.getQuestion()).isEqualTo("New question");
+            assertThat(card.getCreatedAt()).isEqualTo(first.getCreatedAt());
+        });
+        assertThat(store.findPage(flashcards.get(47).getId(), 10)).hasSize(2);
+        assertThat(store.findByCategory("Even", null, 100)).hasSize(24);
+        assertThat(store.countByCategory()).containsEntry("Even", 24L).containsEntry("Odd", 26L);
+        assertThat(store.delete(flashcards.get(1).getId(), null)).isTrue();
+        assertThat(store.findByIds(Arrays.asList(flashcards.get(2).getId(), flashcards.get(1).getId())))
+            .extracting(Flashcard::getId).containsExactly(flashcards.get(2).getId());
+    }
+
+    @Test
+    void testChangesListEachFlashcardOnceAtItsLatestChange() {
+        // Arrange
+        Flashcard a = store.create(new Flashcard("A", "A", null));
+        Flashcard b = store.create(new Flashcard("B", "B", null));
+        FlashcardChanges before = store.findChanges(0, 100);
+        store.update(a.getId(), new Flashcard("A2", "A2", null));
+        store.delete(b.getId());
+        Flashcard c = store.create(new Flashcard("C", "C", null));
+
+        // Act
+        FlashcardChanges page = store.findChanges(before.getCursor(), 1);
+        FlashcardChanges rest = store.findChanges(page.getCursor(), 100);
+
+        // Assert
+        assertThat(page.getChanged()).extracting(Flashcard::getQuestion).containsExactly("A2");
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(rest.getDeleted()).containsExactly(b.getId());
+        assertThat(rest.getChanged()).extracting(Flashcard::getId).containsExactly(c.getId());
+        assertThat(rest.isHasMore()).isFalse();
+    }
+
+    @Test
+    void testRecoveryDropsTornWriteWhole() throws Exception {
+        // Arrange: A batch whose last record is torn by a crash
+        Flashcard kept = store.create(new Flashcard("Kept", "Kept", "Safe"));
+        store.createBatch(Arrays.asList(new Flashcard("Lost 1", "Lost", "Torn"),
+            new Flashcard("Lost 2", "Lost", "Torn"), new Flashcard("Lost 3", "Lost", "Torn")));
+        store.stop();
+        flipLastWrittenByte(directory.resolve(MappedFlashcardStore.LOG_FILE));
+
+        // Act
+        store = open();
+        Flashcard next = store.create(new Flashcard("After", "After", "Safe"));
+        store.stop();
+        store = open();
+
+        // Assert
+        assertThat(store.findPage(null, 100)).extracting(Flashcard::getQuestion).containsExactly("Kept", "After");
+        assertThat(store.countByCategory()).containsOnlyKeys("Safe");
+        assertThat(next.getId()).isEqualTo(kept.getId() + 1);
+    }
+
+    @Test
+    void testCompactionKeepsLiveFlashcardsAndTombstones() throws Exception {
+        // Arrange
+        Flashcard updated = store.create(new Flashcard("Question", "Answer", "Category"));
+        Flashcard deleted = store.create(new Flashcard("Deleted", "Answer", "Category"));
+        for (int i = 0; i < 100; i++) {
+            store.update(updated.getId(), new Flashcard("Question " + i, "Answer " + i, "Category"));
+        }
+        store.delete(deleted.getId());
+        long sizeBefore = Files.size(directory.resolve(MappedFlashcardStore.LOG_FILE));
+
+        // Act
+        store.compact();
+        store.create(new Flashcard("After compaction", "Answer", "Category"));
+        store.stop();
+        store = open();
+
+        // Assert
+        assertThat(Files.size(directory.resolve(MappedFlashcardStore.LOG_FILE))).isLessThan(sizeBefore);
+        assertThat(store.findById(updated.getId())).hasValueSatisfying(card ->
+            assertThat(card.getQuestion()).isEqualTo("Question 99"));
+        assertThat(store.findById(deleted.getId())).isEmpty();
+        assertThat(store.findChanges(0, 100).getDeleted()).containsExactly(deleted.getId());
+        assertThat(store.findPage(null, 10)).extracting(Flashcard::getQuestion)
+            .containsExactly("Question 99", "After compaction");
+    }
+
+    @Test
+    void testOwnersSurviveReopening() throws Exception {
+        // Arrange
+        Flashcard owned = new Flashcard("Owned", "Answer", "Category");
+        owned.setUserId(42L);
+        store.create(owned);
+        Flashcard unowned = store.create(new Flashcard("Unowned", "Answer", "Category"));
+        store.update(owned.getId(), new Flashcard("Owned, updated", "Answer", "Category"));
+
+        // Act
+        store.stop();
+        store = open();
+
+        // Assert
+        assertThat(store.findById(owned.getId())).hasValueSatisfying(card -> {
+            assertThat(card.getQuestion()).isEqualTo("Owned, updated");
+            assertThat(card.getUserId()).isEqualTo(42L);
+        });
+        assertThat(store.findById(unowned.getId())).hasValueSatisfying(card -> assertThat(card.getUserId()).isNull());
+    }
+
+    private MappedFlashcardStore open() throws Exception {
+        MappedFlashcardStore opened = new MappedFlashcardStore(directory, CHUNK_SIZE, Duration.hours(1), 0.5);
+        opened.start();
+        return opened;
+    }
+
+    private static void flipLastWrittenByte(Path file) throws Exception {
+        try (RandomAccessFile log = new RandomAccessFile(file.toFile(), "rw")) {
+            long position = log.length() - 1;
+            log.seek(position);
+            while (log.read() == 0) {
+                log.seek(--position);
+            }
+            log.seek(position);
+            log.write(0x55);
+        }
+    }
+}
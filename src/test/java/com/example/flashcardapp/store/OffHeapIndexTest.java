@@ -0,0 +1,38 @@
+package com.example.flashcardapp.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapIndexTest {
+
+    @Test
+    void testMatchesHashMapThroughResizesAndRemovals() {
+        // Arrange
+        OffHeapIndex index = new OffHeapIndex(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                expected.remove(id);
+            } else {
+                index.put(id, i);
+                expected.put(id, (long) i);
+            }
+        }
+
+        // Assert
+        assertThat(index.size()).isEqualTo(expected.size());
+        for (long id = 1; id <= 2_000; id++) {
+            assertThat(index.get(id)).isEqualTo(expected.getOrDefault(id, OffHeapIndex.ABSENT));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.flashcardapp.stream;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.Flashcard;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class FlashcardEventBroadcasterTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private FlashcardEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setup() {
+        broadcaster = new FlashcardEventBroadcaster(Jackson.newObjectMapper(), 2, Duration.hours(1), metrics);
+        broadcaster.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        broadcaster.stop();
+    }
+
+    @Test
+    void testStreamsChangesMatchingCategory() throws Exception {
+        // Arrange: One subscriber for every category and one for Biology only
+        Stream all = new Stream(true);
+        Stream biology = new Stream(true);
+        broadcaster.subscribe(all.asyncContext, null);
+        broadcaster.subscribe(biology.asyncContext, "Biology");
+        all.writePossible();
+        biology.writePossible();
+        Flashcard flashcard = new Flashcard("Q", "A", "History");
+        flashcard.setId(7L);
+
+        // Act
+        broadcaster.onCreated(flashcard);
+        broadcaster.onDeleted(7L);
+        broadcaster.stop();
+
+        // Assert: Creates are filtered by category, deletes reach everyone
+        assertThat(all.written()).contains("retry: 5000\n\n")
+            .contains("event: created\ndata: {\"id\":7,")
+            .contains("event: deleted\ndata: {\"id\":7}\n\n");
+        assertThat(biology.written()).doesNotContain("event: created").contains("event: deleted");
+    }
+
+    @Test
+    void testDisconnectsSlowSubscriberWithoutHoldingUpOthers() throws Exception {
+        // Arrange: A subscriber whose connection never becomes writable, and a healthy one
+        Stream slow = new Stream(false);
+        Stream fast = new Stream(true);
+        broadcaster.subscribe(slow.asyncContext, null);
+        broadcaster.subscribe(fast.asyncContext, null);
+        fast.writePossible();
+
+        // Act: More events than the slow subscriber's buffer holds
+        for (long id = 1; id <= 3; id++) {
+            broadcaster.onDeleted(id);
+        }
+
+        // Assert
+        verify(slow.asyncContext, timeout(5000)).complete();
+        verify(fast.asyncContext, never()).complete();
+        broadcaster.stop();
+        assertThat(fast.written()).contains("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+        assertThat(metrics.meter(MetricRegistry.name(FlashcardEventBroadcaster.class, "slow-subscribers-disconnected"))
+            .getCount()).isEqualTo(1);
+    }
+
+    /**
+     * An asynchronous request whose output collects everything written to it.
+     */
+    private static final class Stream {
+
+        final AsyncContext asyncContext = mock(AsyncContext.class);
+        final ServletOutputStream output = mock(ServletOutputStream.class);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Stream(boolean ready) throws Exception {
+            ServletResponse response = mock(ServletResponse.class);
+            when(asyncContext.getResponse()).thenReturn(response);
+            when(response.getOutputStream()).thenReturn(output);
+            when(output.isReady()).thenReturn(ready);
+            doAnswer(invocation -> {
+                bytes.writeBytes(invocation.<byte[]>getArgument(0));
+                return null;
+            }).when(output).write(any(byte[].class));
+        }
+
+        /**
+         * Does what the container does once the stream's write listener is registered.
+         */
+        void writePossible() throws Exception {
+            ArgumentCaptor<WriteListener> listener = ArgumentCaptor.forClass(WriteListener.class);
+            verify(output).setWriteListener(listener.capture());
+            listener.getValue().onWritePossible();
+        }
+
+        synchronized String written() {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
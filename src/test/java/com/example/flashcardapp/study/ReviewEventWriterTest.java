@@ -0,0 +1,125 @@
+package com.example.flashcardapp.study;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.flashcardapp.core.ReviewEvent;
+import com.example.flashcardapp.core.ReviewSchedule;
+import com.example.flashcardapp.db.DataAccessException;
+import com.example.flashcardapp.db.ReviewScheduleDAO;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReviewEventWriterTest {
+
+    private final ReviewScheduleDAO reviewScheduleDAO = mock(ReviewScheduleDAO.class);
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGroupCommitsAndDrainsOnStop() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> batchSizes.add(((List<ReviewEvent>) invocation.getArgument(0)).size()))
+            .when(reviewScheduleDAO).saveAll(anyList());
+        ReviewEventWriter writer = new ReviewEventWriter(reviewScheduleDAO, 10_000, 100,
+            Duration.seconds(1), metrics);
+
+        writer.start();
+        for (int i = 0; i < 1050; i++) {
+            assertThat(writer.submit(event(i))).isTrue();
+        }
+        writer.stop();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(1050);
+        assertThat(batchSizes).allMatch(size -> size <= 100);
+        assertThat(batchSizes.size()).isLessThan(1050);
+        assertThat(metrics.histogram(MetricRegistry.name(ReviewEventWriter.class, "batch-size")).getCount())
+            .isEqualTo(batchSizes.size());
+    }
+
+    @Test
+    void testRejectsWhenFullOrStopped() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            committing.countDown();
+            release.await();
+            return null;
+        }).when(reviewScheduleDAO).saveAll(anyList());
+        ReviewEventWriter writer = new ReviewEventWriter(reviewScheduleDAO, 2, 1,
+            Duration.seconds(1), metrics);
+        assertThat(writer.submit(event(0))).isFalse();
+
+        // Hold the writer inside its first commit so that the queue fills up
+        writer.start();
+        assertThat(writer.submit(event(1))).isTrue();
+        assertThat(committing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(writer.submit(event(2))).isTrue();
+        assertThat(writer.submit(event(3))).isTrue();
+        assertThat(writer.submit(event(4))).isFalse();
+        release.countDown();
+        writer.stop();
+
+        assertThat(metrics.meter(MetricRegistry.name(ReviewEventWriter.class, "rejected")).getCount()).isEqualTo(2);
+        verify(reviewScheduleDAO, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedBatchIsRetriedOneByOne() throws Exception {
+        List<Long> saved = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<ReviewEvent> events = (List<ReviewEvent>) invocation.getArgument(0);
+            if (events.stream().anyMatch(event -> event.getFlashcardId() == 2L)) {
+                throw new DataAccessException("Failed to save", new SQLException("foreign key", "23506"));
+            }
+            events.forEach(event -> saved.add(event.getFlashcardId()));
+            return null;
+        }).when(reviewScheduleDAO).saveAll(anyList());
+        ReviewEventWriter writer = new ReviewEventWriter(reviewScheduleDAO, 100, 100,
+            Duration.seconds(1), metrics);
+
+        writer.start();
+        for (int i = 1; i <= 3; i++) {
+            writer.submit(event(i));
+        }
+        writer.stop();
+
+        assertThat(saved).containsExactly(1L, 3L);
+        assertThat(metrics.meter(MetricRegistry.name(ReviewEventWriter.class, "failed")).getCount()).isEqualTo(1);
+
+        // The flashcard was deleted, so the event is discarded without raising an alert
+        assertThat(metrics.meter(MetricRegistry.name(ReviewEventWriter.class, "discarded")).getCount()).isEqualTo(1);
+        assertThat(metrics.counter(MetricRegistry.name(ReviewEventWriter.class, "dropped")).getCount()).isZero();
+        assertThat(writer.healthCheck().execute().isHealthy()).isTrue();
+    }
+
+    @Test
+    void testDroppedEventTurnsHealthCheckUnhealthy() throws Exception {
+        doThrow(new DataAccessException("Failed to save", new SQLException("connection lost", "08S01")))
+            .when(reviewScheduleDAO).saveAll(anyList());
+        ReviewEventWriter writer = new ReviewEventWriter(reviewScheduleDAO, 100, 100,
+            Duration.seconds(1), metrics);
+        assertThat(writer.healthCheck().execute().isHealthy()).isTrue();
+
+        writer.start();
+        writer.submit(event(1));
+        writer.stop();
+
+        assertThat(metrics.counter(MetricRegistry.name(ReviewEventWriter.class, "dropped")).getCount()).isEqualTo(1);
+        assertThat(writer.healthCheck().execute().isHealthy()).isFalse();
+    }
+
+    private static ReviewEvent event(long flashcardId) {
+        Instant now = Instant.now();
+        return new ReviewEvent(4, now, ReviewSchedule.unreviewed(1L, flashcardId, now).review(4, now));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.flashcardapp.study;
+
+import com.example.flashcardapp.core.Flashcard;
+import com.example.flashcardapp.core.ReviewEvent;
+import com.example.flashcardapp.core.ReviewSchedule;
+import com.example.flashcardapp.db.FlashcardDAO;
+import com.example.flashcardapp.db.ReviewScheduleDAO;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+public class StudySchedulerTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final FlashcardDAO flashcardDAO = mock(FlashcardDAO.class);
+    private final ReviewScheduleDAO reviewScheduleDAO = mock(ReviewScheduleDAO.class);
+    private final ReviewEventWriter reviewEventWriter = mock(ReviewEventWriter.class);
+    private final Clock clock = mock(Clock.class);
+    private StudyScheduler scheduler;
+
+    @BeforeEach
+    void setup() {
+        when(clock.instant()).thenReturn(NOW);
+        when(reviewScheduleDAO.findByUser(7L)).thenReturn(Arrays.asList(
+            new ReviewSchedule(7L, 1L, 2.5, 1, 1, NOW.minus(Duration.ofHours(1))),
+            new ReviewSchedule(7L, 2L, 2.5, 6, 2, NOW.minus(Duration.ofDays(2))),
+            new ReviewSchedule(7L, 3L, 2.5, 6, 2, NOW.plus(Duration.ofDays(3)))
+        ));
+        when(flashcardDAO.findByIds(anyList())).thenAnswer(invocation -> Collections.emptyList());
+        when(reviewEventWriter.submit(any(ReviewEvent.class))).thenReturn(true);
+        scheduler = new StudyScheduler(flashcardDAO, reviewScheduleDAO, reviewEventWriter,
+            clock, CaffeineSpec.parse("maximumSize=10"));
+    }
+
+    @Test
+    void testNext_ReturnsDueCardsMostOverdueFirstThenNewCards() {
+        Flashcard due1 = new Flashcard("Q1", "A", null);
+        Flashcard due2 = new Flashcard("Q2", "A", null);
+        Flashcard unreviewed = new Flashcard("Q", "A", null);
+        unreviewed.setId(4L);
+        when(flashcardDAO.findByIds(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(due2, due1));
+        when(reviewScheduleDAO.findUnreviewed(7L, 3)).thenReturn(Collections.singletonList(unreviewed));
+
+        assertThat(scheduler.next(7L, 5)).containsExactly(due2, due1, unreviewed);
+    }
+
+    @Test
+    void testNext_SkipsNewCardsWhoseReviewIsNotWrittenYet() {
+        Flashcard pending = new Flashcard("Q", "A", null);
+        pending.setId(5L);
+        scheduler.review(7L, 5L, 4);
+        when(reviewScheduleDAO.findUnreviewed(7L, 5)).thenReturn(Collections.singletonList(pending));
+
+        assertThat(scheduler.next(7L, 5)).isEmpty();
+    }
+
+    @Test
+    void testReview_FollowsSm2Intervals() {
+        ReviewSchedule first = scheduler.review(7L, 4L, 5);
+        assertThat(first.getIntervalDays()).isEqualTo(1);
+        assertThat(first.getEase()).isEqualTo(2.6, within(1e-9));
+
+        ReviewSchedule second = scheduler.review(7L, 4L, 4);
+        assertThat(second.getIntervalDays()).isEqualTo(6);
+
+        ReviewSchedule third = scheduler.review(7L, 4L, 4);
+        assertThat(third.getIntervalDays()).isEqualTo(16);
+        assertThat(third.getDueAt()).isEqualTo(NOW.plus(Duration.ofDays(16)));
+
+        ReviewSchedule lapse = scheduler.review(7L, 4L, 1);
+        assertThat(lapse.getRepetitions()).isZero();
+        assertThat(lapse.getIntervalDays()).isEqualTo(1);
+        verify(reviewEventWriter, times(4)).submit(any(ReviewEvent.class));
+    }
+
+    @Test
+    void testReview_MovesCardOutOfDueQueue() {
+        scheduler.review(7L, 2L, 5);
+        scheduler.next(7L, 5);
+        verify(flashcardDAO).findByIds(Collections.singletonList(1L));
+    }
+
+    @Test
+    void testReview_RejectedWhenWriterIsFull() {
+        when(reviewEventWriter.submit(any(ReviewEvent.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> scheduler.review(7L, 2L, 5)).isInstanceOf(ReviewQueueFullException.class);
+        scheduler.next(7L, 5);
+        verify(flashcardDAO).findByIds(Arrays.asList(2L, 1L));
+    }
+
+    @Test
+    void testDeletedFlashcardLeavesQueue() {
+        scheduler.next(7L, 5);
+        scheduler.onDeleted(2L);
+        scheduler.next(7L, 5);
+        verify(flashcardDAO).findByIds(Collections.singletonList(1L));
+    }
+}